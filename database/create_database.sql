@@ -9,6 +9,8 @@ CREATE DATABASE IF NOT EXISTS Cine_DB;
 USE Cine_DB;
 
 -- Crear la tabla Cartelera para almacenar información de películas
+-- (la aplicación aplica los mismos cambios a bases de datos existentes con
+-- SchemaMigrator; ver "Migraciones del Esquema" en database/README.md)
 CREATE TABLE IF NOT EXISTS Cartelera (
     id INT AUTO_INCREMENT PRIMARY KEY,
     title VARCHAR(150) NOT NULL,
@@ -28,5 +30,65 @@ CREATE TABLE IF NOT EXISTS Cartelera (
         'Documental'
     ) NOT NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+    -- Versión para la concurrencia optimista (milisegundos; ver Movie.getVersion)
+    updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    -- Claves de búsqueda normalizadas (minúsculas, sin tildes), calculadas por la aplicación
+    title_key VARCHAR(150) NULL,
+    director_key VARCHAR(50) NULL,
+    -- Las películas inactivas se mueven a Cartelera_archivo (MovieDAO.archiveColdMovies)
+    active BOOLEAN NOT NULL DEFAULT TRUE,
+    -- Clave natural para la sincronización (también sirve las búsquedas por title_key).
+    -- Rechaza una segunda película con el mismo título, año y director normalizados;
+    -- en bases de datos anteriores la crea la migración V10 tras resolver los duplicados
+    UNIQUE KEY uk_cartelera_natural (title_key, year, director_key),
+    INDEX idx_cartelera_director_key (director_key),
+    -- Eliminación por título (MovieDAO.deleteMoviesByTitle)
+    INDEX idx_cartelera_title (title),
+    -- Filtros de "Ver todas" por género y rango de años
+    INDEX idx_cartelera_genre_year (genre, year),
+    -- Consulta de cambios incrementales (MovieDAO.getMoviesChangedSince)
+    INDEX idx_cartelera_updated_at (updated_at),
+    -- Archivado por antigüedad (magenta.archive.maxAgeDays)
+    INDEX idx_cartelera_created_at (created_at),
+    -- Búsqueda de texto de los formularios (MATCH ... AGAINST)
+    FULLTEXT INDEX ft_cartelera_title_director (title, director)
+);
+
+-- Registro de eliminaciones para la consulta de cambios incrementales
+-- (se depura al iniciar la aplicación según magenta.dao.tombstoneRetentionHours)
+CREATE TABLE IF NOT EXISTS Cartelera_eliminadas (
+    id INT PRIMARY KEY,
+    deleted_at TIMESTAMP(3) NOT NULL,
+    INDEX idx_eliminadas_deleted_at (deleted_at)
+);
+
+-- Archivo de películas inactivas o antiguas: las columnas de Cartelera, fuera de
+-- las consultas habituales (ver MovieDAO.includingArchive). El id es la clave
+-- primaria, pero no hay clave natural única (título, año y director): una película
+-- puede archivarse, volver a agregarse con un id nuevo y archivarse otra vez
+CREATE TABLE IF NOT EXISTS Cartelera_archivo (
+    id INT PRIMARY KEY,
+    title VARCHAR(150) NOT NULL,
+    director VARCHAR(50) NOT NULL,
+    year INT NOT NULL,
+    duration INT NOT NULL COMMENT 'Duración en minutos',
+    genre ENUM(
+        'Acción', 
+        'Drama', 
+        'Comedia', 
+        'Terror', 
+        'Romance', 
+        'Ciencia Ficción', 
+        'Thriller', 
+        'Aventura', 
+        'Animación', 
+        'Documental'
+    ) NOT NULL,
+    created_at TIMESTAMP NULL,
+    updated_at TIMESTAMP(3) NULL,
+    title_key VARCHAR(150) NULL,
+    director_key VARCHAR(50) NULL,
+    archived_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+    INDEX idx_archivo_title_key (title_key),
+    INDEX idx_archivo_director_key (director_key)
 );
@@ -1,7 +1,17 @@
 package projectmagenta.app;
 
+import projectmagenta.dao.ArchiveMover;
+import projectmagenta.dao.DBConfig;
 import projectmagenta.dao.DBConnection;
+import projectmagenta.dao.MovieDAO;
+import projectmagenta.dao.MovieRepository;
+import projectmagenta.dao.MovieRepositoryFactory;
+import projectmagenta.dao.SchemaMigrator;
+import projectmagenta.dao.ShardedMovieRepository;
 import projectmagenta.view.MainFrame;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 
@@ -17,7 +27,8 @@ public class Main {
     /**
      * Método principal que inicia la aplicación.
      * Configura la salida estándar en UTF-8, establece el Look and Feel,
-     * verifica la conexión a la base de datos y lanza la ventana principal si todo es correcto.
+     * verifica la conexión a la base de datos (solo con el backend jdbc) y lanza la
+     * ventana principal si todo es correcto.
      * @param args argumentos de línea de comandos
      * @throws java.io.UnsupportedEncodingException si la codificación no es soportada
      */
@@ -29,7 +40,10 @@ public class Main {
         
         // Verificar conexión a la base de datos con manejo de excepciones
         try {
-            if (testDatabaseConnection()) {
+            if (!MovieRepositoryFactory.requiresDatabase()) {
+                System.out.println("[INFO] Backend de almacenamiento: " + MovieRepositoryFactory.getBackendName() + " (sin conexión a MySQL)");
+            }
+            if (!MovieRepositoryFactory.requiresDatabase() || testDatabaseConnection()) {
                 // Iniciar la interfaz gráfica en el EDT (Event Dispatch Thread)
                 SwingUtilities.invokeLater(() -> {
                     try {
@@ -41,7 +55,7 @@ public class Main {
                     }
                 });
             } else {
-                System.err.println("No se pudo iniciar la aplicación debido a problemas de conexión a la base de datos.");
+                System.err.println("No se pudo iniciar la aplicación debido a problemas de conexión o de esquema de la base de datos.");
                 System.exit(1);
             }
         } catch (Exception ex) {
@@ -72,9 +86,10 @@ public class Main {
     }
     
     /**
-     * Verifica la conexión a la base de datos antes de iniciar la aplicación.
-     * Muestra mensajes de error detallados si la conexión falla.
-     * @return true si la conexión es exitosa, false en caso contrario
+     * Verifica la conexión a la base de datos antes de iniciar la aplicación y
+     * prepara el esquema (migraciones y claves de búsqueda).
+     * Muestra mensajes de error detallados si la conexión o la preparación fallan.
+     * @return true si la conexión y la preparación son exitosas, false en caso contrario
      */
     private static boolean testDatabaseConnection() {
         System.out.println("Verificando conexión a la base de datos...");
@@ -82,8 +97,38 @@ public class Main {
         
         if (connected) {
             System.out.println("[SUCCESS] Conexion a la base de datos exitosa");
+            // Aplicar las migraciones pendientes del esquema, completar las claves de búsqueda de filas
+            // anteriores a las columnas title_key/director_key y purgar las eliminaciones más antiguas
+            // que la retención del registro de cambios (en cada shard, si los hay)
+            MovieRepository repository = MovieRepositoryFactory.getRepository();
+            List<MovieRepository> databases = repository instanceof ShardedMovieRepository
+                    ? ((ShardedMovieRepository) repository).getShards()
+                    : Collections.singletonList(repository);
+            List<MovieDAO> movieDaos = new ArrayList<>();
+            for (MovieRepository database : databases) {
+                if (database instanceof MovieDAO) {
+                    MovieDAO movieDao = (MovieDAO) database;
+                    if (DBConfig.getBoolean("magenta.db.migrateOnStartup", true)
+                            && new SchemaMigrator(movieDao.getDataSource()).migrate() < 0) {
+                        System.err.println("[ERROR] No se pudo migrar el esquema de la base de datos; revise los mensajes anteriores.");
+                        return false;
+                    }
+                    // Sin claves de búsqueda, las búsquedas por título y director no encontrarían esas filas
+                    if (movieDao.refreshSearchKeys() < 0) {
+                        System.err.println("[ERROR] No se pudieron calcular las claves de búsqueda de la cartelera; revise los mensajes anteriores.");
+                        return false;
+                    }
+                    movieDao.purgeTombstones();
+                    movieDaos.add(movieDao);
+                }
+            }
+            // Mover en segundo plano las películas inactivas o antiguas a Cartelera_archivo
+            long archiveIntervalMinutes = DBConfig.getLong("magenta.archive.intervalMinutes", 60);
+            if (archiveIntervalMinutes > 0 && !movieDaos.isEmpty()) {
+                new ArchiveMover(movieDaos, archiveIntervalMinutes * 60_000L).start();
+            }
         } else {
-            System.err.println("[ERROR] No se pudo conectar a la base de datos");
+            System.err.println("[ERROR] No se pudo conectar a la base de datos (estado del circuito: " + DBConnection.getCircuitState() + ")");
             System.err.println("Verifique que:");
             System.err.println("- MySQL esté ejecutándose");
             System.err.println("- La base de datos 'Cine_DB' exista");
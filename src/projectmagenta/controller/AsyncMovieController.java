@@ -0,0 +1,230 @@
+package projectmagenta.controller;
+
+import projectmagenta.controller.MovieController.MovieResult;
+import projectmagenta.dao.BatchInsertResult;
+import projectmagenta.dao.DBConfig;
+import projectmagenta.dao.UpsertResult;
+import projectmagenta.model.Movie;
+import projectmagenta.model.MovieChanges;
+import projectmagenta.model.MovieCriteria;
+import projectmagenta.model.MoviePage;
+import projectmagenta.model.MovieStats;
+import projectmagenta.model.MovieSummary;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Variantes asíncronas de las operaciones de {@link MovieController}: cada una se
+ * ejecuta fuera del hilo que la llama (por ejemplo, el EDT de Swing) y devuelve un
+ * CompletableFuture con el mismo resultado que la operación síncrona.
+ * <p>
+ * Las operaciones se ejecutan en un ejecutor compartido con como mucho
+ * magenta.async.maxConcurrency operaciones simultáneas (por defecto, el tamaño
+ * máximo del pool de conexiones), así que nunca esperan más conexiones de las que
+ * el pool puede prestar. Si la JVM tiene hilos virtuales (Java 21 o posterior) se
+ * usa un hilo virtual por operación limitado por un semáforo; si no, un pool de
+ * hilos de plataforma de ese mismo tamaño.
+ * <p>
+ * Los resultados se completan en el hilo del ejecutor: las vistas deben volver al
+ * EDT con SwingUtilities.invokeLater antes de tocar sus componentes.
+ * @author Alex Fernandez
+ */
+public class AsyncMovieController {
+    private static final int MAX_CONCURRENCY = Math.max(1,
+            DBConfig.getInt("magenta.async.maxConcurrency", DBConfig.getInt("magenta.pool.maxSize", 10)));
+    private static final Executor SHARED_EXECUTOR = createExecutor(MAX_CONCURRENCY);
+
+    private final MovieController controller;
+    private final Executor executor;
+
+    /**
+     * Constructor. Usa un controlador con el repositorio compartido.
+     */
+    public AsyncMovieController() {
+        this(new MovieController());
+    }
+
+    /**
+     * @param controller controlador cuyas operaciones se ejecutan de forma asíncrona
+     */
+    public AsyncMovieController(MovieController controller) {
+        this(controller, SHARED_EXECUTOR);
+    }
+
+    /**
+     * Constructor con un ejecutor concreto (útil para pruebas).
+     * @param controller controlador cuyas operaciones se ejecutan de forma asíncrona
+     * @param executor ejecutor de las operaciones
+     */
+    AsyncMovieController(MovieController controller, Executor executor) {
+        this.controller = controller;
+        this.executor = executor;
+    }
+
+    /**
+     * Crea el ejecutor compartido: hilos virtuales limitados por un semáforo si la
+     * JVM los tiene, o un pool de hilos de plataforma del mismo tamaño.
+     * @param maxConcurrency operaciones simultáneas como máximo
+     * @return ejecutor de las operaciones asíncronas
+     */
+    static Executor createExecutor(int maxConcurrency) {
+        ExecutorService virtualThreads = newVirtualThreadPerTaskExecutor();
+        if (virtualThreads != null) {
+            Semaphore limiter = new Semaphore(maxConcurrency);
+            return task -> virtualThreads.execute(() -> {
+                limiter.acquireUninterruptibly();
+                try {
+                    task.run();
+                } finally {
+                    limiter.release();
+                }
+            });
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrency, maxConcurrency, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), task -> {
+                    Thread thread = new Thread(task, "magenta-async-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() por reflexión, para compilar y
+     * ejecutar también en Java 17.
+     * @return ejecutor de hilos virtuales, o null si la JVM no los tiene
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private <T> CompletableFuture<T> supply(Supplier<T> operation) {
+        return CompletableFuture.supplyAsync(operation, executor);
+    }
+
+    /**
+     * @return controlador síncrono de estas operaciones
+     */
+    public MovieController getController() {
+        return controller;
+    }
+
+    /** @see MovieController#addMovie(Movie) */
+    public CompletableFuture<MovieResult> addMovie(Movie movie) {
+        return supply(() -> controller.addMovie(movie));
+    }
+
+    /** @see MovieController#addMovies(List) */
+    public CompletableFuture<BatchInsertResult> addMovies(List<Movie> movies) {
+        return supply(() -> controller.addMovies(movies));
+    }
+
+    /** @see MovieController#upsertMovies(List) */
+    public CompletableFuture<UpsertResult> upsertMovies(List<Movie> movies) {
+        return supply(() -> controller.upsertMovies(movies));
+    }
+
+    /** @see MovieController#updateMovie(Movie) */
+    public CompletableFuture<MovieResult> updateMovie(Movie movie) {
+        return supply(() -> controller.updateMovie(movie));
+    }
+
+    /** @see MovieController#updateMovies(List) */
+    public CompletableFuture<MovieResult> updateMovies(List<Movie> movies) {
+        return supply(() -> controller.updateMovies(movies));
+    }
+
+    /** @see MovieController#deleteMovieById(int) */
+    public CompletableFuture<MovieResult> deleteMovieById(int id) {
+        return supply(() -> controller.deleteMovieById(id));
+    }
+
+    /** @see MovieController#deleteMovieById(int, long) */
+    public CompletableFuture<MovieResult> deleteMovieById(int id, long version) {
+        return supply(() -> controller.deleteMovieById(id, version));
+    }
+
+    /** @see MovieController#getMoviesChangedSince(long) */
+    public CompletableFuture<MovieChanges> getMoviesChangedSince(long since) {
+        return supply(() -> controller.getMoviesChangedSince(since));
+    }
+
+    /** @see MovieController#findMovieByTitle(String) */
+    public CompletableFuture<Movie> findMovieByTitle(String title) {
+        return supply(() -> controller.findMovieByTitle(title));
+    }
+
+    /** @see MovieController#findMovieById(int) */
+    public CompletableFuture<Movie> findMovieById(int id) {
+        return supply(() -> controller.findMovieById(id));
+    }
+
+    /** @see MovieController#findMoviesByPartialTitle(String) */
+    public CompletableFuture<List<Movie>> findMoviesByPartialTitle(String partialTitle) {
+        return supply(() -> controller.findMoviesByPartialTitle(partialTitle));
+    }
+
+    /** @see MovieController#suggestTitles(String, int) */
+    public CompletableFuture<List<String>> suggestTitles(String prefix, int limit) {
+        return supply(() -> controller.suggestTitles(prefix, limit));
+    }
+
+    /** @see MovieController#suggestDirectors(String, int) */
+    public CompletableFuture<List<String>> suggestDirectors(String prefix, int limit) {
+        return supply(() -> controller.suggestDirectors(prefix, limit));
+    }
+
+    /** @see MovieController#searchMovies(String) */
+    public CompletableFuture<List<Movie>> searchMovies(String text) {
+        return supply(() -> controller.searchMovies(text));
+    }
+
+    /** @see MovieController#searchMovieSummaries(String) */
+    public CompletableFuture<List<MovieSummary>> searchMovieSummaries(String text) {
+        return supply(() -> controller.searchMovieSummaries(text));
+    }
+
+    /** @see MovieController#findMovies(MovieCriteria) */
+    public CompletableFuture<List<Movie>> findMovies(MovieCriteria criteria) {
+        return supply(() -> controller.findMovies(criteria));
+    }
+
+    /** @see MovieController#getMovieStats() */
+    public CompletableFuture<MovieStats> getMovieStats() {
+        return supply(controller::getMovieStats);
+    }
+
+    /** @see MovieController#getAllMovies() */
+    public CompletableFuture<List<Movie>> getAllMovies() {
+        return supply(controller::getAllMovies);
+    }
+
+    /**
+     * La acción se llama en el hilo del ejecutor, no en el que inicia el recorrido.
+     * @see MovieController#streamAllMovies(Consumer)
+     */
+    public CompletableFuture<Long> streamAllMovies(Consumer<? super Movie> action) {
+        return supply(() -> controller.streamAllMovies(action));
+    }
+
+    /** @see MovieController#getMoviesPage(int, int) */
+    public CompletableFuture<MoviePage> getMoviesPage(int afterId, int limit) {
+        return supply(() -> controller.getMoviesPage(afterId, limit));
+    }
+}
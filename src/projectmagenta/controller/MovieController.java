@@ -1,26 +1,48 @@
 package projectmagenta.controller;
 
-import projectmagenta.dao.MovieDAO;
+import projectmagenta.dao.BatchInsertResult;
+import projectmagenta.dao.DBConfig;
+import projectmagenta.dao.MovieRepository;
+import projectmagenta.dao.MovieRepositoryFactory;
+import projectmagenta.dao.ShardedMovieRepository;
+import projectmagenta.dao.UpsertResult;
 import projectmagenta.model.Movie;
+import projectmagenta.model.MovieChanges;
+import projectmagenta.model.MovieCriteria;
+import projectmagenta.model.MoviePage;
+import projectmagenta.model.MovieStats;
+import projectmagenta.model.MovieSummary;
+import projectmagenta.search.SearchIndexes;
+import projectmagenta.search.TitleTrigramIndex;
 import java.util.List;
 
 /**
  * Controlador para la gestión de películas.
  * Implementa la lógica de negocio para agregar películas, validando los datos
- * antes de delegar la inserción al DAO. Forma parte del patrón MVC.
+ * antes de delegar la inserción al repositorio. Forma parte del patrón MVC.
  * @author Alex Fernandez
  */
 public class MovieController {
 
-
+    // Resultados máximos de la búsqueda de texto de los formularios
+    private static final int SEARCH_LIMIT = 50;
+    private static final boolean TITLE_INDEX_ENABLED = DBConfig.getBoolean("magenta.search.titleIndex", true);
     
-    private MovieDAO movieDao;
+    private MovieRepository movieDao;
     
     /**
-     * Constructor. Inicializa el DAO de películas.
+     * Constructor. Usa el repositorio compartido configurado al arrancar.
      */
     public MovieController() {
-        this.movieDao = new MovieDAO();
+        this(MovieRepositoryFactory.getRepository());
+    }
+
+    /**
+     * Constructor con un repositorio concreto (útil para pruebas y benchmarks).
+     * @param repository repositorio de películas a utilizar
+     */
+    public MovieController(MovieRepository repository) {
+        this.movieDao = repository;
     }
     
     /**
@@ -39,6 +61,7 @@ public class MovieController {
             boolean success = movieDao.addMovie(movie);
             
             if (success) {
+                indexAdded(movie);
                 return new MovieResult(true, "Película agregada exitosamente");
             } else {
                 return new MovieResult(false, "Error al guardar la película en la base de datos");
@@ -51,22 +74,110 @@ public class MovieController {
         }
     }
     
+    /**
+     * Agrega varias películas en una sola operación (por ejemplo, el catálogo de una
+     * nueva temporada). Las películas inválidas se informan sin abortar el resto.
+     * @param movies películas a agregar
+     * @return BatchInsertResult con los ids generados y las filas rechazadas
+     */
+    public BatchInsertResult addMovies(List<Movie> movies) {
+        if (movies == null || movies.isEmpty()) {
+            return new BatchInsertResult();
+        }
+        BatchInsertResult result = movieDao.addMovies(movies);
+        if (result.getInsertedCount() > 0) {
+            for (int i = 0; i < movies.size(); i++) {
+                if (!result.getFailures().containsKey(i)) {
+                    indexAdded(movies.get(i));
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Sincroniza la cartelera con una lista externa (por ejemplo, el catálogo de un
+     * distribuidor) por título, año y director: inserta las películas nuevas,
+     * actualiza las que cambiaron y no toca las demás.
+     * @param movies películas a sincronizar
+     * @return UpsertResult con las filas insertadas, actualizadas, sin cambios y rechazadas
+     */
+    public UpsertResult upsertMovies(List<Movie> movies) {
+        if (movies == null || movies.isEmpty()) {
+            return new UpsertResult();
+        }
+        UpsertResult result = movieDao.upsertMovies(movies);
+        for (int index : result.getInserted()) {
+            indexAdded(movies.get(index));
+        }
+        for (int index : result.getUpdated()) {
+            indexAdded(movies.get(index));
+        }
+        return result;
+    }
+    
     /**
      * Elimina una película por su id.
      * @param id identificador único de la película
      * @return MovieResult con el resultado de la operación
      */
     public MovieResult deleteMovieById(int id) {
+        return deleteMovieById(id, 0);
+    }
+
+    /**
+     * Elimina una película solo si nadie la modificó desde que se leyó.
+     * @param id identificador único de la película
+     * @param version versión leída (ver {@link Movie#getVersion()}); 0 para no comprobarla
+     * @return MovieResult con el resultado; en conflicto, {@link MovieResult#isConflict()} es true
+     */
+    public MovieResult deleteMovieById(int id, long version) {
         if (id <= 0) {
             return new MovieResult(false, "ID de película inválido para eliminar.");
         }
-        boolean success = movieDao.deleteMovieById(id);
+        boolean success = movieDao.deleteMovieById(id, version);
         if (success) {
+            indexRemoved(id);
             return new MovieResult(true, "Película eliminada exitosamente.");
-        } else {
-            return new MovieResult(false, "No se pudo eliminar la película en la base de datos.");
         }
+        MovieResult conflict = conflictResult(id, version);
+        return conflict != null ? conflict : new MovieResult(false, "No se pudo eliminar la película en la base de datos.");
+    }
+
+    /**
+     * Explica por qué falló una escritura con versión. Solo se consulta la fila
+     * cuando la escritura ya falló, así que las escrituras correctas no pagan la lectura.
+     * Los índices de búsqueda se corrigen con la fila actual para que la siguiente
+     * búsqueda devuelva la versión vigente.
+     * @return resultado de conflicto, o null si la fila conserva la versión (otro error)
+     */
+    private MovieResult conflictResult(int id, long version) {
+        if (version <= 0) {
+            return null;
+        }
+        Movie current = movieDao.findMovieById(id);
+        if (current == null) {
+            indexRemoved(id);
+            return new MovieResult(false, "Otro usuario eliminó la película mientras la tenía abierta.", true);
+        }
+        if (current.getVersion() != version) {
+            indexAdded(current);
+            return new MovieResult(false, "Otro usuario modificó la película mientras la tenía abierta. "
+                    + "Vuelva a buscarla para ver los datos actuales.", true);
+        }
+        return null;
+    }
+
+    /**
+     * Devuelve los cambios de la cartelera desde la marca de agua indicada, para
+     * refrescar las vistas sin recargar todas las películas.
+     * @param since marca de agua de la consulta anterior, o 0 para la cartelera completa
+     * @return películas agregadas o modificadas, ids eliminados y nueva marca de agua
+     */
+    public MovieChanges getMoviesChangedSince(long since) {
+        return movieDao.getMoviesChangedSince(since);
     }
+
     /**
      * Busca una película por su título exacto.
      * @param title Título de la película a buscar
@@ -89,6 +200,13 @@ public class MovieController {
 
     /**
      * Busca películas cuyos títulos contengan una cadena específica.
+     * Se responde con el índice de trigramas en memoria (ver {@link SearchIndexes}).
+     * La primera búsqueda empieza a cargarlo en segundo plano y, hasta que termina,
+     * la búsqueda va al repositorio; una vez cargado, antes de cada búsqueda se le
+     * aplican los cambios del repositorio (también los de otros clientes), así que
+     * no devuelve películas eliminadas ni versiones antiguas.
+     * Si el índice está desactivado (magenta.search.titleIndex=false), la búsqueda
+     * siempre va al repositorio.
      * @param partialTitle Cadena parcial del título a buscar
      * @return Lista de objetos Movie que coincidan con la búsqueda
      */
@@ -96,9 +214,135 @@ public class MovieController {
         if (partialTitle == null || partialTitle.trim().isEmpty()) {
             return new java.util.ArrayList<>();
         }
+        TitleTrigramIndex titles = TITLE_INDEX_ENABLED ? SearchIndexes.getTitleIndexOrLoadInBackground(movieDao) : null;
+        if (titles != null) {
+            return titles.search(partialTitle.trim());
+        }
         return movieDao.findMoviesByPartialTitle(partialTitle.trim());
     }
 
+    /**
+     * Sugerencias de títulos que empiezan por el texto escrito, para autocompletar
+     * mientras se escribe. No consulta el almacenamiento: si los índices de búsqueda
+     * aún no están cargados, empieza a cargarlos en segundo plano y devuelve una
+     * lista vacía.
+     * @param prefix texto escrito por el usuario
+     * @param limit número máximo de sugerencias
+     * @return títulos sugeridos en orden alfabético
+     */
+    public List<String> suggestTitles(String prefix, int limit) {
+        SearchIndexes indexes = SearchIndexes.getOrLoadInBackground(movieDao);
+        return indexes != null ? indexes.getTitleSuggestions().suggest(prefix, limit) : new java.util.ArrayList<>();
+    }
+
+    /**
+     * Sugerencias de directores que empiezan por el texto escrito (ver {@link #suggestTitles}).
+     * @param prefix texto escrito por el usuario
+     * @param limit número máximo de sugerencias
+     * @return directores sugeridos en orden alfabético
+     */
+    public List<String> suggestDirectors(String prefix, int limit) {
+        SearchIndexes indexes = SearchIndexes.getOrLoadInBackground(movieDao);
+        return indexes != null ? indexes.getDirectorSuggestions().suggest(prefix, limit) : new java.util.ArrayList<>();
+    }
+
+    /**
+     * Refleja en los índices de búsqueda (si están cargados o cargándose) una película agregada
+     * o modificada, e invalida las estadísticas en caché.
+     */
+    private void indexAdded(Movie movie) {
+        MovieStatsService.get(movieDao).invalidate();
+        SearchIndexes.movieSaved(movieDao, movie);
+    }
+
+    /**
+     * Quita de los índices de búsqueda (si están cargados o cargándose) una película eliminada
+     * e invalida las estadísticas en caché.
+     */
+    private void indexRemoved(int id) {
+        MovieStatsService.get(movieDao).invalidate();
+        SearchIndexes.movieDeleted(movieDao, id);
+    }
+
+    /**
+     * Búsqueda de texto en título y director, ordenada por relevancia y limitada
+     * a las primeras coincidencias.
+     * @param text texto a buscar
+     * @return Lista de películas encontradas, la más relevante primero
+     */
+    public List<Movie> searchMovies(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return new java.util.ArrayList<>();
+        }
+        return movieDao.searchMovies(text.trim(), SEARCH_LIMIT);
+    }
+
+    /**
+     * Búsqueda de texto para las listas de resultados de los formularios: solo
+     * trae id, título, año y director; la película completa se carga con
+     * {@link #findMovieById(int)} al seleccionar una entrada.
+     * @param text texto a buscar
+     * @return resúmenes de las películas encontradas, el más relevante primero
+     */
+    public List<MovieSummary> searchMovieSummaries(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return new java.util.ArrayList<>();
+        }
+        return movieDao.searchMovieSummaries(text.trim(), SEARCH_LIMIT);
+    }
+
+    /**
+     * Busca películas por género, director, fragmento de título y rangos de año y
+     * duración. El filtrado se resuelve en el almacenamiento, así que solo se
+     * transfieren las películas que cumplen los criterios.
+     * @param criteria criterios de búsqueda (null equivale a toda la cartelera)
+     * @return Lista de películas que cumplen los criterios
+     */
+    public List<Movie> findMovies(MovieCriteria criteria) {
+        return movieDao.findMovies(criteria != null ? criteria : new MovieCriteria());
+    }
+
+    /**
+     * Estadísticas de la cartelera (películas por género, década y duración, años
+     * extremos). Se guardan en caché hasta la siguiente escritura desde esta
+     * aplicación o hasta que caducan (ver {@link MovieStatsService}).
+     * @return estadísticas, o null si no se pudieron calcular
+     */
+    public MovieStats getMovieStats() {
+        return MovieStatsService.get(movieDao).getStats();
+    }
+
+    /**
+     * Obtiene todas las películas de la cartelera.
+     * @return Lista de películas ordenadas por ID ascendente
+     */
+    public List<Movie> getAllMovies() {
+        return movieDao.getAllMovies();
+    }
+
+    /**
+     * Recorre toda la cartelera película a película con memoria constante, para
+     * exportaciones y reconstrucción de cachés.
+     * @param action acción a aplicar a cada película
+     * @return número de películas recorridas, o -1 si el recorrido falló
+     */
+    public long streamAllMovies(java.util.function.Consumer<? super Movie> action) {
+        return movieDao.streamAllMovies(action);
+    }
+
+    /**
+     * Obtiene una página de la cartelera para vistas y exportaciones que recorren
+     * la tabla por partes. Para la primera página use afterId = 0 y para las
+     * siguientes el valor de MoviePage.getNextAfterId().
+     * @param afterId id de la última película de la página anterior
+     * @param limit tamaño de página (se ajusta al rango 1-1000)
+     * @return página de películas ordenadas por ID ascendente
+     */
+    public MoviePage getMoviesPage(int afterId, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, 1000));
+        return movieDao.getMoviesPage(Math.max(0, afterId), pageSize);
+    }
+
     /**
      * Actualiza los datos de una película existente.
      * @param movie Objeto Movie con los datos actualizados
@@ -109,29 +353,115 @@ public class MovieController {
             if (movie == null || movie.getId() <= 0) {
                 return new MovieResult(false, "Se requiere una película válida para actualizar.");
             }
+            int id = movie.getId();
+            long version = movie.getVersion();
             boolean success = movieDao.updateMovie(movie);
             if (success) {
+                if (movie.getId() != id) {
+                    // Con shards, cambiar la clave natural mueve la película a otro shard con otro id
+                    indexRemoved(id);
+                }
+                indexAdded(movie);
                 return new MovieResult(true, "Película actualizada exitosamente.");
-            } else {
-                return new MovieResult(false, "No se pudo actualizar la película en la base de datos.");
             }
+            MovieResult conflict = conflictResult(movie.getId(), version);
+            return conflict != null ? conflict : new MovieResult(false, "No se pudo actualizar la película en la base de datos.");
         } catch (IllegalArgumentException ex) {
             return new MovieResult(false, "Error de validación: " + ex.getMessage());
         } catch (Exception e) {
             return new MovieResult(false, "Error inesperado: " + e.getMessage());
         }
     }
+    /**
+     * Actualiza varias películas como una sola operación (por ejemplo, una edición
+     * masiva): se guardan todas o ninguna. Con la base de datos se usa una única
+     * conexión y un solo commit. Con la cartelera repartida en shards hay una
+     * transacción por shard: un conflicto o error las deshace todas, pero se
+     * confirman una tras otra, así que si falla la confirmación de un shard después
+     * de confirmarse otro los cambios quedan a medias y el mensaje del resultado lo indica.
+     * @param movies películas con los datos actualizados (con id y, opcionalmente, versión)
+     * @return MovieResult con el resultado; si una película cambió desde que se leyó,
+     *         {@link MovieResult#isConflict()} es true y no se guarda ninguna
+     */
+    public MovieResult updateMovies(List<Movie> movies) {
+        if (movies == null || movies.isEmpty()) {
+            return new MovieResult(false, "No hay películas para actualizar.");
+        }
+        int[] ids = new int[movies.size()];
+        long[] versions = new long[movies.size()];
+        for (int i = 0; i < movies.size(); i++) {
+            Movie movie = movies.get(i);
+            if (movie == null || movie.getId() <= 0) {
+                return new MovieResult(false, "Se requiere una película válida para actualizar (posición " + i + ").");
+            }
+            ids[i] = movie.getId();
+            versions[i] = movie.getVersion();
+        }
+        int[] failed = { -1 };
+        boolean[] allUpdated = { false };
+        boolean committed;
+        try {
+            committed = movieDao.runInTransaction(() -> {
+                for (int i = 0; i < movies.size(); i++) {
+                    if (!movieDao.updateMovie(movies.get(i))) {
+                        failed[0] = i;
+                        return false;
+                    }
+                }
+                allUpdated[0] = true;
+                return true;
+            });
+        } catch (IllegalArgumentException ex) {
+            committed = false;
+        }
+        if (committed) {
+            for (int i = 0; i < movies.size(); i++) {
+                if (movies.get(i).getId() != ids[i]) {
+                    indexRemoved(ids[i]);
+                }
+                indexAdded(movies.get(i));
+            }
+            return new MovieResult(true, "Se actualizaron " + movies.size() + " película(s) exitosamente.");
+        }
+        // La transacción se deshizo: las películas conservan el id y la versión leídos
+        for (int i = 0; i < movies.size(); i++) {
+            movies.get(i).setId(ids[i]);
+            movies.get(i).setVersion(versions[i]);
+        }
+        if (failed[0] >= 0) {
+            Movie movie = movies.get(failed[0]);
+            MovieResult conflict = conflictResult(movie.getId(), versions[failed[0]]);
+            if (conflict != null) {
+                return new MovieResult(false, "No se actualizó ninguna película. \"" + movie.getTitle() + "\": "
+                        + conflict.getMessage(), true);
+            }
+            return new MovieResult(false, "No se actualizó ninguna película: no se pudo guardar \"" + movie.getTitle() + "\".");
+        }
+        if (allUpdated[0] && movieDao instanceof ShardedMovieRepository
+                && ((ShardedMovieRepository) movieDao).getShardCount() > 1) {
+            return new MovieResult(false, "No se pudo confirmar la actualización en todos los shards: algunas películas "
+                    + "pueden haberse guardado. Vuelva a buscarlas antes de reintentar.");
+        }
+        return new MovieResult(false, "No se actualizó ninguna película: error al guardar en la base de datos.");
+    }
+
     /**
      * Clase interna para representar el resultado de operaciones con películas.
-     * Incluye si fue exitoso y un mensaje asociado.
+     * Incluye si fue exitoso, un mensaje asociado y si falló por un cambio concurrente.
      */
     public static class MovieResult {
         private boolean success;
         private String message;
+        private boolean conflict;
         
         public MovieResult(boolean success, String message) {
+            this(success, message, false);
+        }
+        
+        public MovieResult(boolean success, String message, boolean conflict) {
             this.success = success;
             this.message = message;
+            this.conflict = conflict;
         }
         
         public boolean isSuccess() {
@@ -141,5 +471,12 @@ public class MovieController {
         public String getMessage() {
             return message;
         }
+        
+        /**
+         * @return true si la película cambió o se eliminó desde que se leyó
+         */
+        public boolean isConflict() {
+            return conflict;
+        }
     }
 }
\ No newline at end of file
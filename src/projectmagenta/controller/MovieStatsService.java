@@ -0,0 +1,70 @@
+package projectmagenta.controller;
+
+import projectmagenta.dao.DBConfig;
+import projectmagenta.dao.MovieRepository;
+import projectmagenta.model.MovieStats;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Caché de las estadísticas de la cartelera de un repositorio. Se comparte entre
+ * todos los controladores del mismo repositorio, que la invalidan al agregar,
+ * modificar o eliminar películas; los cambios de otros clientes se ven al caducar
+ * (magenta.stats.cacheTtlMs).
+ * @author Alex Fernandez
+ */
+public class MovieStatsService {
+    private static final long CACHE_TTL_MS = DBConfig.getLong("magenta.stats.cacheTtlMs", 60000);
+    private static final Map<MovieRepository, MovieStatsService> SERVICES = new WeakHashMap<>();
+
+    private final MovieRepository repository;
+    private MovieStats cached;
+    private long loadedAt;
+    // Cambia con cada invalidación: un cálculo que empezó antes no se guarda
+    private long generation;
+
+    private MovieStatsService(MovieRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * @param repository repositorio de películas
+     * @return servicio de estadísticas compartido del repositorio
+     */
+    public static MovieStatsService get(MovieRepository repository) {
+        synchronized (SERVICES) {
+            return SERVICES.computeIfAbsent(repository, MovieStatsService::new);
+        }
+    }
+
+    /**
+     * Devuelve las estadísticas en caché o las calcula en el almacenamiento si
+     * caducaron o se invalidaron. El cálculo se hace sin bloquear a los demás hilos.
+     * @return estadísticas de la cartelera, o null si no se pudieron calcular
+     */
+    public MovieStats getStats() {
+        long startedGeneration;
+        synchronized (this) {
+            if (cached != null && System.currentTimeMillis() - loadedAt < CACHE_TTL_MS) {
+                return cached;
+            }
+            startedGeneration = generation;
+        }
+        MovieStats stats = repository.getMovieStats();
+        synchronized (this) {
+            if (stats != null && startedGeneration == generation) {
+                cached = stats;
+                loadedAt = System.currentTimeMillis();
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Descarta las estadísticas en caché tras una escritura.
+     */
+    public synchronized void invalidate() {
+        cached = null;
+        generation++;
+    }
+}
@@ -0,0 +1,74 @@
+package projectmagenta.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tarea en segundo plano que mueve periódicamente a Cartelera_archivo las películas
+ * inactivas o antiguas ({@link MovieDAO#archiveColdMovies()}), para que la tabla que
+ * leen los refrescos y los filtros solo contenga la cartelera vigente.
+ * Con shards se archiva cada base de datos.
+ * @author Alex Fernandez
+ */
+public class ArchiveMover {
+    private final List<MovieDAO> databases;
+    private final long intervalMillis;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param databases DAO de cada base de datos a archivar
+     * @param intervalMillis espera entre pasadas
+     */
+    public ArchiveMover(List<MovieDAO> databases, long intervalMillis) {
+        this.databases = Collections.unmodifiableList(new ArrayList<>(databases));
+        this.intervalMillis = intervalMillis;
+    }
+
+    /**
+     * Programa las pasadas: la primera de inmediato y luego cada intervalo. Llamar
+     * de nuevo no tiene efecto.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "magenta-archive-mover");
+            t.setDaemon(true);
+            // El archivado no debe competir con la interfaz
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::runOnce, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Archiva en todas las bases de datos. Un error no detiene las pasadas siguientes.
+     * @return número de películas archivadas en esta pasada
+     */
+    public int runOnce() {
+        int archived = 0;
+        for (MovieDAO database : databases) {
+            try {
+                archived += Math.max(0, database.archiveColdMovies());
+            } catch (RuntimeException e) {
+                System.out.println("[ERROR] Falló el archivado de películas.\nDetalles técnicos: " + e.getMessage());
+            }
+        }
+        return archived;
+    }
+
+    /**
+     * Detiene las pasadas programadas.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package projectmagenta.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Resultado de una inserción por lotes de películas.
+ * Incluye los ids generados para las filas insertadas y, por cada fila rechazada,
+ * su posición en la lista de entrada junto con el motivo.
+ * @author Alex Fernandez
+ */
+public class BatchInsertResult {
+    private final List<Integer> generatedIds = new ArrayList<>();
+    private final Map<Integer, String> failures = new TreeMap<>();
+
+    /**
+     * Registra una fila insertada.
+     * @param id id generado por el almacenamiento
+     */
+    public void addGeneratedId(int id) {
+        generatedIds.add(id);
+    }
+
+    /**
+     * Registra una fila rechazada.
+     * @param index posición de la fila en la lista de entrada
+     * @param message motivo del rechazo
+     */
+    public void addFailure(int index, String message) {
+        failures.put(index, message);
+    }
+
+    /**
+     * Descarta los ids registrados (por ejemplo, tras deshacer la transacción).
+     */
+    public void clearGeneratedIds() {
+        generatedIds.clear();
+    }
+
+    /**
+     * @return ids generados, en el orden de la lista de entrada
+     */
+    public List<Integer> getGeneratedIds() {
+        return Collections.unmodifiableList(generatedIds);
+    }
+
+    /**
+     * @return filas rechazadas: posición en la lista de entrada y motivo
+     */
+    public Map<Integer, String> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * @return número de películas insertadas
+     */
+    public int getInsertedCount() {
+        return generatedIds.size();
+    }
+
+    /**
+     * @return número de películas rechazadas
+     */
+    public int getFailedCount() {
+        return failures.size();
+    }
+
+    /**
+     * @return true si todas las películas se insertaron
+     */
+    public boolean isSuccess() {
+        return failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchInsertResult{insertadas=" + getInsertedCount() +
+                ", rechazadas=" + getFailedCount() + '}';
+    }
+}
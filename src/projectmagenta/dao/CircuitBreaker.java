@@ -0,0 +1,135 @@
+package projectmagenta.dao;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cortocircuito para el acceso a la base de datos.
+ * Tras N fallos consecutivos de conexión el circuito se abre y las peticiones fallan
+ * de inmediato en lugar de esperar el timeout del driver. Mientras está abierto, un
+ * hilo en segundo plano sondea la base de datos con espera exponencial y cierra el
+ * circuito en cuanto el sondeo tiene éxito.
+ * @author Alex Fernandez
+ */
+public class CircuitBreaker {
+
+    /**
+     * Estados posibles del circuito.
+     */
+    public enum State {
+        /** Funcionamiento normal: las peticiones llegan a la base de datos. */
+        CLOSED,
+        /** Base de datos no disponible: las peticiones fallan de inmediato. */
+        OPEN,
+        /** Un sondeo en segundo plano está comprobando si la base de datos volvió. */
+        HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final Callable<Boolean> probe;
+    private final ScheduledExecutorService scheduler;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long currentBackoffMillis;
+
+    /**
+     * @param name nombre del recurso protegido (para los mensajes de consola)
+     * @param failureThreshold fallos consecutivos que abren el circuito
+     * @param baseBackoffMillis espera antes del primer sondeo
+     * @param maxBackoffMillis espera máxima entre sondeos
+     * @param probe comprobación de disponibilidad; true si la base de datos responde
+     */
+    public CircuitBreaker(String name, int failureThreshold, long baseBackoffMillis, long maxBackoffMillis,
+                          Callable<Boolean> probe) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = Math.max(baseBackoffMillis, maxBackoffMillis);
+        this.probe = probe;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "magenta-circuit-probe-" + name);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Indica si una petición puede intentar conectarse. Es una lectura de estado
+     * sin E/S, por lo que con el circuito abierto responde en microsegundos.
+     * @return true solo si el circuito está cerrado
+     */
+    public synchronized boolean allowRequest() {
+        return state == State.CLOSED;
+    }
+
+    /**
+     * Registra una conexión exitosa y reinicia el contador de fallos.
+     */
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Registra un fallo de conexión; al alcanzar el umbral abre el circuito y
+     * programa el primer sondeo.
+     */
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            currentBackoffMillis = baseBackoffMillis;
+            System.out.println("[ADVERTENCIA] Circuito '" + name + "' abierto tras " + consecutiveFailures
+                    + " fallo(s) consecutivo(s). Próximo sondeo en " + currentBackoffMillis + " ms.");
+            scheduleProbe();
+        }
+    }
+
+    /**
+     * @return estado actual del circuito
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Detiene el hilo de sondeo.
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void scheduleProbe() {
+        if (!scheduler.isShutdown()) {
+            scheduler.schedule(this::runProbe, currentBackoffMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void runProbe() {
+        synchronized (this) {
+            state = State.HALF_OPEN;
+        }
+        boolean healthy;
+        try {
+            healthy = Boolean.TRUE.equals(probe.call());
+        } catch (Exception e) {
+            healthy = false;
+        }
+        synchronized (this) {
+            if (healthy) {
+                state = State.CLOSED;
+                consecutiveFailures = 0;
+                System.out.println("[INFO] Circuito '" + name + "' cerrado: la base de datos vuelve a responder.");
+            } else {
+                state = State.OPEN;
+                currentBackoffMillis = Math.min(currentBackoffMillis * 2, maxBackoffMillis);
+                scheduleProbe();
+            }
+        }
+    }
+}
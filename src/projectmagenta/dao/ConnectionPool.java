@@ -0,0 +1,362 @@
+package projectmagenta.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pool acotado y seguro para hilos de conexiones JDBC.
+ * Reutiliza conexiones físicas para evitar el handshake TCP y de autenticación
+ * de MySQL en cada operación del DAO. Las conexiones prestadas son proxies:
+ * llamar a close() las devuelve al pool en lugar de cerrarlas. Cada conexión física
+ * conserva además una {@link StatementCache} con sus sentencias preparadas.
+ * @author Alex Fernandez
+ */
+public class ConnectionPool {
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+    private final long validationIntervalMillis;
+    private final int statementCacheSize;
+
+    // LIFO: la conexión devuelta más recientemente es la primera en reutilizarse
+    private final LinkedBlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicLong statementCacheHits = new AtomicLong();
+    private final AtomicLong statementCacheMisses = new AtomicLong();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    /**
+     * Crea un pool de conexiones. No abre ninguna conexión hasta el primer préstamo
+     * o la primera pasada del hilo de mantenimiento.
+     * @param url URL JDBC de la base de datos
+     * @param user usuario de la base de datos
+     * @param password contraseña del usuario
+     * @param minSize número mínimo de conexiones que se mantienen abiertas
+     * @param maxSize número máximo de conexiones abiertas simultáneamente
+     * @param idleTimeoutMillis tiempo tras el cual una conexión ociosa sobrante se cierra
+     * @param borrowTimeoutMillis tiempo máximo de espera por una conexión libre
+     * @param validationIntervalMillis tiempo de inactividad a partir del cual se valida la conexión antes de prestarla
+     * @param statementCacheSize sentencias preparadas retenidas por conexión (0 desactiva la caché)
+     */
+    public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+                          long idleTimeoutMillis, long borrowTimeoutMillis, long validationIntervalMillis,
+                          int statementCacheSize) {
+        if (maxSize <= 0 || minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Tamaños de pool inválidos: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "magenta-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::maintain, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Presta una conexión del pool, creando una nueva si no hay ociosas y no se ha
+     * alcanzado el máximo. Las conexiones ociosas durante más del intervalo de
+     * validación se comprueban con isValid() antes de entregarse.
+     * @return proxy de Connection cuyo close() devuelve la conexión al pool
+     * @throws SQLException si el pool está cerrado, se agota el tiempo de espera o falla la conexión
+     */
+    public Connection borrow() throws SQLException {
+        return borrow(null);
+    }
+
+    /**
+     * Presta una conexión del pool, como {@link #borrow()}, y ejecuta una acción
+     * cuando se devuelve.
+     * @param onReturn acción que se ejecuta tras devolver la conexión al pool, o null
+     * @return proxy de Connection cuyo close() devuelve la conexión al pool
+     * @throws SQLException si el pool está cerrado, se agota el tiempo de espera o falla la conexión
+     */
+    public Connection borrow(Runnable onReturn) throws SQLException {
+        if (closed) {
+            throw new SQLException("El pool de conexiones está cerrado");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Tiempo de espera agotado (" + borrowTimeoutMillis
+                        + " ms) esperando una conexión libre del pool");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido mientras se esperaba una conexión del pool", e);
+        }
+        try {
+            PooledEntry entry;
+            while ((entry = idle.pollFirst()) != null) {
+                if (isUsable(entry)) {
+                    return lend(entry, onReturn);
+                }
+                discard(entry);
+            }
+            return lend(createEntry(), onReturn);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Cierra todas las conexiones ociosas y detiene el hilo de mantenimiento.
+     * Las conexiones prestadas se cierran físicamente cuando se devuelven.
+     */
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            discard(entry);
+        }
+    }
+
+    /**
+     * @return número de conexiones físicas abiertas (ociosas más prestadas)
+     */
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    /**
+     * @return número de conexiones prestadas en este momento
+     */
+    public int getActiveConnections() {
+        return activeConnections.get();
+    }
+
+    /**
+     * @return número de conexiones ociosas disponibles para préstamo inmediato
+     */
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    /**
+     * @return número de prepareStatement resueltos desde la caché de sentencias
+     */
+    public long getStatementCacheHits() {
+        return statementCacheHits.get();
+    }
+
+    /**
+     * @return número de prepareStatement que tuvieron que preparar una sentencia nueva
+     */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionPool{total=" + getTotalConnections() +
+                ", activas=" + getActiveConnections() +
+                ", ociosas=" + getIdleConnections() +
+                ", min=" + minSize +
+                ", max=" + maxSize +
+                ", cacheHits=" + getStatementCacheHits() +
+                ", cacheMisses=" + getStatementCacheMisses() + '}';
+    }
+
+    private PooledEntry createEntry() throws SQLException {
+        Connection raw = DriverManager.getConnection(url, user, password);
+        totalConnections.incrementAndGet();
+        System.out.println("Conexión exitosa a la base de datos Cine_DB (" + this + ")");
+        return new PooledEntry(raw, new StatementCache(raw, statementCacheSize,
+                statementCacheHits, statementCacheMisses));
+    }
+
+    private boolean isUsable(PooledEntry entry) {
+        try {
+            if (entry.raw.isClosed()) {
+                return false;
+            }
+            long idleFor = System.currentTimeMillis() - entry.lastUsed;
+            return idleFor < validationIntervalMillis || entry.raw.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection lend(PooledEntry entry, Runnable onReturn) {
+        activeConnections.incrementAndGet();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new PooledConnectionHandler(entry, onReturn));
+    }
+
+    /**
+     * Devuelve una conexión al pool, restaurando autocommit si quedó una transacción abierta.
+     */
+    private void release(PooledEntry entry) {
+        activeConnections.decrementAndGet();
+        try {
+            if (closed || entry.raw.isClosed()) {
+                discard(entry);
+            } else {
+                if (!entry.raw.getAutoCommit()) {
+                    entry.raw.rollback();
+                    entry.raw.setAutoCommit(true);
+                }
+                entry.raw.clearWarnings();
+                entry.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(entry);
+            }
+        } catch (SQLException e) {
+            discard(entry);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledEntry entry) {
+        totalConnections.decrementAndGet();
+        entry.statements.closeAll();
+        try {
+            entry.raw.close();
+        } catch (SQLException e) {
+            // La conexión ya no es utilizable; no hay nada más que hacer
+        }
+    }
+
+    /**
+     * Tarea periódica: cierra conexiones ociosas que superan el tiempo de inactividad
+     * (sin bajar del mínimo) y repone conexiones hasta alcanzar el mínimo.
+     */
+    private void maintain() {
+        long now = System.currentTimeMillis();
+        for (PooledEntry entry : idle) {
+            if (totalConnections.get() <= minSize) {
+                break;
+            }
+            if (now - entry.lastUsed > idleTimeoutMillis && idle.remove(entry)) {
+                discard(entry);
+            }
+        }
+        while (!closed && totalConnections.get() < minSize && permits.tryAcquire()) {
+            try {
+                idle.offerLast(createEntry());
+            } catch (SQLException e) {
+                break;
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Conexión física junto con su caché de sentencias y el instante de su último uso.
+     */
+    private static class PooledEntry {
+        private final Connection raw;
+        private final StatementCache statements;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        PooledEntry(Connection raw, StatementCache statements) {
+            this.raw = raw;
+            this.statements = statements;
+        }
+    }
+
+    /**
+     * Intercepta close(), isClosed() y prepareStatement() del proxy; el resto de llamadas
+     * se delegan en la conexión física. Las llamadas se serializan con un ReentrantLock
+     * y no con un monitor: un hilo virtual que espera la respuesta de MySQL dentro de
+     * un bloque synchronized bloquearía también su hilo portador.
+     */
+    private class PooledConnectionHandler implements InvocationHandler {
+        private final PooledEntry entry;
+        private final Runnable onReturn;
+        private final ReentrantLock lock = new ReentrantLock();
+        private boolean returned;
+
+        PooledConnectionHandler(PooledEntry entry, Runnable onReturn) {
+            this.entry = entry;
+            this.onReturn = onReturn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            lock.lock();
+            try {
+                return invokeLocked(proxy, method, args);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Object invokeLocked(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(entry);
+                        if (onReturn != null) {
+                            onReturn.run();
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || entry.raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + entry.raw + "]";
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("La conexión ya fue devuelta al pool");
+            }
+            if ("prepareStatement".equals(method.getName())) {
+                Class<?>[] types = method.getParameterTypes();
+                if (types.length == 1) {
+                    return entry.statements.prepare((String) args[0], Statement.NO_GENERATED_KEYS);
+                }
+                if (types.length == 2 && types[1] == int.class) {
+                    return entry.statements.prepare((String) args[0], (Integer) args[1]);
+                }
+            }
+            try {
+                return method.invoke(entry.raw, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package projectmagenta.dao;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Configuración externa de la capa de datos.
+ * Lee el archivo indicado por {@code -Dmagenta.config} (por defecto {@code db.properties}
+ * en el directorio de trabajo, si existe). Las propiedades del sistema de la JVM tienen
+ * prioridad sobre las del archivo, de modo que cualquier clave se puede sobrescribir con
+ * {@code -Dclave=valor}.
+ * @author Alex Fernandez
+ */
+public class DBConfig {
+    private static final String CONFIG_FILE_PROPERTY = "magenta.config";
+    private static final String DEFAULT_CONFIG_FILE = "db.properties";
+
+    private static Properties fileProperties;
+
+    private DBConfig() {
+    }
+
+    /**
+     * Obtiene una propiedad de texto.
+     * @param key clave de la propiedad
+     * @param defaultValue valor si no está definida
+     * @return valor configurado o el valor por defecto
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = load().getProperty(key);
+        }
+        return value != null ? value.trim() : defaultValue;
+    }
+
+    /**
+     * Obtiene una propiedad entera.
+     * @param key clave de la propiedad
+     * @param defaultValue valor si no está definida o no es un número
+     * @return valor configurado o el valor por defecto
+     */
+    public static int getInt(String key, int defaultValue) {
+        try {
+            return Integer.parseInt(getString(key, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            System.out.println("[ADVERTENCIA] Valor no numérico para '" + key + "', se usa " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Obtiene una propiedad entera larga.
+     * @param key clave de la propiedad
+     * @param defaultValue valor si no está definida o no es un número
+     * @return valor configurado o el valor por defecto
+     */
+    public static long getLong(String key, long defaultValue) {
+        try {
+            return Long.parseLong(getString(key, String.valueOf(defaultValue)));
+        } catch (NumberFormatException e) {
+            System.out.println("[ADVERTENCIA] Valor no numérico para '" + key + "', se usa " + defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Obtiene una propiedad booleana.
+     * @param key clave de la propiedad
+     * @param defaultValue valor si no está definida
+     * @return valor configurado o el valor por defecto
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        return Boolean.parseBoolean(getString(key, String.valueOf(defaultValue)));
+    }
+
+    /**
+     * Obtiene una lista separada por comas, ignorando los elementos vacíos.
+     * @param key clave de la propiedad
+     * @return lista de valores (vacía si la propiedad no está definida)
+     */
+    public static List<String> getList(String key) {
+        List<String> values = new ArrayList<>();
+        String raw = getString(key, "");
+        for (String part : raw.split(",")) {
+            if (!part.trim().isEmpty()) {
+                values.add(part.trim());
+            }
+        }
+        return values;
+    }
+
+    private static synchronized Properties load() {
+        if (fileProperties == null) {
+            fileProperties = new Properties();
+            String path = System.getProperty(CONFIG_FILE_PROPERTY, DEFAULT_CONFIG_FILE);
+            try (InputStream in = new FileInputStream(path)) {
+                fileProperties.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+                System.out.println("[INFO] Configuración cargada desde " + path);
+            } catch (IOException e) {
+                if (System.getProperty(CONFIG_FILE_PROPERTY) != null) {
+                    System.out.println("[ADVERTENCIA] No se pudo leer el archivo de configuración " + path + ".\nDetalles técnicos: " + e.getMessage());
+                }
+            }
+        }
+        return fileProperties;
+    }
+}
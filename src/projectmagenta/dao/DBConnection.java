@@ -7,47 +7,198 @@ package projectmagenta.dao;
 /**
  * Clase utilitaria para gestionar la conexión a la base de datos MySQL Cine_DB.
  * Proporciona métodos estáticos para obtener, cerrar y probar la conexión.
+ * Las conexiones se obtienen de un {@link ConnectionPool} compartido; cerrar una
+ * conexión la devuelve al pool. La configuración se lee con {@link DBConfig}
+ * (archivo {@code db.properties} o propiedades del sistema como
+ * {@code -Dmagenta.pool.maxSize=20}).
+ * Cada instancia está protegida por un {@link CircuitBreaker}: si MySQL no responde,
+ * las peticiones fallan de inmediato hasta que un sondeo en segundo plano detecta que volvió.
+ * Las escrituras van siempre a la primaria; las lecturas pueden repartirse entre
+ * réplicas configuradas en {@code magenta.db.replicas}. Las bases de datos de
+ * {@code magenta.db.shards} tienen cada una su propio pool y cortocircuito y las usa
+ * {@link ShardedMovieRepository}.
  * @author Alex Fernandez
  */
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DBConnection {
-    private static final String URL = "jdbc:mysql://localhost:3306/Cine_DB";
-    private static final String USER = "root";
-    private static final String PASSWORD = "Admin";
+    private static final String URL = DBConfig.getString("magenta.db.url", "jdbc:mysql://localhost:3306/Cine_DB");
+    private static final String USER = DBConfig.getString("magenta.db.user", "root");
+    private static final String PASSWORD = DBConfig.getString("magenta.db.password", "Admin");
+    private static final List<String> REPLICA_URLS = DBConfig.getList("magenta.db.replicas");
+    private static final String REPLICA_USER = DBConfig.getString("magenta.db.replicaUser", USER);
+    private static final String REPLICA_PASSWORD = DBConfig.getString("magenta.db.replicaPassword", PASSWORD);
+    // Shards adicionales de Cartelera (la primaria es el shard 0), con las credenciales de la primaria
+    private static final List<String> SHARD_URLS = DBConfig.getList("magenta.db.shards");
+
+    private static final int CONNECT_TIMEOUT_MS = DBConfig.getInt("magenta.db.connectTimeoutMs", 3_000);
+    private static final int SOCKET_TIMEOUT_MS = DBConfig.getInt("magenta.db.socketTimeoutMs", 30_000);
+    // useServerPrepStmts: las sentencias se preparan en el servidor y StatementCache las reutiliza
+    // rewriteBatchedStatements: executeBatch() envía los INSERT del lote como una sola sentencia multi-fila
+    private static final String URL_OPTIONS = "useServerPrepStmts=true&rewriteBatchedStatements=true"
+            + "&connectTimeout=" + CONNECT_TIMEOUT_MS + "&socketTimeout=" + SOCKET_TIMEOUT_MS;
+
+    private static final int POOL_MIN_SIZE = DBConfig.getInt("magenta.pool.minSize", 1);
+    private static final int POOL_MAX_SIZE = DBConfig.getInt("magenta.pool.maxSize", 10);
+    private static final long POOL_IDLE_TIMEOUT_MS = DBConfig.getLong("magenta.pool.idleTimeoutMs", 300_000L);
+    private static final long POOL_BORROW_TIMEOUT_MS = DBConfig.getLong("magenta.pool.borrowTimeoutMs", 5_000L);
+    private static final long POOL_VALIDATION_INTERVAL_MS = DBConfig.getLong("magenta.pool.validationIntervalMs", 5_000L);
+    private static final int STATEMENT_CACHE_SIZE = DBConfig.getInt("magenta.pool.statementCacheSize", 32);
+
+    private static final int BREAKER_FAILURE_THRESHOLD = DBConfig.getInt("magenta.breaker.failureThreshold", 3);
+    private static final long BREAKER_BASE_BACKOFF_MS = DBConfig.getLong("magenta.breaker.baseBackoffMs", 1_000L);
+    private static final long BREAKER_MAX_BACKOFF_MS = DBConfig.getLong("magenta.breaker.maxBackoffMs", 60_000L);
+
+    // round-robin o least-loaded
+    private static final String READ_ROUTING = DBConfig.getString("magenta.db.readRouting", "round-robin");
+    // Tras una escritura, las lecturas van a la primaria durante esta ventana (debe superar el retraso de replicación)
+    private static final long READ_YOUR_WRITES_MS = DBConfig.getLong("magenta.db.readYourWritesMs", 5_000L);
+
+    private static PooledDataSource primary;
+    private static List<PooledDataSource> replicas = new ArrayList<>();
+    private static List<PooledDataSource> shards = new ArrayList<>();
+    private static boolean driverLoaded;
+    private static final AtomicInteger nextReplica = new AtomicInteger();
+    private static volatile long lastWriteMillis;
 
     /**
-     * Obtiene una conexión a la base de datos Cine_DB usando JDBC.
-     * Carga el driver de MySQL si es necesario.
+     * Obtiene una conexión a la base de datos primaria Cine_DB, que admite escrituras.
+     * Carga el driver de MySQL la primera vez que se invoca. Si el circuito está
+     * abierto devuelve null de inmediato, sin intentar conectar.
+     * Las lecturas posteriores se dirigen también a la primaria durante
+     * {@code magenta.db.readYourWritesMs} contados desde que la conexión se devuelve
+     * (tras el commit), para que vean lo que se acaba de escribir aunque la
+     * transacción haya sido larga.
+     * Dentro de una {@link UnitOfWork} devuelve la conexión de la unidad.
      * @return una instancia de Connection si es exitosa, null si falla
      */
     public static Connection getConnection() {
-        try {
-            // Cargar el driver de MySQL
-            Class.forName("com.mysql.cj.jdbc.Driver");
-            Connection conn = DriverManager.getConnection(URL, USER, PASSWORD);
-            System.out.println("Conexión exitosa a la base de datos Cine_DB");
-            return conn;
-        } catch (SQLException e) {
-            System.out.println("[ERROR] No se pudo conectar a la base de datos. Por favor, verifica que el servidor esté activo y que los datos de acceso sean correctos.\nDetalles técnicos: " + e.getMessage());
+        Connection bound = UnitOfWork.currentConnection(null);
+        if (bound != null) {
+            return bound;
+        }
+        PooledDataSource source = getPrimary();
+        if (source == null) {
             return null;
-        } catch (ClassNotFoundException e) {
-            System.out.println("[ERROR] No se encontró el controlador de MySQL. Por favor, asegúrate de que el conector JDBC esté instalado.\nDetalles técnicos: " + e.getMessage());
+        }
+        return source.getConnection(DBConnection::markWrite);
+    }
+
+    /**
+     * Obtiene una conexión para consultas de solo lectura. Si hay réplicas configuradas
+     * y disponibles se elige una por turno rotatorio o por menor carga; si no, o si hubo
+     * una escritura reciente, se usa la primaria. Dentro de una {@link UnitOfWork}
+     * devuelve la conexión de la unidad, para leer lo que la transacción ya escribió.
+     * @return una instancia de Connection si es exitosa, null si falla
+     */
+    public static Connection getReadConnection() {
+        Connection bound = UnitOfWork.currentConnection(null);
+        if (bound != null) {
+            return bound;
+        }
+        PooledDataSource source = getPrimary();
+        if (source == null) {
             return null;
         }
+        boolean recentWrite = System.currentTimeMillis() - lastWriteMillis < READ_YOUR_WRITES_MS;
+        if (!recentWrite) {
+            PooledDataSource replica = chooseReplica();
+            if (replica != null) {
+                Connection conn = replica.getConnection();
+                if (conn != null) {
+                    return conn;
+                }
+            }
+        }
+        return source.getConnection();
+    }
+
+    /**
+     * Devuelve el pool de la primaria, creándolo en el primer uso.
+     * @return pool de conexiones de Cine_DB
+     * @throws ClassNotFoundException si el driver de MySQL no está en el classpath
+     */
+    public static synchronized ConnectionPool getPool() throws ClassNotFoundException {
+        init();
+        return primary.getPool();
+    }
+
+    /**
+     * Estado del circuito que protege la base de datos primaria. Antes del primer uso se
+     * considera cerrado.
+     * @return estado actual del circuito
+     */
+    public static synchronized CircuitBreaker.State getCircuitState() {
+        return primary != null ? primary.getState() : CircuitBreaker.State.CLOSED;
+    }
+
+    /**
+     * Indica si las peticiones a la base de datos se están atendiendo o fallan de inmediato.
+     * @return true si el circuito de la primaria está cerrado
+     */
+    public static boolean isAvailable() {
+        return getCircuitState() == CircuitBreaker.State.CLOSED;
+    }
+
+    /**
+     * @return número de réplicas de lectura configuradas
+     */
+    public static int getReplicaCount() {
+        return REPLICA_URLS.size();
+    }
+
+    /**
+     * @return número de shards adicionales configurados en magenta.db.shards
+     */
+    public static int getShardCount() {
+        return SHARD_URLS.size();
+    }
+
+    /**
+     * Bases de datos de los shards adicionales, en el orden de magenta.db.shards,
+     * creando sus pools en el primer uso.
+     * @return bases de datos de los shards (vacío si no hay shards o falta el driver)
+     */
+    public static synchronized List<PooledDataSource> getShardDataSources() {
+        if (getPrimary() == null) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(shards);
+    }
+
+    /**
+     * Cierra los pools de la primaria, de las réplicas y de los shards. Una llamada
+     * posterior a getConnection() crea pools nuevos.
+     */
+    public static synchronized void shutdown() {
+        if (primary != null) {
+            primary.close();
+            for (PooledDataSource replica : replicas) {
+                replica.close();
+            }
+            for (PooledDataSource shard : shards) {
+                shard.close();
+            }
+            primary = null;
+            replicas = new ArrayList<>();
+            shards = new ArrayList<>();
+        }
     }
     
     /**
-     * Cierra una conexión abierta a la base de datos.
+     * Devuelve al pool una conexión obtenida con getConnection().
      * @param conn la conexión a cerrar
      */
     public static void closeConnection(Connection conn) {
         if (conn != null) {
             try {
                 conn.close();
-                System.out.println("Conexión cerrada exitosamente");
+                System.out.println("Conexión devuelta al pool exitosamente");
             } catch (SQLException e) {
                 System.out.println("[ADVERTENCIA] Ocurrió un problema al cerrar la conexión con la base de datos.\nDetalles técnicos: " + e.getMessage());
             }
@@ -66,4 +217,70 @@ public class DBConnection {
         }
         return false;
     }
+
+    // La ventana de lectura de la primaria empieza cuando termina la escritura, no al pedir la conexión
+    private static void markWrite() {
+        lastWriteMillis = System.currentTimeMillis();
+    }
+
+    private static synchronized PooledDataSource getPrimary() {
+        try {
+            init();
+            return primary;
+        } catch (ClassNotFoundException e) {
+            System.out.println("[ERROR] No se encontró el controlador de MySQL. Por favor, asegúrate de que el conector JDBC esté instalado.\nDetalles técnicos: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void init() throws ClassNotFoundException {
+        if (!driverLoaded) {
+            // Cargar el driver de MySQL
+            Class.forName("com.mysql.cj.jdbc.Driver");
+            DriverManager.setLoginTimeout(Math.max(1, CONNECT_TIMEOUT_MS / 1000));
+            driverLoaded = true;
+        }
+        if (primary == null) {
+            primary = createDataSource("primaria", URL, USER, PASSWORD);
+            List<PooledDataSource> created = new ArrayList<>();
+            for (int i = 0; i < REPLICA_URLS.size(); i++) {
+                created.add(createDataSource("réplica " + (i + 1), REPLICA_URLS.get(i), REPLICA_USER, REPLICA_PASSWORD));
+            }
+            replicas = created;
+            List<PooledDataSource> createdShards = new ArrayList<>();
+            for (int i = 0; i < SHARD_URLS.size(); i++) {
+                createdShards.add(createDataSource("shard " + (i + 1), SHARD_URLS.get(i), USER, PASSWORD));
+            }
+            shards = createdShards;
+        }
+    }
+
+    private static PooledDataSource createDataSource(String name, String url, String user, String password) {
+        String fullUrl = url + (url.contains("?") ? "&" : "?") + URL_OPTIONS;
+        ConnectionPool pool = new ConnectionPool(fullUrl, user, password, POOL_MIN_SIZE, POOL_MAX_SIZE,
+                POOL_IDLE_TIMEOUT_MS, POOL_BORROW_TIMEOUT_MS, POOL_VALIDATION_INTERVAL_MS,
+                STATEMENT_CACHE_SIZE);
+        return new PooledDataSource(name, pool, BREAKER_FAILURE_THRESHOLD,
+                BREAKER_BASE_BACKOFF_MS, BREAKER_MAX_BACKOFF_MS);
+    }
+
+    private static synchronized PooledDataSource chooseReplica() {
+        PooledDataSource chosen = null;
+        if ("least-loaded".equalsIgnoreCase(READ_ROUTING)) {
+            for (PooledDataSource replica : replicas) {
+                if (replica.isAvailable() && (chosen == null
+                        || replica.getPool().getActiveConnections() < chosen.getPool().getActiveConnections())) {
+                    chosen = replica;
+                }
+            }
+        } else {
+            for (int i = 0; i < replicas.size() && chosen == null; i++) {
+                PooledDataSource replica = replicas.get(Math.floorMod(nextReplica.getAndIncrement(), replicas.size()));
+                if (replica.isAvailable()) {
+                    chosen = replica;
+                }
+            }
+        }
+        return chosen;
+    }
 }
@@ -0,0 +1,180 @@
+package projectmagenta.dao;
+
+import projectmagenta.model.Movie;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Repositorio de películas embebido en un archivo local, sin servidor de base de datos.
+ * Los datos se sirven desde memoria (ver {@link InMemoryMovieRepository}) y cada
+ * escritura se añade a un registro de cambios en disco. Al abrir el archivo se
+ * reproduce el registro y se compacta en una instantánea con una línea por película.
+ * <p>
+ * Formato de línea (campos separados por tabuladores):
+ * {@code A id título director año duración género versión} para altas y modificaciones
+ * (los archivos anteriores, sin versión, se leen con versión 0),
+ * {@code D id} para eliminaciones.
+ * @author Alex Fernandez
+ */
+public class FileMovieRepository extends InMemoryMovieRepository {
+    private final Path file;
+    private final BufferedWriter log;
+
+    /**
+     * Abre (o crea) el archivo de datos y carga su contenido en memoria.
+     * @param file ruta del archivo de datos
+     * @throws IOException si el archivo no se puede leer o escribir
+     */
+    public FileMovieRepository(Path file) throws IOException {
+        this.file = file;
+        if (Files.exists(file)) {
+            replay();
+        }
+        compact();
+        this.log = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public synchronized boolean addMovie(Movie movie) {
+        if (!super.addMovie(movie)) {
+            return false;
+        }
+        append(formatMovie(movie));
+        return true;
+    }
+
+    @Override
+    public synchronized boolean updateMovie(Movie movie) {
+        if (!super.updateMovie(movie)) {
+            return false;
+        }
+        append(formatMovie(movie));
+        return true;
+    }
+
+    @Override
+    public synchronized boolean deleteMovieById(int id) {
+        if (!super.deleteMovieById(id)) {
+            return false;
+        }
+        append("D\t" + id);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean deleteMovieById(int id, long version) {
+        if (!super.deleteMovieById(id, version)) {
+            return false;
+        }
+        // Sin versión, la eliminación pasa por deleteMovieById(id), que ya la registra
+        if (version > 0) {
+            append("D\t" + id);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized int deleteMoviesByTitle(String title) {
+        int deleted = 0;
+        for (Movie movie : movies.values()) {
+            if (movie.getTitle().equalsIgnoreCase(title) && deleteMovieById(movie.getId())) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Cierra el registro de cambios. Las escrituras posteriores fallan.
+     */
+    public synchronized void close() {
+        try {
+            log.close();
+        } catch (IOException e) {
+            System.out.println("[ADVERTENCIA] Ocurrió un problema al cerrar el archivo de datos " + file + ".\nDetalles técnicos: " + e.getMessage());
+        }
+    }
+
+    private void append(String line) {
+        try {
+            log.write(line);
+            log.newLine();
+            log.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir en el archivo de datos " + file, e);
+        }
+    }
+
+    private void replay() throws IOException {
+        int maxId = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] fields = line.split("\t", -1);
+                int id = Integer.parseInt(fields[1]);
+                if ("D".equals(fields[0])) {
+                    movies.remove(id);
+                } else {
+                    movies.put(id, Movie.fromTrustedData(id, unescape(fields[2]), unescape(fields[3]),
+                            Integer.parseInt(fields[4]), Integer.parseInt(fields[5]), unescape(fields[6]),
+                            fields.length > 7 ? Long.parseLong(fields[7]) : 0));
+                }
+                maxId = Math.max(maxId, id);
+            }
+        }
+        nextId.set(maxId + 1);
+    }
+
+    /**
+     * Reescribe el archivo con el estado actual (una línea por película) de forma atómica.
+     */
+    private void compact() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Movie movie : movies.values()) {
+                writer.write(formatMovie(movie));
+                writer.newLine();
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String formatMovie(Movie movie) {
+        return "A\t" + movie.getId() + '\t' + escape(movie.getTitle()) + '\t' + escape(movie.getDirector())
+                + '\t' + movie.getYear() + '\t' + movie.getDuration() + '\t' + escape(movie.getGenre())
+                + '\t' + movie.getVersion();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                sb.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,243 @@
+package projectmagenta.dao;
+
+import projectmagenta.model.Movie;
+import projectmagenta.model.MovieChanges;
+import projectmagenta.model.MovieCriteria;
+import projectmagenta.model.MoviePage;
+import projectmagenta.model.SearchKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Repositorio de películas en memoria, seguro para hilos.
+ * Permite ejecutar la aplicación sin MySQL y hacer pruebas de carga del controlador.
+ * Guarda copias de las películas, de modo que modificar un objeto devuelto no altera
+ * el almacén. Las búsquedas por título ignoran mayúsculas, como la colación de MySQL.
+ * @author Alex Fernandez
+ */
+public class InMemoryMovieRepository implements MovieRepository {
+    // Ordenado por id, igual que el ORDER BY id ASC de MovieDAO.getAllMovies()
+    protected final ConcurrentSkipListMap<Integer, Movie> movies = new ConcurrentSkipListMap<>();
+    protected final AtomicInteger nextId = new AtomicInteger(1);
+    // Eliminaciones (id -> versión de la eliminación) para getMoviesChangedSince()
+    protected final ConcurrentHashMap<Integer, Long> tombstones = new ConcurrentHashMap<>();
+    // Última versión asignada en el proceso: compartida por todos los repositorios en
+    // memoria, para que los shards de un ShardedMovieRepository usen un mismo reloj y
+    // la marca de agua combinada no deje atrás las escrituras de ningún shard
+    private static final AtomicLong LAST_VERSION = new AtomicLong();
+
+    @Override
+    public boolean addMovie(Movie movie) {
+        if (!hasRequiredFields(movie)) {
+            return false;
+        }
+        int id = nextId.getAndIncrement();
+        movie.setId(id);
+        movie.setVersion(newVersion());
+        movies.put(id, copy(movie));
+        return true;
+    }
+
+    /**
+     * Con versión, la comprobación y el reemplazo son una única operación atómica
+     * del mapa, así que dos modificaciones concurrentes de la misma versión no
+     * pueden aplicarse las dos.
+     */
+    @Override
+    public boolean updateMovie(Movie movie) {
+        if (!hasRequiredFields(movie) || movie.getId() <= 0) {
+            return false;
+        }
+        Movie current = movies.get(movie.getId());
+        if (current == null || (movie.getVersion() > 0 && current.getVersion() != movie.getVersion())) {
+            return false;
+        }
+        long version = newVersion();
+        Movie stored = copy(movie);
+        stored.setVersion(version);
+        if (movie.getVersion() > 0 ? !movies.replace(movie.getId(), current, stored)
+                : movies.replace(movie.getId(), stored) == null) {
+            return false;
+        }
+        movie.setVersion(version);
+        return true;
+    }
+
+    @Override
+    public boolean deleteMovieById(int id) {
+        return remove(id, movies.get(id));
+    }
+
+    @Override
+    public boolean deleteMovieById(int id, long version) {
+        if (version <= 0) {
+            return deleteMovieById(id);
+        }
+        Movie current = movies.get(id);
+        return current != null && current.getVersion() == version && remove(id, current);
+    }
+
+    @Override
+    public int deleteMoviesByTitle(String title) {
+        int deleted = 0;
+        for (Movie movie : movies.values()) {
+            if (movie.getTitle().equalsIgnoreCase(title) && remove(movie.getId(), movie)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Quita la película si sigue siendo la indicada y registra la eliminación.
+     */
+    private boolean remove(int id, Movie current) {
+        if (current == null || !movies.remove(id, current)) {
+            return false;
+        }
+        tombstones.put(id, newVersion());
+        return true;
+    }
+
+    private long newVersion() {
+        return LAST_VERSION.updateAndGet(MovieRepository::nextVersion);
+    }
+
+    /**
+     * Recorre la cartelera en memoria comparando versiones; las eliminaciones se
+     * conservan mientras viva el repositorio.
+     */
+    @Override
+    public MovieChanges getMoviesChangedSince(long since) {
+        List<Movie> changed = new ArrayList<>();
+        long watermark = since;
+        for (Movie movie : movies.values()) {
+            if (movie.getVersion() > since) {
+                changed.add(copy(movie));
+                watermark = Math.max(watermark, movie.getVersion());
+            }
+        }
+        List<Integer> deletedIds = new ArrayList<>();
+        for (Map.Entry<Integer, Long> tombstone : tombstones.entrySet()) {
+            if (tombstone.getValue() > since) {
+                // La recarga completa ya refleja las eliminaciones: solo avanzan la marca
+                if (since > 0) {
+                    deletedIds.add(tombstone.getKey());
+                }
+                watermark = Math.max(watermark, tombstone.getValue());
+            }
+        }
+        return new MovieChanges(changed, deletedIds, watermark, since <= 0);
+    }
+
+    @Override
+    public Movie findMovieByTitle(String title) {
+        String key = SearchKey.normalize(title);
+        for (Movie movie : movies.values()) {
+            if (movie.getTitleKey().equals(key)) {
+                return copy(movie);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Movie findMovieById(int id) {
+        Movie movie = movies.get(id);
+        return movie != null ? copy(movie) : null;
+    }
+
+    @Override
+    public List<Movie> findMoviesByPartialTitle(String partialTitle) {
+        String needle = SearchKey.normalize(partialTitle);
+        List<Movie> result = new ArrayList<>();
+        for (Movie movie : movies.values()) {
+            if (movie.getTitleKey().contains(needle)) {
+                result.add(copy(movie));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Movie> getAllMovies() {
+        List<Movie> result = new ArrayList<>(movies.size());
+        for (Movie movie : movies.values()) {
+            result.add(copy(movie));
+        }
+        return result;
+    }
+
+    @Override
+    public long streamAllMovies(Consumer<? super Movie> action) {
+        long count = 0;
+        for (Movie movie : movies.values()) {
+            action.accept(copy(movie));
+            count++;
+        }
+        return count;
+    }
+
+    @Override
+    public MoviePage getMoviesPage(int afterId, int limit) {
+        List<Movie> page = new ArrayList<>(limit);
+        boolean hasMore = false;
+        for (Movie movie : movies.tailMap(afterId, false).values()) {
+            if (page.size() == limit) {
+                hasMore = true;
+                break;
+            }
+            page.add(copy(movie));
+        }
+        return new MoviePage(page, afterId, hasMore);
+    }
+
+    @Override
+    public List<Movie> findMovies(MovieCriteria criteria) {
+        // En orden de id ascendente el mapa ya está ordenado y se puede cortar al llegar al límite
+        boolean naturalOrder = criteria.getSortField() == MovieCriteria.SortField.ID && !criteria.isDescending();
+        List<Movie> result = new ArrayList<>();
+        for (Movie movie : movies.values()) {
+            if (!criteria.matches(movie)) {
+                continue;
+            }
+            result.add(copy(movie));
+            if (naturalOrder && result.size() == criteria.getLimit()) {
+                return result;
+            }
+        }
+        if (!naturalOrder) {
+            result.sort(criteria.comparator());
+            if (criteria.getLimit() > 0 && result.size() > criteria.getLimit()) {
+                return new ArrayList<>(result.subList(0, criteria.getLimit()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Equivalente a las restricciones NOT NULL de la tabla Cartelera.
+     * @param movie película a comprobar
+     * @return true si la película tiene título, director y género
+     */
+    protected static boolean hasRequiredFields(Movie movie) {
+        return movie != null && movie.getTitle() != null && movie.getDirector() != null && movie.getGenre() != null;
+    }
+
+    /**
+     * Copia una película sin pasar por las validaciones de los setters
+     * (los datos ya fueron validados al crearse el objeto original).
+     * @param movie película a copiar
+     * @return copia independiente
+     */
+    protected static Movie copy(Movie movie) {
+        return Movie.fromTrustedData(movie.getId(), movie.getTitle(), movie.getDirector(),
+                movie.getYear(), movie.getDuration(), movie.getGenre(), movie.getVersion());
+    }
+}
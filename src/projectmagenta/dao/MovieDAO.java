@@ -1,98 +1,264 @@
 package projectmagenta.dao;
 
 import projectmagenta.model.Movie;
+import projectmagenta.model.MovieChanges;
+import projectmagenta.model.MovieCriteria;
+import projectmagenta.model.MoviePage;
+import projectmagenta.model.MovieStats;
+import projectmagenta.model.MovieSummary;
+import projectmagenta.model.SearchKey;
 import java.sql.*;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object (DAO) para operaciones con películas en la base de datos.
  * Permite agregar nuevas películas y eliminar por título (usado en tests).
+ * Las consultas de solo lectura usan DBConnection.getReadConnection() para poder
+ * repartirse entre réplicas; las escrituras van a la primaria. Un DAO creado con
+ * un {@link PooledDataSource} trabaja solo sobre esa base de datos (un shard de
+ * {@link ShardedMovieRepository}).
+ * Es la implementación JDBC de {@link MovieRepository}.
  * @author Alex Fernandez
  */
-public class MovieDAO {
+public class MovieDAO implements MovieRepository {
+    // El orden de las columnas es el que espera mapRow()
+    private static final String MOVIE_COLUMNS = "id, title, director, year, duration, genre, updated_at";
+    private static final String SELECT_MOVIE = "SELECT " + MOVIE_COLUMNS + " FROM Cartelera";
+    // Proyección para listas de resultados, en el orden que espera mapSummary()
+    private static final String SUMMARY_COLUMNS = "id, title, year, director";
+    // La versión (updated_at) la fija el servidor y se lee en la misma transacción:
+    // CURRENT_TIMESTAMP(3) al insertar y, al modificar, al menos un milisegundo más
+    // que la anterior para que dos escrituras del mismo milisegundo no la compartan
+    private static final String NEXT_VERSION = "GREATEST(CURRENT_TIMESTAMP(3), updated_at + INTERVAL 1000 MICROSECOND)";
+    private static final String INSERT_MOVIE = "INSERT INTO Cartelera (title, director, year, duration, genre, title_key, director_key, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP(3))";
+    // Sincronización por clave natural: solo se reescriben las columnas que no forman la clave
+    // %1$s: tabla de lectura (Cartelera, o Cartelera y su archivo)
+    private static final String STATS_TOTALS =
+        "SELECT COUNT(*), COALESCE(SUM(duration), 0), COALESCE(MIN(year), 0), COALESCE(MAX(year), 0) FROM %1$s";
+    // Películas por género (G), década (D) y tramo de duración (H)
+    private static final String STATS_GROUPS =
+        "SELECT 'G', CAST(genre AS CHAR), COUNT(*) FROM %1$s GROUP BY genre"
+        + " UNION ALL SELECT 'D', CAST(year DIV 10 * 10 AS CHAR) AS decade, COUNT(*) FROM %1$s GROUP BY decade"
+        + " UNION ALL SELECT 'H', CAST(duration DIV " + MovieStats.DURATION_BUCKET_MINUTES + " * " + MovieStats.DURATION_BUCKET_MINUTES
+        + " AS CHAR) AS bucket, COUNT(*) FROM %1$s GROUP BY bucket";
+    // Columnas que se copian al archivo (Cartelera_archivo tiene además archived_at)
+    private static final String ARCHIVE_COLUMNS =
+        "id, title, director, year, duration, genre, created_at, updated_at, title_key, director_key";
+    // Cartelera y su archivo como una sola tabla, para las lecturas de includingArchive()
+    private static final String WITH_ARCHIVE = "(SELECT " + ARCHIVE_COLUMNS + " FROM Cartelera UNION ALL SELECT "
+        + ARCHIVE_COLUMNS + " FROM Cartelera_archivo) AS Cartelera";
+    private static final String UPSERT_MOVIE = INSERT_MOVIE
+            + " ON DUPLICATE KEY UPDATE title = VALUES(title), director = VALUES(director),"
+            + " duration = VALUES(duration), genre = VALUES(genre), updated_at = " + NEXT_VERSION;
+    private static final int BATCH_SIZE = DBConfig.getInt("magenta.dao.batchSize", 500);
+
+    // ER_DUP_ENTRY: ya existe una película con el mismo título, año y director (uk_cartelera_natural)
+    private static final int DUPLICATE_KEY = 1062;
+
+    // ER_NO_SUCH_TABLE: la base de datos no tiene la tabla de eliminaciones Cartelera_eliminadas
+    private static final int MISSING_TABLE = 1146;
+    // ER_BAD_FIELD_ERROR: la base de datos no tiene la columna active (migración V8)
+    private static final int UNKNOWN_COLUMN = 1054;
+    // Las eliminaciones se recuerdan este tiempo; con una marca más antigua se recarga todo
+    private static final long TOMBSTONE_RETENTION_MS = DBConfig.getLong("magenta.dao.tombstoneRetentionHours", 168) * 3_600_000L;
+    // Margen hacia atrás de cada consulta de cambios, para no perder escrituras que
+    // obtuvieron su versión antes de la marca pero se confirmaron después. Versiones,
+    // eliminaciones y marcas usan el reloj del servidor: el margen solo cubre lo que
+    // tarda en confirmarse una transacción, no el desfase de los relojes de los clientes
+    private static final long CHANGE_FEED_OVERLAP_MS = DBConfig.getLong("magenta.dao.changeFeedOverlapMs", 2000);
+    // Antigüedad (desde created_at) a partir de la cual archiveColdMovies() archiva una película; 0 = solo las inactivas
+    private static final long ARCHIVE_MAX_AGE_MS = DBConfig.getLong("magenta.archive.maxAgeDays", 0) * 86_400_000L;
+
+    // ER_FT_MATCHING_KEY_NOT_FOUND: la tabla no tiene el índice FULLTEXT (title, director)
+    private static final int MISSING_FULLTEXT_INDEX = 1191;
+    // innodb_ft_min_token_size por defecto: las palabras más cortas no están en el índice
+    private static final int MIN_FULLTEXT_TOKEN = 3;
+    // Palabras vacías por defecto de InnoDB: exigirlas con '+' haría que no coincidiera nada
+    private static final Set<String> FULLTEXT_STOPWORDS = new HashSet<>(Arrays.asList(
+            "about", "are", "com", "for", "from", "how", "that", "the", "this", "was",
+            "what", "when", "where", "who", "will", "with", "und", "www"));
+
+    private final boolean auditEnabled;
+    // null: la primaria y las réplicas de DBConnection
+    private final PooledDataSource dataSource;
+    // Las lecturas incluyen Cartelera_archivo (ver includingArchive())
+    private final boolean includeArchive;
+    private final String readTable;
+    private final String selectMovie;
+    private volatile boolean fullTextEnabled = DBConfig.getBoolean("magenta.dao.fullTextSearch", true);
+    private volatile boolean tombstonesEnabled = true;
+    private volatile boolean archiveEnabled = true;
+
+    /**
+     * Crea el DAO con el registro de auditoría configurado en magenta.dao.audit
+     * (desactivado por defecto: los cambios concurrentes se detectan con la versión,
+     * sin leer antes el registro).
+     */
+    public MovieDAO() {
+        this(DBConfig.getBoolean("magenta.dao.audit", false));
+    }
+
+    /**
+     * @param auditEnabled true para mostrar en consola el registro original antes
+     *                     de modificarlo o eliminarlo; false para escribir sin leerlo
+     */
+    public MovieDAO(boolean auditEnabled) {
+        this(auditEnabled, null, false);
+    }
+
+    /**
+     * Crea un DAO sobre una base de datos concreta (un shard), con el registro de
+     * auditoría configurado en magenta.dao.audit.
+     * @param dataSource base de datos del shard (lecturas y escrituras)
+     */
+    public MovieDAO(PooledDataSource dataSource) {
+        this(DBConfig.getBoolean("magenta.dao.audit", false), dataSource, false);
+    }
+
+    private MovieDAO(boolean auditEnabled, PooledDataSource dataSource, boolean includeArchive) {
+        this.auditEnabled = auditEnabled;
+        this.dataSource = dataSource;
+        this.includeArchive = includeArchive;
+        this.readTable = includeArchive ? WITH_ARCHIVE : "Cartelera";
+        this.selectMovie = "SELECT " + MOVIE_COLUMNS + " FROM " + readTable;
+    }
+
+    /**
+     * DAO sobre la misma base de datos cuyas consultas incluyen también las
+     * películas archivadas (Cartelera_archivo), para el historial. Por defecto las
+     * lecturas solo usan Cartelera, que contiene las películas vigentes.
+     * Las escrituras siguen afectando solo a Cartelera; la búsqueda de texto usa
+     * LIKE y los cambios incrementales se sirven como recargas completas.
+     * @return DAO de lectura con archivo
+     */
+    public MovieDAO includingArchive() {
+        return includeArchive ? this : new MovieDAO(auditEnabled, dataSource, true);
+    }
+
+    /**
+     * @return true si las lecturas incluyen las películas archivadas
+     */
+    public boolean isIncludingArchive() {
+        return includeArchive;
+    }
+
+    /**
+     * @return base de datos del DAO, o null si usa la primaria de DBConnection
+     */
+    public PooledDataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Conexión para escrituras: la primaria de DBConnection o la del shard.
+     * Dentro de una {@link UnitOfWork} devuelve la conexión de la unidad.
+     */
+    private Connection connection() {
+        if (dataSource == null) {
+            return DBConnection.getConnection();
+        }
+        Connection bound = UnitOfWork.currentConnection(dataSource);
+        return bound != null ? bound : dataSource.getConnection();
+    }
+
+    /**
+     * Conexión para consultas de solo lectura: una réplica de DBConnection o la del shard.
+     */
+    private Connection readConnection() {
+        return dataSource == null ? DBConnection.getReadConnection() : connection();
+    }
+
     /**
      * Elimina una película por su id.
+     * Con la auditoría activada, el registro original se lee en la misma conexión
+     * que la eliminación; sin ella, la eliminación es una única sentencia.
      * @param id identificador único de la película
      * @return true si la eliminación fue exitosa, false si hubo error
      */
+    @Override
     public boolean deleteMovieById(int id) {
-        // Buscar el registro original antes de eliminar
-        Movie originalMovie = null;
-        String sqlSelect = "SELECT id, title, director, year, duration, genre FROM Cartelera WHERE id = ?";
-        try (Connection connSel = DBConnection.getConnection();
-             PreparedStatement pstmtSel = connSel != null ? connSel.prepareStatement(sqlSelect) : null) {
-            if (connSel != null && pstmtSel != null) {
-                pstmtSel.setInt(1, id);
-                try (ResultSet rs = pstmtSel.executeQuery()) {
-                    if (rs.next()) {
-                        originalMovie = new Movie();
-                        originalMovie.setId(rs.getInt("id"));
-                        originalMovie.setTitle(rs.getString("title"));
-                        originalMovie.setDirector(rs.getString("director"));
-                        originalMovie.setYear(rs.getInt("year"));
-                        originalMovie.setDuration(rs.getInt("duration"));
-                        originalMovie.setGenre(rs.getString("genre"));
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            // No imprimir error aquí para no saturar la consola
-        }
-        if (originalMovie != null) {
-            System.out.println("[INFO] Registro original: " + originalMovie.toString());
-        } else {
-            System.out.println("[INFO] No se encontró registro original para id=" + id);
-        }
-        System.out.println("[INFO] Intentando eliminar la película con id: " + id + "...");
-        String sql = "DELETE FROM Cartelera WHERE id = ?";
+        return deleteMovieById(id, 0);
+    }
+
+    /**
+     * Elimina una película solo si conserva la versión leída, con una sentencia
+     * condicional ({@code WHERE id = ? AND updated_at = ?}) y sin bloqueos. En la
+     * misma transacción registra la eliminación para {@link #getMoviesChangedSince(long)}.
+     * @param id identificador único de la película
+     * @param version versión leída; 0 para eliminar sin comprobarla
+     * @return true si se eliminó, false si no existe, cambió o hubo error
+     */
+    @Override
+    public boolean deleteMovieById(int id, long version) {
+        String where = "id = ?" + (version > 0 ? " AND updated_at = ?" : "");
+        Object[] params = version > 0 ? new Object[] { id, new Timestamp(version) } : new Object[] { id };
         Connection conn = null;
         PreparedStatement pstmt = null;
         try {
-            conn = DBConnection.getConnection();
+            conn = connection();
             if (conn == null) return false;
-            pstmt = conn.prepareStatement(sql);
-            pstmt.setInt(1, id);
+            if (auditEnabled) {
+                logOriginal(conn, id);
+            }
+            System.out.println("[INFO] Intentando eliminar la película con id: " + id + "...");
+            conn.setAutoCommit(false);
+            recordTombstones(conn, where, params);
+            pstmt = conn.prepareStatement("DELETE FROM Cartelera WHERE " + where);
+            bindParams(pstmt, 1, params);
             int rows = pstmt.executeUpdate();
             if (rows > 0) {
+                conn.commit();
                 System.out.println("[SUCCESS] Registro eliminado. ");
                 return true;
+            }
+            conn.rollback();
+            if (version > 0) {
+                System.out.println("[ADVERTENCIA] La película con id=" + id + " no existe o fue modificada por otro usuario; no se eliminó.");
+                return false;
             } else {
                 System.out.println("[ERROR] No se encontró ninguna película con id=" + id + " para eliminar.");
                 return false;
             }
         } catch (SQLException e) {
             System.out.println("[ERROR] No se pudo eliminar la película.\nDetalles técnicos: " + e.getMessage());
+            rollbackQuietly(conn);
             return false;
         } finally {
             closeResources(conn, pstmt, null);
         }
     }
+
     /**
-     * Busca una película por su título exacto.
+     * Busca una película por su título exacto, sin distinguir mayúsculas ni tildes
+     * (compara la columna indexada title_key).
      * @param title Título de la película a buscar
      * @return Objeto Movie si se encuentra, null si no existe
      */
+    @Override
     public Movie findMovieByTitle(String title) {
-        String sql = "SELECT id, title, director, year, duration, genre FROM Cartelera WHERE title = ?";
+        String sql = selectMovie + " WHERE title_key = ?";
         Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         try {
-            conn = DBConnection.getConnection();
+            conn = readConnection();
             if (conn == null) return null;
             pstmt = conn.prepareStatement(sql);
-            pstmt.setString(1, title);
+            pstmt.setString(1, SearchKey.normalize(title));
             rs = pstmt.executeQuery();
             if (rs.next()) {
-                Movie movie = new Movie();
-                movie.setId(rs.getInt("id"));
-                movie.setTitle(rs.getString("title"));
-                movie.setDirector(rs.getString("director"));
-                movie.setYear(rs.getInt("year"));
-                movie.setDuration(rs.getInt("duration"));
-                movie.setGenre(rs.getString("genre"));
-                return movie;
+                return mapRow(rs);
             }
         } catch (SQLException e) {
             System.out.println("[ERROR] No se pudo buscar la película.\nDetalles técnicos: " + e.getMessage());
@@ -107,26 +273,20 @@ public class MovieDAO {
      * @param id Identificador único de la película
      * @return Objeto Movie si se encuentra, null si no existe
      */
+    @Override
     public Movie findMovieById(int id) {
-        String sql = "SELECT id, title, director, year, duration, genre FROM Cartelera WHERE id = ?";
+        String sql = selectMovie + " WHERE id = ?";
         Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         try {
-            conn = DBConnection.getConnection();
+            conn = readConnection();
             if (conn == null) return null;
             pstmt = conn.prepareStatement(sql);
             pstmt.setInt(1, id);
             rs = pstmt.executeQuery();
             if (rs.next()) {
-                Movie movie = new Movie();
-                movie.setId(rs.getInt("id"));
-                movie.setTitle(rs.getString("title"));
-                movie.setDirector(rs.getString("director"));
-                movie.setYear(rs.getInt("year"));
-                movie.setDuration(rs.getInt("duration"));
-                movie.setGenre(rs.getString("genre"));
-                return movie;
+                return mapRow(rs);
             }
         } catch (SQLException e) {
             System.out.println("[ERROR] No se pudo buscar la película por ID.\nDetalles técnicos: " + e.getMessage());
@@ -137,31 +297,26 @@ public class MovieDAO {
     }
 
     /**
-     * Busca películas cuyos títulos contengan una cadena específica.
+     * Busca películas cuyos títulos contengan una cadena específica, sin distinguir
+     * mayúsculas ni tildes.
      * @param partialTitle Cadena parcial del título a buscar
      * @return Lista de objetos Movie que coincidan con la búsqueda
      */
+    @Override
     public List<Movie> findMoviesByPartialTitle(String partialTitle) {
-        String sql = "SELECT id, title, director, year, duration, genre FROM Cartelera WHERE title LIKE ?";
+        String sql = selectMovie + " WHERE title_key LIKE ?";
         Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         List<Movie> movies = new ArrayList<>();
         try {
-            conn = DBConnection.getConnection();
+            conn = readConnection();
             if (conn == null) return movies;
             pstmt = conn.prepareStatement(sql);
-            pstmt.setString(1, "%" + partialTitle + "%");
+            pstmt.setString(1, "%" + escapeLike(SearchKey.normalize(partialTitle)) + "%");
             rs = pstmt.executeQuery();
             while (rs.next()) {
-                Movie movie = new Movie();
-                movie.setId(rs.getInt("id"));
-                movie.setTitle(rs.getString("title"));
-                movie.setDirector(rs.getString("director"));
-                movie.setYear(rs.getInt("year"));
-                movie.setDuration(rs.getInt("duration"));
-                movie.setGenre(rs.getString("genre"));
-                movies.add(movie);
+                movies.add(mapRow(rs));
             }
         } catch (SQLException e) {
             System.out.println("[ERROR] No se pudo realizar la búsqueda parcial por título.\nDetalles técnicos: " + e.getMessage());
@@ -173,77 +328,102 @@ public class MovieDAO {
 
     /**
      * Actualiza los datos de una película existente por su id.
+     * Con la auditoría activada, el registro original se lee en la misma conexión
+     * que la actualización; sin ella, la actualización es una única sentencia.
+     * Si la película trae versión, la sentencia es condicional
+     * ({@code WHERE id = ? AND updated_at = ?}): no modifica la fila si otro usuario
+     * la cambió desde que se leyó, sin bloquearla mientras se edita. La nueva
+     * versión la asigna el servidor y la película la recibe en la misma transacción.
      * @param movie Objeto Movie con los datos actualizados (debe tener id válido)
-     * @return true si la actualización fue exitosa, false si hubo error
+     * @return true si la actualización fue exitosa, false si no existe, cambió o hubo error
      */
+    @Override
     public boolean updateMovie(Movie movie) {
         if (movie == null || movie.getId() <= 0) {
             System.out.println("[ERROR] Se requiere un objeto película válido con id para actualizar.");
             return false;
         }
-        // Buscar el registro original antes de actualizar
-        Movie originalMovie = null;
-        String sqlSelect = "SELECT id, title, director, year, duration, genre FROM Cartelera WHERE id = ?";
-        try (Connection connSel = DBConnection.getConnection();
-             PreparedStatement pstmtSel = connSel != null ? connSel.prepareStatement(sqlSelect) : null) {
-            if (connSel != null && pstmtSel != null) {
-                pstmtSel.setInt(1, movie.getId());
-                try (ResultSet rs = pstmtSel.executeQuery()) {
-                    if (rs.next()) {
-                        originalMovie = new Movie();
-                        originalMovie.setId(rs.getInt("id"));
-                        originalMovie.setTitle(rs.getString("title"));
-                        originalMovie.setDirector(rs.getString("director"));
-                        originalMovie.setYear(rs.getInt("year"));
-                        originalMovie.setDuration(rs.getInt("duration"));
-                        originalMovie.setGenre(rs.getString("genre"));
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            // No imprimir error aquí para no saturar la consola
-        }
-        if (originalMovie != null) {
-            System.out.println("[INFO] Registro original: " + originalMovie.toString());
-        } else {
-            System.out.println("[INFO] No se encontró registro original para id=" + movie.getId());
-        }
-        System.out.println("[INFO] Intentando modificar la película con id: " + movie.getId() + "...");
-        String sql = "UPDATE Cartelera SET title = ?, director = ?, year = ?, duration = ?, genre = ? WHERE id = ?";
+        String sql = "UPDATE Cartelera SET title = ?, director = ?, year = ?, duration = ?, genre = ?, "
+                + "title_key = ?, director_key = ?, updated_at = " + NEXT_VERSION + " WHERE id = ?"
+                + (movie.getVersion() > 0 ? " AND updated_at = ?" : "");
         Connection conn = null;
         PreparedStatement pstmt = null;
         try {
-            conn = DBConnection.getConnection();
+            conn = connection();
             if (conn == null) return false;
+            if (auditEnabled) {
+                logOriginal(conn, movie.getId());
+            }
+            System.out.println("[INFO] Intentando modificar la película con id: " + movie.getId() + "...");
+            conn.setAutoCommit(false);
             pstmt = conn.prepareStatement(sql);
             pstmt.setString(1, movie.getTitle());
             pstmt.setString(2, movie.getDirector());
             pstmt.setInt(3, movie.getYear());
             pstmt.setInt(4, movie.getDuration());
             pstmt.setString(5, movie.getGenre());
-            pstmt.setInt(6, movie.getId());
+            pstmt.setString(6, movie.getTitleKey());
+            pstmt.setString(7, movie.getDirectorKey());
+            pstmt.setInt(8, movie.getId());
+            if (movie.getVersion() > 0) {
+                pstmt.setTimestamp(9, new Timestamp(movie.getVersion()));
+            }
             int rows = pstmt.executeUpdate();
             if (rows > 0) {
+                long version = readVersions(conn, Collections.singletonList(movie.getId())).get(movie.getId());
+                conn.commit();
+                movie.setVersion(version);
                 System.out.println("[SUCCESS] Registro actualizado: " + movie.toString());
                 return true;
+            }
+            conn.rollback();
+            if (movie.getVersion() > 0) {
+                System.out.println("[ADVERTENCIA] La película con id=" + movie.getId() + " no existe o fue modificada por otro usuario; no se modificó.");
+                return false;
             } else {
                 System.out.println("[ERROR] No se encontró ninguna película con id=" + movie.getId() + " para modificar.");
                 return false;
             }
         } catch (SQLException e) {
+            rollbackQuietly(conn);
+            if (e.getErrorCode() == DUPLICATE_KEY) {
+                System.out.println("[ERROR] Ya existe otra película con el mismo título, año y director.");
+                return false;
+            }
             System.out.println("[ERROR] No se pudo actualizar la película.\nDetalles técnicos: " + e.getMessage());
             return false;
         } finally {
             closeResources(conn, pstmt, null);
         }
     }
-    
+
+    /**
+     * Muestra en consola el registro que se va a modificar o eliminar, leyéndolo
+     * con la conexión de la escritura. Un fallo al leerlo no impide la escritura.
+     */
+    private void logOriginal(Connection conn, int id) {
+        try (PreparedStatement pstmt = conn.prepareStatement(SELECT_MOVIE + " WHERE id = ?")) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    System.out.println("[INFO] Registro original: " + mapRow(rs).toString());
+                    return;
+                }
+            }
+        } catch (SQLException e) {
+            // No imprimir error aquí para no saturar la consola
+        }
+        System.out.println("[INFO] No se encontró registro original para id=" + id);
+    }
+
     /**
      * Inserta una nueva película en la base de datos.
-     * Valida los campos antes de intentar la inserción.
+     * Valida los campos antes de intentar la inserción. La película recibe el id
+     * generado y la versión asignada por el servidor.
      * @param movie Objeto Movie a insertar
      * @return true si la inserción fue exitosa, false si hubo error o datos inválidos
      */
+    @Override
     public boolean addMovie(Movie movie) {
         System.out.println("[INFO] Intentando agregar una nueva película a la base de datos...");
         
@@ -253,65 +433,312 @@ public class MovieDAO {
             return false;
         }
 
-        String sql = "INSERT INTO Cartelera (title, director, year, duration, genre) VALUES (?, ?, ?, ?, ?)";
         Connection conn = null;
         PreparedStatement pstmt = null;
+        ResultSet keys = null;
 
         try {
-            conn = DBConnection.getConnection();
+            conn = connection();
             if (conn == null) {
                 System.out.println("[ERROR] No se pudo establecer conexión con la base de datos para agregar la película.");
                 return false;
             }
 
-            pstmt = conn.prepareStatement(sql);
-            pstmt.setString(1, movie.getTitle());
-            pstmt.setString(2, movie.getDirector());
-            pstmt.setInt(3, movie.getYear());
-            pstmt.setInt(4, movie.getDuration());
-            pstmt.setString(5, movie.getGenre());
+            conn.setAutoCommit(false);
+            pstmt = conn.prepareStatement(INSERT_MOVIE, Statement.RETURN_GENERATED_KEYS);
+            bindInsert(pstmt, movie);
 
             int rowsAffected = pstmt.executeUpdate();
             if (rowsAffected > 0) {
-                System.out.println("[SUCCESS] Película agregada correctamente: '" + movie.getTitle() + "'.");
+                keys = pstmt.getGeneratedKeys();
+                if (!keys.next()) {
+                    throw new SQLException("El driver no devolvió el id generado");
+                }
+                int id = keys.getInt(1);
+                long version = readVersions(conn, Collections.singletonList(id)).get(id);
+                conn.commit();
+                movie.setId(id);
+                movie.setVersion(version);
+                System.out.println("[SUCCESS] Película agregada correctamente: '" + movie.getTitle() + "' (id=" + movie.getId() + ").");
                 return true;
             } else {
+                conn.rollback();
                 System.out.println("[ERROR] No se pudo agregar la película (sin filas afectadas).");
                 return false;
             }
 
         } catch (SQLException e) {
+            rollbackQuietly(conn);
+            if (e.getErrorCode() == DUPLICATE_KEY) {
+                System.out.println("[ERROR] Ya existe una película con el mismo título, año y director.");
+                return false;
+            }
             System.out.println("[ERROR] No se pudo agregar la película. Por favor, verifica que los datos sean correctos y que la conexión a la base de datos esté disponible.\nDetalles técnicos: " + e.getMessage());
             return false;
+        } finally {
+            closeResources(conn, pstmt, keys);
+        }
+    }
+
+    /**
+     * Inserta varias películas con addBatch/executeBatch en lotes de
+     * magenta.dao.batchSize filas, dentro de una única transacción.
+     * Las películas inválidas se informan en el resultado y no se envían; si la base
+     * de datos rechaza el lote, la transacción se deshace y todas las filas válidas
+     * se informan como fallidas.
+     * @param movies películas a insertar
+     * @return ids generados (también asignados a cada Movie, con la versión del
+     *         servidor) y filas rechazadas
+     */
+    @Override
+    public BatchInsertResult addMovies(List<Movie> movies) {
+        BatchInsertResult result = new BatchInsertResult();
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < movies.size(); i++) {
+            String error = MovieRepository.validateForInsert(movies.get(i));
+            if (error != null) {
+                result.addFailure(i, error);
+            } else {
+                validIndexes.add(i);
+            }
+        }
+        if (validIndexes.isEmpty()) {
+            return result;
+        }
+        System.out.println("[INFO] Intentando agregar " + validIndexes.size() + " película(s) por lotes...");
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        try {
+            conn = connection();
+            if (conn == null) {
+                for (int index : validIndexes) {
+                    result.addFailure(index, "No se pudo establecer conexión con la base de datos");
+                }
+                return result;
+            }
+            conn.setAutoCommit(false);
+            pstmt = conn.prepareStatement(INSERT_MOVIE, Statement.RETURN_GENERATED_KEYS);
+            for (int start = 0; start < validIndexes.size(); start += BATCH_SIZE) {
+                List<Integer> chunk = validIndexes.subList(start, Math.min(start + BATCH_SIZE, validIndexes.size()));
+                for (int index : chunk) {
+                    bindInsert(pstmt, movies.get(index));
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                List<Integer> ids = new ArrayList<>();
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    for (int index : chunk) {
+                        if (!keys.next()) {
+                            throw new SQLException("El driver no devolvió el id generado de todas las filas del lote");
+                        }
+                        movies.get(index).setId(keys.getInt(1));
+                        result.addGeneratedId(keys.getInt(1));
+                        ids.add(keys.getInt(1));
+                    }
+                }
+                Map<Integer, Long> versions = readVersions(conn, ids);
+                for (int index : chunk) {
+                    movies.get(index).setVersion(versions.get(movies.get(index).getId()));
+                }
+            }
+            conn.commit();
+            System.out.println("[SUCCESS] Lote insertado: " + result);
+        } catch (SQLException e) {
+            System.out.println("[ERROR] No se pudo agregar el lote de películas; se deshizo la transacción.\nDetalles técnicos: " + e.getMessage());
+            rollbackQuietly(conn);
+            result.clearGeneratedIds();
+            for (int index : validIndexes) {
+                movies.get(index).setId(0);
+                movies.get(index).setVersion(0);
+                result.addFailure(index, "Error de base de datos: " + e.getMessage());
+            }
         } finally {
             closeResources(conn, pstmt, null);
         }
+        return result;
+    }
+
+    /**
+     * Asigna los parámetros de INSERT_MOVIE. La versión la asigna el servidor
+     * (ver {@link #readVersions(Connection, List)}).
+     */
+    private static void bindInsert(PreparedStatement pstmt, Movie movie) throws SQLException {
+        pstmt.setString(1, movie.getTitle());
+        pstmt.setString(2, movie.getDirector());
+        pstmt.setInt(3, movie.getYear());
+        pstmt.setInt(4, movie.getDuration());
+        pstmt.setString(5, movie.getGenre());
+        pstmt.setString(6, movie.getTitleKey());
+        pstmt.setString(7, movie.getDirectorKey());
+    }
+
+    /**
+     * Lee las versiones que el servidor asignó a las filas recién escritas. Se llama
+     * en la transacción de la escritura, que aún bloquea las filas: ningún otro
+     * cliente puede haberlas cambiado.
+     * @return versión de cada id
+     */
+    private static Map<Integer, Long> readVersions(Connection conn, List<Integer> ids) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT id, updated_at FROM Cartelera WHERE id IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+        Map<Integer, Long> versions = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            bindParams(pstmt, 1, ids.toArray());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    versions.put(rs.getInt(1), rs.getTimestamp(2).getTime());
+                }
+            }
+        }
+        if (versions.size() != ids.size()) {
+            throw new SQLException("No se pudo leer la versión de todas las filas escritas");
+        }
+        return versions;
+    }
+
+    /**
+     * Sincroniza películas por su clave natural (título, año y director normalizados,
+     * índice único uk_cartelera_natural) en lotes de magenta.dao.batchSize filas,
+     * dentro de una única transacción. Por cada lote se leen las filas existentes
+     * con una consulta y solo se envían, con INSERT ... ON DUPLICATE KEY UPDATE,
+     * las películas nuevas o con datos distintos: repetir la misma lista no
+     * modifica ninguna fila. Si otro cliente inserta la misma película entre la
+     * lectura y la escritura, el índice único la convierte en una actualización.
+     * Las filas sin claves de búsqueda (ver {@link #refreshSearchKeys()}) no se
+     * reconocen como existentes.
+     * @param movies películas a sincronizar; reciben el id almacenado o generado y
+     *               la versión del servidor
+     * @return filas insertadas, actualizadas, sin cambios y rechazadas
+     */
+    @Override
+    public UpsertResult upsertMovies(List<Movie> movies) {
+        UpsertResult result = new UpsertResult();
+        Map<String, Integer> seen = new HashMap<>();
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < movies.size(); i++) {
+            String error = MovieRepository.validateForUpsert(movies.get(i), i, seen);
+            if (error != null) {
+                result.addFailure(i, error);
+            } else {
+                validIndexes.add(i);
+            }
+        }
+        if (validIndexes.isEmpty()) {
+            return result;
+        }
+        System.out.println("[INFO] Sincronizando " + validIndexes.size() + " película(s) por clave natural...");
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        try {
+            conn = connection();
+            if (conn == null) {
+                for (int index : validIndexes) {
+                    result.addFailure(index, "No se pudo establecer conexión con la base de datos");
+                }
+                return result;
+            }
+            conn.setAutoCommit(false);
+            pstmt = conn.prepareStatement(UPSERT_MOVIE);
+            for (int start = 0; start < validIndexes.size(); start += BATCH_SIZE) {
+                List<Integer> chunk = validIndexes.subList(start, Math.min(start + BATCH_SIZE, validIndexes.size()));
+                Map<String, Movie> stored = findByNaturalKey(conn, movies, chunk);
+                List<Integer> written = new ArrayList<>();
+                for (int index : chunk) {
+                    Movie movie = movies.get(index);
+                    Movie existing = stored.get(MovieRepository.naturalKey(movie));
+                    if (existing == null) {
+                        result.addInserted(index);
+                    } else {
+                        movie.setId(existing.getId());
+                        movie.setVersion(existing.getVersion());
+                        if (MovieRepository.sameData(existing, movie)) {
+                            result.addUnchanged(index);
+                            continue;
+                        }
+                        result.addUpdated(index);
+                    }
+                    bindInsert(pstmt, movie);
+                    pstmt.addBatch();
+                    written.add(index);
+                }
+                if (!written.isEmpty()) {
+                    pstmt.executeBatch();
+                    // Ids generados y versiones asignadas por el servidor
+                    Map<String, Movie> rows = findByNaturalKey(conn, movies, written);
+                    for (int index : written) {
+                        Movie row = rows.get(MovieRepository.naturalKey(movies.get(index)));
+                        if (row != null) {
+                            movies.get(index).setId(row.getId());
+                            movies.get(index).setVersion(row.getVersion());
+                        }
+                    }
+                }
+            }
+            conn.commit();
+            System.out.println("[SUCCESS] Sincronización terminada: " + result);
+        } catch (SQLException e) {
+            System.out.println("[ERROR] No se pudo sincronizar la cartelera; se deshizo la transacción.\nDetalles técnicos: " + e.getMessage());
+            rollbackQuietly(conn);
+            result.failChanged("Se deshizo la transacción: " + e.getMessage());
+        } finally {
+            closeResources(conn, pstmt, null);
+        }
+        return result;
+    }
+
+    /**
+     * Lee en una consulta las filas cuyas claves naturales coinciden con las de las
+     * películas indicadas (usa el índice único uk_cartelera_natural).
+     * @return filas encontradas por clave natural
+     */
+    private Map<String, Movie> findByNaturalKey(Connection conn, List<Movie> movies, List<Integer> indexes) throws SQLException {
+        StringBuilder sql = new StringBuilder(SELECT_MOVIE).append(" WHERE (title_key, year, director_key) IN (");
+        for (int i = 0; i < indexes.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+        }
+        sql.append(')');
+        Map<String, Movie> stored = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int param = 1;
+            for (int index : indexes) {
+                Movie movie = movies.get(index);
+                pstmt.setString(param++, movie.getTitleKey());
+                pstmt.setInt(param++, movie.getYear());
+                pstmt.setString(param++, movie.getDirectorKey());
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Movie row = mapRow(rs);
+                    stored.put(MovieRepository.naturalKey(row), row);
+                }
+            }
+        }
+        return stored;
     }
     
     /**
      * Obtiene todas las películas de la base de datos.
      * @return Lista de todas las películas en la cartelera ordenadas por ID ascendente
      */
+    @Override
     public List<Movie> getAllMovies() {
-        String sql = "SELECT id, title, director, year, duration, genre FROM Cartelera ORDER BY id ASC";
+        String sql = selectMovie + " ORDER BY id ASC";
         Connection conn = null;
         PreparedStatement pstmt = null;
         ResultSet rs = null;
         List<Movie> movies = new ArrayList<>();
         try {
-            conn = DBConnection.getConnection();
+            conn = readConnection();
             if (conn == null) return movies;
             pstmt = conn.prepareStatement(sql);
             rs = pstmt.executeQuery();
             while (rs.next()) {
-                Movie movie = new Movie();
-                movie.setId(rs.getInt("id"));
-                movie.setTitle(rs.getString("title"));
-                movie.setDirector(rs.getString("director"));
-                movie.setYear(rs.getInt("year"));
-                movie.setDuration(rs.getInt("duration"));
-                movie.setGenre(rs.getString("genre"));
-                movies.add(movie);
+                movies.add(mapRow(rs));
             }
         } catch (SQLException e) {
             System.out.println("[ERROR] No se pudieron obtener las películas.\nDetalles técnicos: " + e.getMessage());
@@ -321,32 +748,765 @@ public class MovieDAO {
         return movies;
     }
 
+    /**
+     * Busca por título y director con el índice FULLTEXT de Cartelera
+     * (MATCH ... AGAINST en modo booleano), ordenando por relevancia. Cada palabra
+     * se busca como prefijo y todas deben aparecer. Si el índice no existe, ninguna
+     * palabra alcanza el tamaño mínimo del índice o magenta.dao.fullTextSearch es
+     * false, se usa LIKE sobre título y director.
+     * @param query texto a buscar
+     * @param limit número máximo de resultados
+     * @return películas encontradas, ordenadas por relevancia (lista vacía si hubo error)
+     */
+    @Override
+    public List<Movie> searchMovies(String query, int limit) {
+        return search(MOVIE_COLUMNS, MovieDAO::mapRow, query, limit);
+    }
+
+    /**
+     * Igual que {@link #searchMovies(String, int)}, pero solo lee id, título, año y
+     * director de cada coincidencia, para las listas de resultados.
+     * @param query texto a buscar
+     * @param limit número máximo de resultados
+     * @return resúmenes de las películas encontradas, ordenados por relevancia (lista vacía si hubo error)
+     */
+    @Override
+    public List<MovieSummary> searchMovieSummaries(String query, int limit) {
+        return search(SUMMARY_COLUMNS, MovieDAO::mapSummary, query, limit);
+    }
+
+    /**
+     * Búsqueda de texto que lee las columnas indicadas y convierte cada fila con mapper.
+     */
+    private <T> List<T> search(String columns, RowMapper<T> mapper, String query, int limit) {
+        String booleanQuery = toBooleanQuery(query);
+        if (fullTextEnabled && !includeArchive && booleanQuery != null) {
+            String sql = "SELECT " + columns + ", "
+                    + "MATCH (title, director) AGAINST (? IN BOOLEAN MODE) AS score FROM Cartelera "
+                    + "WHERE MATCH (title, director) AGAINST (? IN BOOLEAN MODE) ORDER BY score DESC, id ASC LIMIT ?";
+            Connection conn = null;
+            PreparedStatement pstmt = null;
+            ResultSet rs = null;
+            List<T> results = new ArrayList<>();
+            try {
+                conn = readConnection();
+                if (conn == null) return results;
+                pstmt = conn.prepareStatement(sql);
+                pstmt.setString(1, booleanQuery);
+                pstmt.setString(2, booleanQuery);
+                pstmt.setInt(3, limit);
+                rs = pstmt.executeQuery();
+                while (rs.next()) {
+                    results.add(mapper.map(rs));
+                }
+                return results;
+            } catch (SQLException e) {
+                if (e.getErrorCode() != MISSING_FULLTEXT_INDEX) {
+                    System.out.println("[ERROR] No se pudo realizar la búsqueda de texto.\nDetalles técnicos: " + e.getMessage());
+                    return results;
+                }
+                fullTextEnabled = false;
+                System.out.println("[ADVERTENCIA] Cartelera no tiene índice FULLTEXT; las búsquedas usarán LIKE.");
+            } finally {
+                closeResources(conn, pstmt, rs);
+            }
+        }
+        return searchWithLike(columns, mapper, SearchKey.normalize(query), limit);
+    }
+
+    /**
+     * Búsqueda de respaldo sin índice FULLTEXT: recorre las claves normalizadas con
+     * LIKE '%texto%' y da prioridad a los títulos que empiezan por el texto.
+     */
+    private <T> List<T> searchWithLike(String columns, RowMapper<T> mapper, String text, int limit) {
+        String sql = "SELECT " + columns + " FROM " + readTable + " WHERE title_key LIKE ? OR director_key LIKE ? "
+                + "ORDER BY title_key LIKE ? DESC, title_key LIKE ? DESC, id ASC LIMIT ?";
+        String contains = "%" + escapeLike(text) + "%";
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        List<T> results = new ArrayList<>();
+        try {
+            conn = readConnection();
+            if (conn == null) return results;
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setString(1, contains);
+            pstmt.setString(2, contains);
+            pstmt.setString(3, escapeLike(text) + "%");
+            pstmt.setString(4, contains);
+            pstmt.setInt(5, limit);
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                results.add(mapper.map(rs));
+            }
+        } catch (SQLException e) {
+            System.out.println("[ERROR] No se pudo realizar la búsqueda de texto.\nDetalles técnicos: " + e.getMessage());
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+        return results;
+    }
+
+    /**
+     * Convierte el texto del usuario en una consulta booleana de MySQL: cada palabra
+     * es obligatoria y se busca como prefijo ("+matr* +reload*"). Los operadores que
+     * escriba el usuario y las palabras vacías de InnoDB se descartan.
+     * @return la consulta, o null si no queda ninguna palabra indexable
+     */
+    static String toBooleanQuery(String text) {
+        StringBuilder query = new StringBuilder();
+        for (String word : text.split("[^\\p{L}\\p{N}]+")) {
+            if (word.length() >= MIN_FULLTEXT_TOKEN && !FULLTEXT_STOPWORDS.contains(word.toLowerCase(Locale.ROOT))) {
+                query.append(query.length() == 0 ? "" : " ").append('+').append(word).append('*');
+            }
+        }
+        return query.length() == 0 ? null : query.toString();
+    }
+
+    /**
+     * Recorre toda la tabla Cartelera con streaming de filas de MySQL: cursor de solo
+     * avance y solo lectura con fetchSize Integer.MIN_VALUE, de modo que el driver
+     * entrega las filas de una en una en lugar de cargar el resultado completo.
+     * La memoria usada no depende del número de filas.
+     * Mientras dure el recorrido la conexión queda ocupada: la acción no debe
+     * hacer otras consultas sobre ella.
+     * @param action acción a aplicar a cada película
+     * @return número de películas recorridas, o -1 si el recorrido falló
+     */
+    @Override
+    public long streamAllMovies(Consumer<? super Movie> action) {
+        String sql = selectMovie + " ORDER BY id ASC";
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        long count = 0;
+        try {
+            conn = readConnection();
+            if (conn == null) return -1;
+            // Sentencia dedicada (no pasa por la caché): mantiene el resultado abierto durante todo el recorrido
+            pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(Integer.MIN_VALUE);
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                action.accept(mapRow(rs));
+                count++;
+            }
+            return count;
+        } catch (SQLException e) {
+            System.out.println("[ERROR] No se pudo recorrer la cartelera (" + count + " película(s) procesadas).\nDetalles técnicos: " + e.getMessage());
+            return -1;
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+    }
+
+    /**
+     * Obtiene una página de películas por clave (WHERE id > ? ... LIMIT), sin OFFSET:
+     * el coste de cada página es constante aunque esté muy adentro de la tabla.
+     * Pide una fila de más para saber si hay una página siguiente.
+     * @param afterId id de la última película de la página anterior (0 para la primera)
+     * @param limit número máximo de películas de la página
+     * @return página de películas ordenadas por ID ascendente; si hubo error, una
+     *         página vacía con {@link MoviePage#isFailed()}
+     */
+    @Override
+    public MoviePage getMoviesPage(int afterId, int limit) {
+        String sql = selectMovie + " WHERE id > ? ORDER BY id ASC LIMIT ?";
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        List<Movie> movies = new ArrayList<>();
+        boolean hasMore = false;
+        try {
+            conn = readConnection();
+            if (conn == null) return MoviePage.failed(afterId);
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setInt(1, afterId);
+            pstmt.setInt(2, limit + 1);
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                if (movies.size() == limit) {
+                    hasMore = true;
+                    break;
+                }
+                movies.add(mapRow(rs));
+            }
+        } catch (SQLException e) {
+            System.out.println("[ERROR] No se pudo obtener la página de películas.\nDetalles técnicos: " + e.getMessage());
+            return MoviePage.failed(afterId);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+        return new MoviePage(movies, afterId, hasMore);
+    }
+
+    /**
+     * Calcula las estadísticas con dos consultas de agregación (totales y los tres
+     * GROUP BY en un solo UNION ALL), sin transferir ninguna película.
+     * @return estadísticas, o null si hubo error
+     */
+    @Override
+    public MovieStats getMovieStats() {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            conn = readConnection();
+            if (conn == null) return null;
+            pstmt = conn.prepareStatement(String.format(STATS_TOTALS, readTable));
+            rs = pstmt.executeQuery();
+            rs.next();
+            long count = rs.getLong(1);
+            long totalDuration = rs.getLong(2);
+            int minYear = rs.getInt(3);
+            int maxYear = rs.getInt(4);
+            rs.close();
+            pstmt.close();
+            rs = null;
+            Map<String, Long> byGenre = new HashMap<>();
+            Map<Integer, Long> byDecade = new HashMap<>();
+            Map<Integer, Long> byDuration = new HashMap<>();
+            pstmt = conn.prepareStatement(String.format(STATS_GROUPS, readTable));
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                String group = rs.getString(1);
+                String key = rs.getString(2);
+                long movies = rs.getLong(3);
+                if ("G".equals(group)) {
+                    byGenre.put(key, movies);
+                } else if ("D".equals(group)) {
+                    byDecade.put(Integer.parseInt(key), movies);
+                } else {
+                    byDuration.put(Integer.parseInt(key), movies);
+                }
+            }
+            return new MovieStats(count, totalDuration, minYear, maxYear, byGenre, byDecade, byDuration);
+        } catch (SQLException e) {
+            System.out.println("[ERROR] No se pudieron calcular las estadísticas de la cartelera.\nDetalles técnicos: " + e.getMessage());
+            return null;
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+    }
+
+    /**
+     * Busca las películas que cumplen los criterios con una única consulta
+     * parametrizada. Solo se añaden al WHERE los criterios con valor, así que
+     * búsquedas con la misma forma reutilizan la sentencia cacheada.
+     * @param criteria criterios de búsqueda
+     * @return películas que cumplen los criterios (lista vacía si hubo error)
+     */
+    @Override
+    public List<Movie> findMovies(MovieCriteria criteria) {
+        StringBuilder sql = new StringBuilder(selectMovie);
+        List<Object> params = new ArrayList<>();
+        appendCondition(sql, params, "genre = ?", criteria.getGenre());
+        appendCondition(sql, params, "director_key = ?",
+                criteria.getDirector() != null ? SearchKey.normalize(criteria.getDirector()) : null);
+        appendCondition(sql, params, "title_key LIKE ?",
+                criteria.getTitleFragment() != null ? "%" + escapeLike(SearchKey.normalize(criteria.getTitleFragment())) + "%" : null);
+        appendCondition(sql, params, "year >= ?", criteria.getMinYear());
+        appendCondition(sql, params, "year <= ?", criteria.getMaxYear());
+        appendCondition(sql, params, "duration >= ?", criteria.getMinDuration());
+        appendCondition(sql, params, "duration <= ?", criteria.getMaxDuration());
+        String direction = criteria.isDescending() ? " DESC" : " ASC";
+        sql.append(" ORDER BY ").append(criteria.getSortField().getColumn()).append(direction);
+        if (criteria.getSortField() != MovieCriteria.SortField.ID) {
+            sql.append(", id").append(direction);
+        }
+        if (criteria.getLimit() > 0) {
+            sql.append(" LIMIT ?");
+            params.add(criteria.getLimit());
+        }
+
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        List<Movie> movies = new ArrayList<>();
+        try {
+            conn = readConnection();
+            if (conn == null) return movies;
+            pstmt = conn.prepareStatement(sql.toString());
+            for (int i = 0; i < params.size(); i++) {
+                pstmt.setObject(i + 1, params.get(i));
+            }
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                movies.add(mapRow(rs));
+            }
+        } catch (SQLException e) {
+            System.out.println("[ERROR] No se pudo realizar la búsqueda con filtros.\nDetalles técnicos: " + e.getMessage());
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+        return movies;
+    }
+
+    private static void appendCondition(StringBuilder sql, List<Object> params, String condition, Object value) {
+        if (value == null) {
+            return;
+        }
+        sql.append(params.isEmpty() ? " WHERE " : " AND ").append(condition);
+        params.add(value);
+    }
+
+    /**
+     * Calcula las claves de búsqueda (title_key, director_key) de las filas que aún
+     * no las tienen: las insertadas por otros clientes sin las columnas. Las filas de
+     * bases de datos anteriores a las columnas se completan en la migración V9.
+     * @return número de filas completadas, o -1 si hubo error
+     */
+    public int refreshSearchKeys() {
+        Connection conn = null;
+        try {
+            conn = connection();
+            if (conn == null) return -1;
+            return fillSearchKeys(conn);
+        } catch (SQLException e) {
+            System.out.println("[ERROR] No se pudieron calcular las claves de búsqueda.\nDetalles técnicos: " + e.getMessage());
+            return -1;
+        } finally {
+            closeResources(conn, null, null);
+        }
+    }
+
+    /**
+     * Calcula las claves de búsqueda de las filas que no las tienen, con un commit
+     * por lote. Una fila cuya clave natural ya tiene otra película (uk_cartelera_natural)
+     * se deja sin clave y se informa en consola, sin detener el resto.
+     * @param conn conexión a usar; se deja con el autocommit que tenía
+     * @return número de filas completadas
+     * @throws SQLException si falla la lectura o una actualización por otro motivo
+     */
+    static int fillSearchKeys(Connection conn) throws SQLException {
+        List<Object[]> pending = new ArrayList<>();
+        try (PreparedStatement select = conn.prepareStatement(
+                     "SELECT id, title, director FROM Cartelera WHERE title_key IS NULL OR director_key IS NULL");
+             ResultSet rs = select.executeQuery()) {
+            while (rs.next()) {
+                pending.add(new Object[] { SearchKey.normalize(rs.getString(2)), SearchKey.normalize(rs.getString(3)), rs.getInt(1) });
+            }
+        }
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        // updated_at se conserva: las claves no cambian los datos ni la versión
+        String update = "UPDATE Cartelera SET title_key = ?, director_key = ?, updated_at = updated_at WHERE id = ?";
+        List<Integer> duplicates = new ArrayList<>();
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement pstmt = conn.prepareStatement(update)) {
+            for (int start = 0; start < pending.size(); start += BATCH_SIZE) {
+                List<Object[]> batch = pending.subList(start, Math.min(start + BATCH_SIZE, pending.size()));
+                try {
+                    for (Object[] row : batch) {
+                        bindParams(pstmt, 1, row);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                } catch (BatchUpdateException e) {
+                    if (e.getErrorCode() != DUPLICATE_KEY) {
+                        throw e;
+                    }
+                    // Se repite el lote fila a fila para saber cuáles chocan con otra película
+                    pstmt.clearBatch();
+                    for (Object[] row : batch) {
+                        try {
+                            bindParams(pstmt, 1, row);
+                            pstmt.executeUpdate();
+                        } catch (SQLException rowError) {
+                            if (rowError.getErrorCode() != DUPLICATE_KEY) {
+                                throw rowError;
+                            }
+                            duplicates.add((Integer) row[2]);
+                        }
+                    }
+                }
+                conn.commit();
+            }
+        } catch (SQLException e) {
+            rollbackQuietly(conn);
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        int refreshed = pending.size() - duplicates.size();
+        System.out.println("[INFO] Claves de búsqueda calculadas para " + refreshed + " película(s).");
+        if (!duplicates.isEmpty()) {
+            System.out.println("[ADVERTENCIA] " + duplicates.size() + " película(s) repiten el título, año y director de otra "
+                    + "y quedan sin clave de búsqueda (no aparecerán en las búsquedas por título o director): ids " + duplicates);
+        }
+        return refreshed;
+    }
+
+    /**
+     * Escapa los comodines de LIKE para que el fragmento se busque literalmente.
+     */
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
     /**
      * Elimina todas las películas con el título especificado (usado para limpieza en tests).
      * @param title Título de la película a eliminar
      * @return número de filas eliminadas
      */
+    @Override
     public int deleteMoviesByTitle(String title) {
         String sql = "DELETE FROM Cartelera WHERE title = ?";
         Connection conn = null;
         PreparedStatement pstmt = null;
         try {
-            conn = DBConnection.getConnection();
+            conn = connection();
             if (conn == null) return 0;
+            conn.setAutoCommit(false);
+            recordTombstones(conn, "title = ?", title);
             pstmt = conn.prepareStatement(sql);
             pstmt.setString(1, title);
             int rows = pstmt.executeUpdate();
+            conn.commit();
             return rows;
         } catch (SQLException e) {
             System.out.println("[ERROR] No se pudo eliminar la(s) película(s) con el título indicado. Por favor, verifica la conexión a la base de datos.\nDetalles técnicos: " + e.getMessage());
+            rollbackQuietly(conn);
             return 0;
         } finally {
             closeResources(conn, pstmt, null);
         }
     }
 
+    /**
+     * Registra en Cartelera_eliminadas las filas que se van a eliminar, en la
+     * transacción de la eliminación y con la hora del servidor. Si la tabla no existe se avisa una vez y la
+     * eliminación continúa; los cambios se sirven entonces como recargas completas.
+     * @param where condición de la eliminación
+     * @param params parámetros de la condición
+     */
+    private void recordTombstones(Connection conn, String where, Object... params) throws SQLException {
+        if (!tombstonesEnabled) {
+            return;
+        }
+        String sql = "INSERT INTO Cartelera_eliminadas (id, deleted_at) SELECT id, CURRENT_TIMESTAMP(3) FROM Cartelera WHERE " + where
+                + " ON DUPLICATE KEY UPDATE deleted_at = VALUES(deleted_at)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bindParams(pstmt, 1, params);
+            pstmt.executeUpdate();
+        } catch (SQLException e) {
+            if (e.getErrorCode() != MISSING_TABLE) {
+                throw e;
+            }
+            tombstonesEnabled = false;
+            System.out.println("[ADVERTENCIA] No existe la tabla Cartelera_eliminadas; las vistas recargarán la cartelera completa.");
+        }
+    }
+
+    /**
+     * Devuelve las películas agregadas o modificadas y los ids eliminados desde la
+     * marca de agua. Usa los índices de updated_at y de Cartelera_eliminadas, así
+     * que el coste depende de lo que cambió y no del tamaño de la cartelera. Cada
+     * consulta repite los últimos magenta.dao.changeFeedOverlapMs milisegundos
+     * (las vistas aplican los cambios de forma idempotente). La marca devuelta es la
+     * mayor versión o eliminación vista, ambas con la hora del servidor, así que no
+     * depende del reloj de ningún cliente. Con la marca 0, una
+     * marca más antigua que la retención de eliminaciones o sin la tabla de
+     * eliminaciones devuelve la cartelera completa.
+     * @param since marca de agua de la consulta anterior, o 0
+     * @return cambios y nueva marca; sin cambios y con la misma marca si hubo error
+     */
+    @Override
+    public MovieChanges getMoviesChangedSince(long since) {
+        if (since <= 0 || includeArchive || !tombstonesEnabled || since < System.currentTimeMillis() - TOMBSTONE_RETENTION_MS) {
+            List<Movie> all = new ArrayList<>();
+            long[] watermark = { since };
+            long loaded = streamAllMovies(movie -> {
+                all.add(movie);
+                watermark[0] = Math.max(watermark[0], movie.getVersion());
+            });
+            return loaded < 0 ? new MovieChanges(new ArrayList<>(), new ArrayList<>(), since, false)
+                    : new MovieChanges(all, new ArrayList<>(), watermark[0], true);
+        }
+        Timestamp from = new Timestamp(since - CHANGE_FEED_OVERLAP_MS);
+        List<Movie> changed = new ArrayList<>();
+        List<Integer> deletedIds = new ArrayList<>();
+        long watermark = since;
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            conn = readConnection();
+            if (conn == null) return new MovieChanges(changed, deletedIds, since, false);
+            pstmt = conn.prepareStatement(SELECT_MOVIE + " WHERE updated_at > ? ORDER BY id ASC");
+            pstmt.setTimestamp(1, from);
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                Movie movie = mapRow(rs);
+                changed.add(movie);
+                watermark = Math.max(watermark, movie.getVersion());
+            }
+            rs.close();
+            pstmt.close();
+            rs = null;
+            pstmt = conn.prepareStatement("SELECT id, deleted_at FROM Cartelera_eliminadas WHERE deleted_at > ?");
+            pstmt.setTimestamp(1, from);
+            rs = pstmt.executeQuery();
+            while (rs.next()) {
+                deletedIds.add(rs.getInt(1));
+                watermark = Math.max(watermark, rs.getTimestamp(2).getTime());
+            }
+            return new MovieChanges(changed, deletedIds, watermark, false);
+        } catch (SQLException e) {
+            if (e.getErrorCode() == MISSING_TABLE) {
+                // Sin registro de eliminaciones: la próxima consulta recarga la cartelera completa
+                tombstonesEnabled = false;
+                System.out.println("[ADVERTENCIA] No existe la tabla Cartelera_eliminadas; las vistas recargarán la cartelera completa.");
+            } else {
+                System.out.println("[ERROR] No se pudieron consultar los cambios de la cartelera.\nDetalles técnicos: " + e.getMessage());
+            }
+            return new MovieChanges(new ArrayList<>(), new ArrayList<>(), since, false);
+        } finally {
+            closeResources(conn, pstmt, rs);
+        }
+    }
+
+    /**
+     * Ejecuta el trabajo en una {@link UnitOfWork}: todas las operaciones del DAO
+     * que haga en este hilo usan la misma conexión y se confirman con un solo commit.
+     * @param work operaciones de la unidad; devuelve true para confirmarlas
+     * @return true si la unidad se confirmó
+     */
+    @Override
+    public boolean runInTransaction(BooleanSupplier work) {
+        return UnitOfWork.run(dataSource, work::getAsBoolean);
+    }
+
+    /**
+     * Olvida las eliminaciones más antiguas que magenta.dao.tombstoneRetentionHours.
+     * Las vistas con una marca anterior reciben la cartelera completa.
+     * @return número de eliminaciones olvidadas, o -1 si hubo error
+     */
+    public int purgeTombstones() {
+        if (!tombstonesEnabled) {
+            return 0;
+        }
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        try {
+            conn = connection();
+            if (conn == null) return -1;
+            pstmt = conn.prepareStatement("DELETE FROM Cartelera_eliminadas WHERE deleted_at < CURRENT_TIMESTAMP(3) - INTERVAL ? SECOND");
+            pstmt.setLong(1, TOMBSTONE_RETENTION_MS / 1000);
+            return pstmt.executeUpdate();
+        } catch (SQLException e) {
+            System.out.println("[ADVERTENCIA] No se pudieron depurar las eliminaciones antiguas.\nDetalles técnicos: " + e.getMessage());
+            return -1;
+        } finally {
+            closeResources(conn, pstmt, null);
+        }
+    }
+
+    /**
+     * Marca una película como activa o inactiva sin cambiar su versión. El
+     * archivado ({@link #archiveColdMovies()}) mueve las inactivas a Cartelera_archivo.
+     * @param id identificador de la película
+     * @param active false para archivarla en la próxima pasada
+     * @return true si la película existe en Cartelera
+     */
+    public boolean setMovieActive(int id, boolean active) {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        try {
+            conn = connection();
+            if (conn == null) return false;
+            pstmt = conn.prepareStatement("UPDATE Cartelera SET active = ?, updated_at = updated_at WHERE id = ?");
+            pstmt.setBoolean(1, active);
+            pstmt.setInt(2, id);
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.out.println("[ERROR] No se pudo cambiar el estado de la película.\nDetalles técnicos: " + e.getMessage());
+            return false;
+        } finally {
+            closeResources(conn, pstmt, null);
+        }
+    }
+
+    /**
+     * Mueve a Cartelera_archivo las películas inactivas y, si magenta.archive.maxAgeDays
+     * es mayor que 0, las agregadas hace más de esa cantidad de días. Cada lote de
+     * magenta.dao.batchSize películas se copia al archivo, se registra como
+     * eliminación (las vistas lo quitan con los cambios incrementales) y se borra de
+     * Cartelera en una transacción, así que Cartelera solo conserva las vigentes.
+     * @return número de películas archivadas, o -1 si hubo error o falta el archivo
+     */
+    public int archiveColdMovies() {
+        if (!archiveEnabled) {
+            return 0;
+        }
+        String condition = ARCHIVE_MAX_AGE_MS > 0 ? "active = FALSE OR created_at < ?" : "active = FALSE";
+        Timestamp cutoff = new Timestamp(System.currentTimeMillis() - ARCHIVE_MAX_AGE_MS);
+        int archived = 0;
+        Connection conn = null;
+        try {
+            conn = connection();
+            if (conn == null) return -1;
+            conn.setAutoCommit(false);
+            int moved;
+            do {
+                moved = archiveBatch(conn, condition, cutoff);
+                conn.commit();
+                archived += moved;
+            } while (moved == BATCH_SIZE);
+            if (archived > 0) {
+                System.out.println("[INFO] Se archivaron " + archived + " película(s) en Cartelera_archivo.");
+            }
+            return archived;
+        } catch (SQLException e) {
+            rollbackQuietly(conn);
+            if (e.getErrorCode() == MISSING_TABLE || e.getErrorCode() == UNKNOWN_COLUMN) {
+                archiveEnabled = false;
+                System.out.println("[ADVERTENCIA] La base de datos no tiene Cartelera_archivo o la columna active; no se archivarán películas.");
+            } else {
+                System.out.println("[ERROR] No se pudieron archivar las películas antiguas.\nDetalles técnicos: " + e.getMessage());
+            }
+            return -1;
+        } finally {
+            closeResources(conn, null, null);
+        }
+    }
+
+    /**
+     * Archiva un lote: bloquea las filas elegidas, las copia al archivo y las borra.
+     * @return número de películas archivadas
+     */
+    private int archiveBatch(Connection conn, String condition, Timestamp cutoff) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT id FROM Cartelera WHERE " + condition + " ORDER BY id LIMIT ? FOR UPDATE")) {
+            int param = 1;
+            if (ARCHIVE_MAX_AGE_MS > 0) {
+                pstmt.setTimestamp(param++, cutoff);
+            }
+            pstmt.setInt(param, BATCH_SIZE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        StringBuilder where = new StringBuilder("id IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            where.append(i == 0 ? "?" : ", ?");
+        }
+        where.append(')');
+        Object[] params = ids.toArray();
+        recordTombstones(conn, where.toString(), params);
+        try (PreparedStatement copy = conn.prepareStatement("INSERT INTO Cartelera_archivo (" + ARCHIVE_COLUMNS
+                + ") SELECT " + ARCHIVE_COLUMNS + " FROM Cartelera WHERE " + where)) {
+            bindParams(copy, 1, params);
+            copy.executeUpdate();
+        }
+        try (PreparedStatement delete = conn.prepareStatement("DELETE FROM Cartelera WHERE " + where)) {
+            bindParams(delete, 1, params);
+            return delete.executeUpdate();
+        }
+    }
+
+    /**
+     * Devuelve una película archivada a Cartelera con su mismo id, como recién
+     * agregada (nueva versión y fecha de alta, para que no vuelva a archivarse por
+     * antigüedad).
+     * @param id identificador de la película archivada
+     * @return true si se restauró; false si no está archivada, ya existe una
+     *         película con la misma clave natural o hubo error
+     */
+    public boolean restoreMovie(int id) {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        try {
+            conn = connection();
+            if (conn == null) return false;
+            conn.setAutoCommit(false);
+            pstmt = conn.prepareStatement("INSERT INTO Cartelera (id, title, director, year, duration, genre, title_key, director_key, updated_at) "
+                    + "SELECT id, title, director, year, duration, genre, title_key, director_key, " + NEXT_VERSION
+                    + " FROM Cartelera_archivo WHERE id = ?");
+            pstmt.setInt(1, id);
+            if (pstmt.executeUpdate() == 0) {
+                conn.rollback();
+                System.out.println("[ERROR] No se encontró ninguna película archivada con id=" + id + ".");
+                return false;
+            }
+            pstmt.close();
+            pstmt = conn.prepareStatement("DELETE FROM Cartelera_archivo WHERE id = ?");
+            pstmt.setInt(1, id);
+            pstmt.executeUpdate();
+            conn.commit();
+            System.out.println("[SUCCESS] Película con id=" + id + " restaurada desde el archivo.");
+            return true;
+        } catch (SQLException e) {
+            rollbackQuietly(conn);
+            if (e.getErrorCode() == DUPLICATE_KEY) {
+                System.out.println("[ERROR] Ya existe en la cartelera una película con el mismo título, año y director; no se restauró.");
+            } else {
+                System.out.println("[ERROR] No se pudo restaurar la película archivada.\nDetalles técnicos: " + e.getMessage());
+            }
+            return false;
+        } finally {
+            closeResources(conn, pstmt, null);
+        }
+    }
+
+    private static void bindParams(PreparedStatement pstmt, int firstIndex, Object... params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            pstmt.setObject(firstIndex + i, params[i]);
+        }
+    }
+
+    /**
+     * Convierte la fila actual del ResultSet en un Movie. Lee por índice de columna
+     * (ver SELECT_MOVIE) y usa Movie.fromTrustedData(), sin las validaciones de los
+     * setters: las filas ya se validaron al insertarse.
+     * @param rs resultset posicionado en una fila
+     * @return película de la fila actual
+     * @throws SQLException si falla la lectura de columnas
+     */
+    static Movie mapRow(ResultSet rs) throws SQLException {
+        Timestamp updatedAt = rs.getTimestamp(7);
+        return Movie.fromTrustedData(rs.getInt(1), rs.getString(2), rs.getString(3),
+                rs.getInt(4), rs.getInt(5), rs.getString(6), updatedAt != null ? updatedAt.getTime() : 0);
+    }
+
+    /**
+     * Convierte una fila de SUMMARY_COLUMNS en un resumen, sin crear la película.
+     */
+    static MovieSummary mapSummary(ResultSet rs) throws SQLException {
+        return new MovieSummary(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getString(4));
+    }
+
+    /**
+     * Conversión de la fila actual de un ResultSet.
+     */
+    private interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Deshace la transacción en curso sin propagar errores (la conexión se descarta
+     * o se restaura al devolverse al pool).
+     * @param conn conexión con la transacción abierta, o null
+     */
+    private static void rollbackQuietly(Connection conn) {
+        try {
+            if (conn != null) conn.rollback();
+        } catch (SQLException e) {
+            System.out.println("[ADVERTENCIA] No se pudo deshacer la transacción.\nDetalles técnicos: " + e.getMessage());
+        }
+    }
+
     /**
      * Cierra recursos JDBC abiertos (conexión, statement, resultset).
+     * La conexión no se cierra físicamente: se devuelve al pool de DBConnection.
      * @param conn conexión a cerrar
      * @param stmt statement a cerrar
      * @param rs resultset a cerrar
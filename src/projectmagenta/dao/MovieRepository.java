@@ -0,0 +1,422 @@
+package projectmagenta.dao;
+
+import projectmagenta.model.Movie;
+import projectmagenta.model.MovieChanges;
+import projectmagenta.model.MovieCriteria;
+import projectmagenta.model.MoviePage;
+import projectmagenta.model.MovieStats;
+import projectmagenta.model.MovieSummary;
+import projectmagenta.model.SearchKey;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Contrato de almacenamiento de películas.
+ * Lo implementan {@link MovieDAO} (MySQL vía JDBC), {@link InMemoryMovieRepository}
+ * (memoria, concurrente), {@link FileMovieRepository} (archivo local embebido) y
+ * {@link ShardedMovieRepository} (varios repositorios repartidos por id).
+ * El backend activo se elige al arrancar con {@link MovieRepositoryFactory}.
+ * @author Alex Fernandez
+ */
+public interface MovieRepository {
+
+    /**
+     * Inserta una nueva película.
+     * @param movie Objeto Movie a insertar
+     * @return true si la inserción fue exitosa, false si hubo error o datos inválidos
+     */
+    boolean addMovie(Movie movie);
+
+    /**
+     * Inserta varias películas. Cada película se valida por separado: las inválidas
+     * se informan en el resultado sin impedir la inserción de las demás. Las
+     * películas insertadas reciben su id generado.
+     * La implementación por defecto inserta una a una con addMovie().
+     * @param movies películas a insertar
+     * @return ids generados y filas rechazadas
+     */
+    default BatchInsertResult addMovies(List<Movie> movies) {
+        BatchInsertResult result = new BatchInsertResult();
+        for (int i = 0; i < movies.size(); i++) {
+            Movie movie = movies.get(i);
+            String error = validateForInsert(movie);
+            if (error != null) {
+                result.addFailure(i, error);
+            } else if (addMovie(movie)) {
+                result.addGeneratedId(movie.getId());
+            } else {
+                result.addFailure(i, "No se pudo guardar la película");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Comprueba si una película puede insertarse.
+     * @param movie película a comprobar
+     * @return null si es válida, o el motivo del rechazo
+     */
+    static String validateForInsert(Movie movie) {
+        if (movie == null) {
+            return "Los datos de la película son requeridos";
+        }
+        try {
+            movie.validate();
+            return null;
+        } catch (IllegalArgumentException e) {
+            return "Error de validación: " + e.getMessage();
+        }
+    }
+
+    /**
+     * Sincroniza películas por su clave natural (título, año y director, sin
+     * distinguir mayúsculas ni tildes): inserta las que no existen, actualiza las
+     * que cambiaron y no toca las que ya están al día, así que repetir la misma
+     * lista no modifica ninguna fila. Las películas existentes reciben el id
+     * almacenado y las insertadas su id generado.
+     * La implementación por defecto recorre la cartelera una vez y usa addMovie()
+     * y updateMovie().
+     * @param movies películas a sincronizar
+     * @return filas insertadas, actualizadas, sin cambios y rechazadas
+     */
+    default UpsertResult upsertMovies(List<Movie> movies) {
+        UpsertResult result = new UpsertResult();
+        Map<String, Movie> stored = new HashMap<>();
+        if (streamAllMovies(movie -> stored.put(naturalKey(movie), movie)) < 0) {
+            for (int i = 0; i < movies.size(); i++) {
+                result.addFailure(i, "No se pudo leer la cartelera");
+            }
+            return result;
+        }
+        Map<String, Integer> seen = new HashMap<>();
+        for (int i = 0; i < movies.size(); i++) {
+            Movie movie = movies.get(i);
+            String error = validateForUpsert(movie, i, seen);
+            if (error != null) {
+                result.addFailure(i, error);
+                continue;
+            }
+            Movie existing = stored.get(naturalKey(movie));
+            if (existing == null) {
+                if (addMovie(movie)) {
+                    result.addInserted(i);
+                } else {
+                    result.addFailure(i, "No se pudo guardar la película");
+                }
+                continue;
+            }
+            movie.setId(existing.getId());
+            movie.setVersion(existing.getVersion());
+            if (sameData(existing, movie)) {
+                result.addUnchanged(i);
+            } else if (updateMovie(movie)) {
+                result.addUpdated(i);
+            } else {
+                result.addFailure(i, "No se pudo actualizar la película");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Comprueba si una película puede sincronizarse: debe ser válida y su clave
+     * natural no puede repetirse en la misma lista.
+     * @param movie película a comprobar
+     * @param index posición en la lista de entrada
+     * @param seen claves naturales ya vistas en la lista, con su posición
+     * @return null si es válida, o el motivo del rechazo
+     */
+    static String validateForUpsert(Movie movie, int index, Map<String, Integer> seen) {
+        String error = validateForInsert(movie);
+        if (error != null) {
+            return error;
+        }
+        Integer first = seen.putIfAbsent(naturalKey(movie), index);
+        return first == null ? null : "Película repetida en la lista (misma clave que la fila " + first + ")";
+    }
+
+    /**
+     * Clave natural de una película: título, año y director normalizados.
+     * @param movie película
+     * @return clave para comparar películas entre fuentes
+     */
+    static String naturalKey(Movie movie) {
+        return movie.getTitleKey() + '\u0000' + movie.getYear() + '\u0000' + movie.getDirectorKey();
+    }
+
+    /**
+     * @return true si las dos películas tienen exactamente los mismos datos (sin contar el id)
+     */
+    static boolean sameData(Movie a, Movie b) {
+        return Objects.equals(a.getTitle(), b.getTitle()) && Objects.equals(a.getDirector(), b.getDirector())
+                && a.getYear() == b.getYear() && a.getDuration() == b.getDuration()
+                && Objects.equals(a.getGenre(), b.getGenre());
+    }
+
+    /**
+     * Actualiza los datos de una película existente por su id. Si la película trae
+     * versión (ver {@link Movie#getVersion()}), solo se actualiza cuando la fila no
+     * cambió desde que se leyó; al terminar, la película recibe la nueva versión.
+     * @param movie Objeto Movie con los datos actualizados (debe tener id válido)
+     * @return true si la actualización fue exitosa, false si no existe, cambió o hubo error
+     */
+    boolean updateMovie(Movie movie);
+
+    /**
+     * Elimina una película por su id.
+     * @param id identificador único de la película
+     * @return true si la eliminación fue exitosa, false si hubo error
+     */
+    boolean deleteMovieById(int id);
+
+    /**
+     * Elimina una película solo si no cambió desde que se leyó.
+     * La implementación por defecto compara la versión y luego elimina, sin atomicidad.
+     * @param id identificador único de la película
+     * @param version versión leída (ver {@link Movie#getVersion()}); 0 para no comprobarla
+     * @return true si se eliminó, false si no existe, cambió o hubo error
+     */
+    default boolean deleteMovieById(int id, long version) {
+        if (version > 0) {
+            Movie current = findMovieById(id);
+            if (current == null || current.getVersion() != version) {
+                return false;
+            }
+        }
+        return deleteMovieById(id);
+    }
+
+    /**
+     * Devuelve las películas agregadas o modificadas y los ids eliminados desde una
+     * marca de agua, para que las vistas se actualicen sin recargar la cartelera.
+     * La implementación por defecto no registra eliminaciones: devuelve siempre la
+     * cartelera completa ({@link MovieChanges#isFullReload()}).
+     * @param since marca de agua de la consulta anterior ({@link MovieChanges#getWatermark()}), o 0
+     * @return cambios y nueva marca de agua
+     */
+    default MovieChanges getMoviesChangedSince(long since) {
+        List<Movie> all = getAllMovies();
+        long watermark = since;
+        for (Movie movie : all) {
+            watermark = Math.max(watermark, movie.getVersion());
+        }
+        return new MovieChanges(all, new ArrayList<>(), watermark, true);
+    }
+
+    /**
+     * Ejecuta varias operaciones del repositorio como una unidad: se confirman todas
+     * si el trabajo devuelve true, o ninguna si devuelve false o falla.
+     * La implementación por defecto ejecuta el trabajo sin atomicidad; el DAO JDBC
+     * lo ejecuta en una única conexión y transacción ({@link UnitOfWork}).
+     * @param work operaciones de la unidad; devuelve true para confirmarlas
+     * @return true si la unidad se confirmó
+     */
+    default boolean runInTransaction(BooleanSupplier work) {
+        return work.getAsBoolean();
+    }
+
+    /**
+     * Calcula la versión de una escritura: la hora actual en milisegundos, siempre
+     * mayor que la versión anterior aunque coincidan en el mismo milisegundo.
+     * Solo para los repositorios que guardan los datos en este proceso (memoria,
+     * archivo); {@link MovieDAO} toma la versión del reloj del servidor, que
+     * comparten todos los clientes.
+     * @param current versión anterior, o 0
+     * @return nueva versión
+     */
+    static long nextVersion(long current) {
+        return Math.max(System.currentTimeMillis(), current + 1);
+    }
+
+    /**
+     * Elimina todas las películas con el título especificado (usado para limpieza en tests).
+     * @param title Título de la película a eliminar
+     * @return número de películas eliminadas
+     */
+    int deleteMoviesByTitle(String title);
+
+    /**
+     * Busca una película por su título exacto.
+     * @param title Título de la película a buscar
+     * @return Objeto Movie si se encuentra, null si no existe
+     */
+    Movie findMovieByTitle(String title);
+
+    /**
+     * Busca una película por su ID.
+     * @param id Identificador único de la película
+     * @return Objeto Movie si se encuentra, null si no existe
+     */
+    Movie findMovieById(int id);
+
+    /**
+     * Busca películas cuyos títulos contengan una cadena específica.
+     * @param partialTitle Cadena parcial del título a buscar
+     * @return Lista de objetos Movie que coincidan con la búsqueda
+     */
+    List<Movie> findMoviesByPartialTitle(String partialTitle);
+
+    /**
+     * Obtiene todas las películas.
+     * @return Lista de todas las películas ordenadas por ID ascendente
+     */
+    List<Movie> getAllMovies();
+
+    /**
+     * Recorre todas las películas en orden de id entregándolas una a una, sin
+     * construir una lista con toda la cartelera (para exportaciones y reconstrucción
+     * de cachés). La implementación por defecto recorre getAllMovies().
+     * @param action acción a aplicar a cada película
+     * @return número de películas recorridas, o -1 si el recorrido falló
+     */
+    default long streamAllMovies(Consumer<? super Movie> action) {
+        long count = 0;
+        for (Movie movie : getAllMovies()) {
+            action.accept(movie);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Obtiene una página de películas con id mayor que afterId, ordenadas por id.
+     * La implementación por defecto filtra getAllMovies(); los backends la
+     * sobrescriben para leer solo la página.
+     * @param afterId cursor: id de la última película de la página anterior (0 para la primera)
+     * @param limit número máximo de películas de la página
+     * @return página de películas y si hay más después
+     */
+    default MoviePage getMoviesPage(int afterId, int limit) {
+        List<Movie> page = new ArrayList<>();
+        boolean hasMore = false;
+        for (Movie movie : getAllMovies()) {
+            if (movie.getId() <= afterId) {
+                continue;
+            }
+            if (page.size() == limit) {
+                hasMore = true;
+                break;
+            }
+            page.add(movie);
+        }
+        return new MoviePage(page, afterId, hasMore);
+    }
+
+    /**
+     * Calcula las estadísticas de la cartelera (películas por género, década y tramo
+     * de duración, duración total y años extremos). La implementación por defecto
+     * recorre la cartelera con streamAllMovies(); el DAO JDBC las agrega en MySQL.
+     * @return estadísticas, o null si no se pudo recorrer la cartelera
+     */
+    default MovieStats getMovieStats() {
+        Map<String, Long> byGenre = new HashMap<>();
+        Map<Integer, Long> byDecade = new HashMap<>();
+        Map<Integer, Long> byDuration = new HashMap<>();
+        long[] totals = new long[1];
+        int[] years = { Integer.MAX_VALUE, 0 };
+        long count = streamAllMovies(movie -> {
+            byGenre.merge(movie.getGenre(), 1L, Long::sum);
+            byDecade.merge(MovieStats.decadeOf(movie.getYear()), 1L, Long::sum);
+            byDuration.merge(MovieStats.durationBucketOf(movie.getDuration()), 1L, Long::sum);
+            totals[0] += movie.getDuration();
+            years[0] = Math.min(years[0], movie.getYear());
+            years[1] = Math.max(years[1], movie.getYear());
+        });
+        if (count < 0) {
+            return null;
+        }
+        return new MovieStats(count, totals[0], count == 0 ? 0 : years[0], years[1], byGenre, byDecade, byDuration);
+    }
+
+    /**
+     * Busca las películas que cumplen los criterios, en el orden y con el límite
+     * indicados. La implementación por defecto recorre toda la cartelera con
+     * streamAllMovies(); el DAO JDBC resuelve el filtro en una sola consulta.
+     * @param criteria criterios de búsqueda
+     * @return películas que cumplen los criterios
+     */
+    default List<Movie> findMovies(MovieCriteria criteria) {
+        List<Movie> result = new ArrayList<>();
+        streamAllMovies(movie -> {
+            if (criteria.matches(movie)) {
+                result.add(movie);
+            }
+        });
+        result.sort(criteria.comparator());
+        if (criteria.getLimit() > 0 && result.size() > criteria.getLimit()) {
+            return new ArrayList<>(result.subList(0, criteria.getLimit()));
+        }
+        return result;
+    }
+
+    /**
+     * Búsqueda de texto libre en título y director, de la coincidencia más relevante
+     * a la menos relevante. La implementación por defecto recorre la cartelera y
+     * puntúa con {@link #textRank(Movie, String)}; el DAO JDBC usa un índice FULLTEXT.
+     * @param query texto a buscar
+     * @param limit número máximo de resultados
+     * @return películas encontradas, ordenadas por relevancia
+     */
+    default List<Movie> searchMovies(String query, int limit) {
+        String needle = SearchKey.normalize(query);
+        List<Movie> result = new ArrayList<>();
+        streamAllMovies(movie -> {
+            if (textRank(movie, needle) > 0) {
+                result.add(movie);
+            }
+        });
+        result.sort(Comparator.comparingInt((Movie movie) -> textRank(movie, needle)).reversed()
+                .thenComparingInt(Movie::getId));
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    /**
+     * Búsqueda de texto para listas de resultados: como
+     * {@link #searchMovies(String, int)}, pero devuelve solo id, título, año y
+     * director. La implementación por defecto resume searchMovies(); el DAO JDBC
+     * lee solo esas columnas.
+     * @param query texto a buscar
+     * @param limit número máximo de resultados
+     * @return resúmenes de las películas encontradas, ordenados por relevancia
+     */
+    default List<MovieSummary> searchMovieSummaries(String query, int limit) {
+        List<MovieSummary> summaries = new ArrayList<>();
+        for (Movie movie : searchMovies(query, limit)) {
+            summaries.add(MovieSummary.of(movie));
+        }
+        return summaries;
+    }
+
+    /**
+     * Relevancia de una película para la búsqueda sin índice: 3 si el título
+     * empieza por el texto, 2 si lo contiene, 1 si lo contiene el director.
+     * @param movie película a puntuar
+     * @param needle texto buscado, normalizado con {@link SearchKey#normalize(String)}
+     * @return relevancia, 0 si no coincide
+     */
+    static int textRank(Movie movie, String needle) {
+        return textRank(movie.getTitleKey(), movie.getDirectorKey(), needle);
+    }
+
+    /**
+     * @param titleKey título normalizado
+     * @param directorKey director normalizado
+     * @param needle texto buscado, normalizado
+     * @return relevancia, 0 si no coincide (ver {@link #textRank(Movie, String)})
+     */
+    static int textRank(String titleKey, String directorKey, String needle) {
+        if (titleKey.startsWith(needle)) {
+            return 3;
+        }
+        if (titleKey.contains(needle)) {
+            return 2;
+        }
+        return directorKey.contains(needle) ? 1 : 0;
+    }
+}
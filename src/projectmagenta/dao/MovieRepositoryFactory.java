@@ -0,0 +1,90 @@
+package projectmagenta.dao;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Selecciona al arrancar el backend de almacenamiento de películas y lo comparte
+ * entre el controlador y todas las vistas.
+ * El backend se configura con {@code magenta.repository} (ver {@link DBConfig}):
+ * <ul>
+ *   <li>{@code jdbc} (por defecto): MySQL mediante {@link MovieDAO}; con
+ *       {@code magenta.db.shards}, un {@link ShardedMovieRepository} con un DAO por
+ *       base de datos (la primaria es el shard 0)</li>
+ *   <li>{@code memory}: {@link InMemoryMovieRepository}, sin persistencia</li>
+ *   <li>{@code file}: {@link FileMovieRepository} sobre {@code magenta.repository.file}</li>
+ * </ul>
+ * @author Alex Fernandez
+ */
+public class MovieRepositoryFactory {
+    private static final String BACKEND = DBConfig.getString("magenta.repository", "jdbc").toLowerCase();
+    private static final String DATA_FILE = DBConfig.getString("magenta.repository.file", "cartelera.db");
+
+    private static MovieRepository repository;
+
+    private MovieRepositoryFactory() {
+    }
+
+    /**
+     * Devuelve el repositorio compartido, creándolo en el primer uso.
+     * @return repositorio configurado
+     */
+    public static synchronized MovieRepository getRepository() {
+        if (repository == null) {
+            repository = create(BACKEND);
+        }
+        return repository;
+    }
+
+    /**
+     * Indica si el backend configurado necesita el servidor MySQL.
+     * @return true si el backend es jdbc
+     */
+    public static boolean requiresDatabase() {
+        return "jdbc".equals(BACKEND);
+    }
+
+    /**
+     * @return nombre del backend configurado
+     */
+    public static String getBackendName() {
+        return BACKEND;
+    }
+
+    /**
+     * Crea un repositorio nuevo del tipo indicado (útil para pruebas y benchmarks).
+     * @param backend jdbc, memory o file
+     * @return repositorio nuevo
+     * @throws IllegalArgumentException si el backend no existe o el archivo no se puede abrir
+     */
+    public static MovieRepository create(String backend) {
+        switch (backend) {
+            case "jdbc":
+                return DBConnection.getShardCount() > 0 ? createSharded() : new MovieDAO();
+            case "memory":
+                return new InMemoryMovieRepository();
+            case "file":
+                try {
+                    return new FileMovieRepository(Paths.get(DATA_FILE));
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("No se pudo abrir el archivo de datos " + DATA_FILE + ": " + e.getMessage(), e);
+                }
+            default:
+                throw new IllegalArgumentException("Backend de almacenamiento desconocido: " + backend);
+        }
+    }
+
+    /**
+     * @return repositorio con la primaria y los shards de magenta.db.shards
+     */
+    private static MovieRepository createSharded() {
+        List<MovieRepository> shards = new ArrayList<>();
+        shards.add(new MovieDAO());
+        for (PooledDataSource dataSource : DBConnection.getShardDataSources()) {
+            shards.add(new MovieDAO(dataSource));
+        }
+        return new ShardedMovieRepository(shards);
+    }
+}
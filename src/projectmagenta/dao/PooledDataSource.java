@@ -0,0 +1,105 @@
+package projectmagenta.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+
+/**
+ * Una instancia de base de datos (primaria o réplica) con su propio pool de conexiones
+ * y su propio cortocircuito.
+ * @author Alex Fernandez
+ */
+public class PooledDataSource {
+    private final String name;
+    private final ConnectionPool pool;
+    private final CircuitBreaker breaker;
+
+    /**
+     * @param name nombre descriptivo de la instancia (para los mensajes de consola)
+     * @param pool pool de conexiones de la instancia
+     * @param failureThreshold fallos consecutivos que abren el circuito
+     * @param baseBackoffMillis espera antes del primer sondeo
+     * @param maxBackoffMillis espera máxima entre sondeos
+     */
+    public PooledDataSource(String name, ConnectionPool pool, int failureThreshold,
+                            long baseBackoffMillis, long maxBackoffMillis) {
+        this.name = name;
+        this.pool = pool;
+        this.breaker = new CircuitBreaker(name, failureThreshold, baseBackoffMillis, maxBackoffMillis, () -> {
+            try (Connection conn = pool.borrow()) {
+                return conn.isValid(2);
+            }
+        });
+    }
+
+    /**
+     * Obtiene una conexión del pool. Si el circuito está abierto devuelve null de
+     * inmediato, sin intentar conectar.
+     * @return una instancia de Connection si es exitosa, null si falla
+     */
+    public Connection getConnection() {
+        return getConnection(null);
+    }
+
+    /**
+     * Obtiene una conexión del pool como {@link #getConnection()} y ejecuta una acción
+     * cuando se devuelve.
+     * @param onReturn acción que se ejecuta tras devolver la conexión al pool, o null
+     * @return una instancia de Connection si es exitosa, null si falla
+     */
+    public Connection getConnection(Runnable onReturn) {
+        if (!breaker.allowRequest()) {
+            System.out.println("[ERROR] La base de datos '" + name + "' no está disponible (circuito " + breaker.getState() + "). Se reintentará automáticamente en segundo plano.");
+            return null;
+        }
+        try {
+            Connection conn = pool.borrow(onReturn);
+            breaker.recordSuccess();
+            return conn;
+        } catch (SQLTimeoutException e) {
+            // Pool agotado: la base de datos responde, así que no cuenta como fallo del circuito
+            System.out.println("[ERROR] No hay conexiones libres en el pool de '" + name + "'.\nDetalles técnicos: " + e.getMessage());
+            return null;
+        } catch (SQLException e) {
+            breaker.recordFailure();
+            System.out.println("[ERROR] No se pudo conectar a la base de datos '" + name + "'. Por favor, verifica que el servidor esté activo y que los datos de acceso sean correctos.\nDetalles técnicos: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return nombre de la instancia
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return pool de conexiones de la instancia
+     */
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * @return estado del circuito de la instancia
+     */
+    public CircuitBreaker.State getState() {
+        return breaker.getState();
+    }
+
+    /**
+     * @return true si el circuito está cerrado y la instancia acepta peticiones
+     */
+    public boolean isAvailable() {
+        return breaker.allowRequest();
+    }
+
+    /**
+     * Detiene el sondeo del circuito y cierra el pool.
+     */
+    public void close() {
+        breaker.shutdown();
+        pool.close();
+    }
+}
@@ -0,0 +1,174 @@
+package projectmagenta.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Migración versionada del esquema: una lista ordenada de sentencias SQL que
+ * {@link SchemaMigrator} aplica una sola vez y registra en schema_version.
+ * <p>
+ * MySQL no admite "ADD INDEX IF NOT EXISTS", así que cada paso puede llevar una
+ * comprobación en information_schema: si el índice o la columna ya existen (por
+ * ejemplo, en bases de datos creadas con create_database.sql) el paso se omite.
+ * Lo que no se puede expresar en SQL (por ejemplo, calcular las claves normalizadas
+ * de las filas existentes) se escribe como un paso en Java con {@link Step#code}.
+ * @author Alex Fernandez
+ */
+public class SchemaMigration {
+    private final int version;
+    private final String description;
+    private final List<Step> steps;
+
+    /**
+     * @param version número de versión, único y creciente
+     * @param description descripción que se guarda en schema_version
+     * @param steps pasos de la migración, en orden
+     */
+    public SchemaMigration(int version, String description, Step... steps) {
+        this.version = version;
+        this.description = description;
+        this.steps = Collections.unmodifiableList(new ArrayList<>(Arrays.asList(steps)));
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Suma SHA-256 del SQL de la migración (comprobaciones incluidas). Si una
+     * migración ya aplicada cambia, la suma deja de coincidir con la registrada.
+     * @return suma en hexadecimal
+     */
+    public String checksum() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Step step : steps) {
+                digest.update((step.skipIfExists == null ? "" : step.skipIfExists).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(step.sql.getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Paso de una migración escrito en Java.
+     */
+    @FunctionalInterface
+    public interface Action {
+        /**
+         * @param conn conexión de la migración, con autocommit activado al recibirla y al terminar
+         * @throws SQLException si el paso falla (la migración no se registra)
+         */
+        void run(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Sentencia de una migración con su comprobación opcional.
+     */
+    public static class Step {
+        private final String skipIfExists;
+        private final String sql;
+        private final Action action;
+
+        private Step(String skipIfExists, String sql) {
+            this(skipIfExists, sql, null);
+        }
+
+        private Step(String skipIfExists, String sql, Action action) {
+            this.skipIfExists = skipIfExists;
+            this.sql = sql;
+            this.action = action;
+        }
+
+        /**
+         * @param sql sentencia a ejecutar siempre (debe ser repetible, por ejemplo CREATE TABLE IF NOT EXISTS)
+         * @return paso sin comprobación
+         */
+        public static Step sql(String sql) {
+            return new Step(null, sql);
+        }
+
+        /**
+         * @param table tabla del índice
+         * @param index nombre del índice
+         * @param sql sentencia que crea el índice
+         * @return paso que se omite si el índice ya existe
+         */
+        public static Step unlessIndex(String table, String index, String sql) {
+            return new Step("SELECT COUNT(*) FROM information_schema.STATISTICS WHERE TABLE_SCHEMA = DATABASE() "
+                    + "AND TABLE_NAME = '" + table + "' AND INDEX_NAME = '" + index + "'", sql);
+        }
+
+        /**
+         * @param table tabla de la columna
+         * @param column nombre de la columna
+         * @param sql sentencia que crea la columna
+         * @return paso que se omite si la columna ya existe
+         */
+        public static Step unlessColumn(String table, String column, String sql) {
+            return new Step("SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() "
+                    + "AND TABLE_NAME = '" + table + "' AND COLUMN_NAME = '" + column + "'", sql);
+        }
+
+        /**
+         * @param condition consulta que devuelve un número mayor que 0 si el paso ya está aplicado
+         * @param sql sentencia del paso
+         * @return paso que se omite cuando la consulta devuelve más de 0
+         */
+        public static Step unless(String condition, String sql) {
+            return new Step(condition, sql);
+        }
+
+        /**
+         * Paso en Java. Debe ser repetible: si la migración se interrumpe, vuelve a
+         * ejecutarse completa en el siguiente arranque.
+         * @param name nombre del paso; forma parte de la suma de la migración
+         * @param action código del paso
+         * @return paso sin comprobación
+         */
+        public static Step code(String name, Action action) {
+            return new Step(null, "-- " + name, action);
+        }
+
+        /**
+         * @return consulta de comprobación, o null si el paso se ejecuta siempre
+         */
+        public String getSkipIfExists() {
+            return skipIfExists;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        /**
+         * @return código del paso, o null si el paso es la sentencia de getSql()
+         */
+        public Action getAction() {
+            return action;
+        }
+    }
+}
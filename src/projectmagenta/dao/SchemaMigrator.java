@@ -0,0 +1,345 @@
+package projectmagenta.dao;
+
+import projectmagenta.dao.SchemaMigration.Step;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aplica al arrancar las migraciones del esquema que faltan, en orden de versión,
+ * y registra cada una en la tabla schema_version con su suma SHA-256. Si una
+ * migración ya aplicada cambió (su suma no coincide), no se aplica ninguna más.
+ * Un bloqueo con nombre de MySQL (GET_LOCK) evita que dos instancias migren a la vez.
+ * <p>
+ * Las migraciones comprueban si sus índices y columnas ya existen, así que una
+ * base de datos creada con create_database.sql solo registra las versiones.
+ * @author Alex Fernandez
+ */
+public class SchemaMigrator {
+    private static final String LOCK_NAME = "magenta_schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 30;
+    private static final String CREATE_VERSION_TABLE = "CREATE TABLE IF NOT EXISTS schema_version ("
+            + "version INT PRIMARY KEY, "
+            + "description VARCHAR(200) NOT NULL, "
+            + "checksum CHAR(64) NOT NULL, "
+            + "applied_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), "
+            + "execution_ms BIGINT NOT NULL)";
+
+    /** Migraciones del esquema de Cine_DB, en orden. Una migración aplicada no debe modificarse: se agrega otra. */
+    static final List<SchemaMigration> MIGRATIONS = Collections.unmodifiableList(Arrays.asList(
+        new SchemaMigration(1, "Tabla Cartelera",
+            Step.sql("CREATE TABLE IF NOT EXISTS Cartelera ("
+                + "id INT AUTO_INCREMENT PRIMARY KEY, "
+                + "title VARCHAR(150) NOT NULL, "
+                + "director VARCHAR(50) NOT NULL, "
+                + "year INT NOT NULL, "
+                + "duration INT NOT NULL COMMENT 'Duración en minutos', "
+                + "genre ENUM('Acción', 'Drama', 'Comedia', 'Terror', 'Romance', 'Ciencia Ficción', 'Thriller', "
+                + "'Aventura', 'Animación', 'Documental') NOT NULL, "
+                + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, "
+                + "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP)")),
+        new SchemaMigration(2, "Índice por título (deleteMoviesByTitle)",
+            Step.unlessIndex("Cartelera", "idx_cartelera_title",
+                "ALTER TABLE Cartelera ADD INDEX idx_cartelera_title (title)")),
+        new SchemaMigration(3, "Índice por género y año (filtros de Ver todas)",
+            Step.unlessIndex("Cartelera", "idx_cartelera_genre_year",
+                "ALTER TABLE Cartelera ADD INDEX idx_cartelera_genre_year (genre, year)")),
+        new SchemaMigration(4, "updated_at con milisegundos e índice (versión y cambios incrementales)",
+            Step.unless("SELECT COUNT(*) FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() "
+                    + "AND TABLE_NAME = 'Cartelera' AND COLUMN_NAME = 'updated_at' AND DATETIME_PRECISION = 3",
+                "ALTER TABLE Cartelera MODIFY updated_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)"),
+            Step.unlessIndex("Cartelera", "idx_cartelera_updated_at",
+                "ALTER TABLE Cartelera ADD INDEX idx_cartelera_updated_at (updated_at)")),
+        // La clave natural única se agrega en V10, cuando las claves ya están calculadas
+        new SchemaMigration(5, "Claves de búsqueda normalizadas",
+            Step.unlessColumn("Cartelera", "title_key",
+                "ALTER TABLE Cartelera ADD COLUMN title_key VARCHAR(150) NULL"),
+            Step.unlessColumn("Cartelera", "director_key",
+                "ALTER TABLE Cartelera ADD COLUMN director_key VARCHAR(50) NULL"),
+            Step.unlessIndex("Cartelera", "idx_cartelera_director_key",
+                "ALTER TABLE Cartelera ADD INDEX idx_cartelera_director_key (director_key)")),
+        new SchemaMigration(6, "Índice FULLTEXT de título y director",
+            Step.unlessIndex("Cartelera", "ft_cartelera_title_director",
+                "ALTER TABLE Cartelera ADD FULLTEXT INDEX ft_cartelera_title_director (title, director)")),
+        new SchemaMigration(7, "Registro de eliminaciones",
+            Step.sql("CREATE TABLE IF NOT EXISTS Cartelera_eliminadas ("
+                + "id INT PRIMARY KEY, "
+                + "deleted_at TIMESTAMP(3) NOT NULL, "
+                + "INDEX idx_eliminadas_deleted_at (deleted_at))")),
+        new SchemaMigration(8, "Archivo de películas inactivas o antiguas",
+            Step.unlessColumn("Cartelera", "active",
+                "ALTER TABLE Cartelera ADD COLUMN active BOOLEAN NOT NULL DEFAULT TRUE"),
+            Step.unlessIndex("Cartelera", "idx_cartelera_created_at",
+                "ALTER TABLE Cartelera ADD INDEX idx_cartelera_created_at (created_at)"),
+            // El id es la clave primaria, pero no hay clave natural única (título, año y director):
+            // una película puede archivarse, volver a agregarse con un id nuevo y archivarse otra vez
+            Step.sql("CREATE TABLE IF NOT EXISTS Cartelera_archivo ("
+                + "id INT PRIMARY KEY, "
+                + "title VARCHAR(150) NOT NULL, "
+                + "director VARCHAR(50) NOT NULL, "
+                + "year INT NOT NULL, "
+                + "duration INT NOT NULL COMMENT 'Duración en minutos', "
+                + "genre ENUM('Acción', 'Drama', 'Comedia', 'Terror', 'Romance', 'Ciencia Ficción', 'Thriller', "
+                + "'Aventura', 'Animación', 'Documental') NOT NULL, "
+                + "created_at TIMESTAMP NULL, "
+                + "updated_at TIMESTAMP(3) NULL, "
+                + "title_key VARCHAR(150) NULL, "
+                + "director_key VARCHAR(50) NULL, "
+                + "archived_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), "
+                + "INDEX idx_archivo_title_key (title_key), "
+                + "INDEX idx_archivo_director_key (director_key))")),
+        new SchemaMigration(9, "Claves de búsqueda de las filas existentes",
+            Step.code("MovieDAO.fillSearchKeys", MovieDAO::fillSearchKeys)),
+        new SchemaMigration(10, "Clave natural única (duplicados al archivo)",
+            Step.code("SchemaMigrator.archiveDuplicateKeys", SchemaMigrator::archiveDuplicateKeys),
+            Step.unlessIndex("Cartelera", "uk_cartelera_natural",
+                "ALTER TABLE Cartelera ADD UNIQUE KEY uk_cartelera_natural (title_key, year, director_key)"))
+    ));
+
+    private final List<SchemaMigration> migrations;
+    // null: la primaria de DBConnection
+    private final PooledDataSource dataSource;
+
+    /**
+     * Migrador con las migraciones del esquema de la aplicación.
+     */
+    public SchemaMigrator() {
+        this(MIGRATIONS, null);
+    }
+
+    /**
+     * Migrador de una base de datos concreta (un shard de Cartelera).
+     * @param dataSource base de datos a migrar, o null para la primaria
+     */
+    public SchemaMigrator(PooledDataSource dataSource) {
+        this(MIGRATIONS, dataSource);
+    }
+
+    /**
+     * @param migrations migraciones en orden estrictamente creciente de versión
+     */
+    SchemaMigrator(List<SchemaMigration> migrations) {
+        this(migrations, null);
+    }
+
+    private SchemaMigrator(List<SchemaMigration> migrations, PooledDataSource dataSource) {
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).getVersion() <= migrations.get(i - 1).getVersion()) {
+                throw new IllegalArgumentException("Las migraciones deben estar en orden creciente de versión: "
+                        + migrations.get(i - 1).getVersion() + " y " + migrations.get(i).getVersion());
+            }
+        }
+        this.migrations = migrations;
+        this.dataSource = dataSource;
+    }
+
+    private Connection connection() {
+        return dataSource != null ? dataSource.getConnection() : DBConnection.getConnection();
+    }
+
+    /**
+     * @return versión de la última migración conocida por la aplicación
+     */
+    public int getLatestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).getVersion();
+    }
+
+    /**
+     * Aplica las migraciones pendientes.
+     * @return número de migraciones aplicadas, o -1 si hubo error o una suma no coincide
+     */
+    public int migrate() {
+        Connection conn = null;
+        Statement stmt = null;
+        try {
+            conn = connection();
+            if (conn == null) return -1;
+            stmt = conn.createStatement();
+            stmt.execute(CREATE_VERSION_TABLE);
+            if (!acquireLock(conn)) {
+                System.out.println("[ERROR] Otra instancia está migrando el esquema; no se aplicaron migraciones.");
+                return -1;
+            }
+            try {
+                return applyPending(conn, stmt);
+            } finally {
+                releaseLock(conn);
+            }
+        } catch (SQLException e) {
+            System.out.println("[ERROR] No se pudo migrar el esquema de la base de datos.\nDetalles técnicos: " + e.getMessage());
+            return -1;
+        } finally {
+            try {
+                if (stmt != null) stmt.close();
+                if (conn != null) conn.close();
+            } catch (SQLException e) {
+                System.out.println("[ADVERTENCIA] Ocurrió un problema al cerrar la conexión con la base de datos.\nDetalles técnicos: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Versiones registradas en schema_version con su suma.
+     * @return suma de cada versión aplicada, por versión (vacío si hubo error)
+     */
+    public Map<Integer, String> getAppliedVersions() {
+        Connection conn = connection();
+        if (conn == null) return new TreeMap<>();
+        try {
+            return appliedVersions(conn);
+        } catch (SQLException e) {
+            System.out.println("[ERROR] No se pudo leer schema_version.\nDetalles técnicos: " + e.getMessage());
+            return new TreeMap<>();
+        } finally {
+            DBConnection.closeConnection(conn);
+        }
+    }
+
+    private int applyPending(Connection conn, Statement stmt) throws SQLException {
+        TreeMap<Integer, String> applied = appliedVersions(conn);
+        for (SchemaMigration migration : migrations) {
+            String recorded = applied.get(migration.getVersion());
+            if (recorded != null && !recorded.equals(migration.checksum())) {
+                System.out.println("[ERROR] La migración V" + migration.getVersion() + " (" + migration.getDescription()
+                        + ") cambió después de aplicarse; no se aplicarán más migraciones.");
+                return -1;
+            }
+        }
+        if (!applied.isEmpty() && applied.lastKey() > getLatestVersion()) {
+            System.out.println("[ADVERTENCIA] El esquema tiene migraciones más recientes (V" + applied.lastKey()
+                    + ") que esta versión de la aplicación (V" + getLatestVersion() + ").");
+        }
+        int count = 0;
+        for (SchemaMigration migration : migrations) {
+            if (applied.containsKey(migration.getVersion())) {
+                continue;
+            }
+            long start = System.nanoTime();
+            for (Step step : migration.getSteps()) {
+                if (step.getAction() != null) {
+                    step.getAction().run(conn);
+                } else if (!alreadyApplied(stmt, step)) {
+                    stmt.execute(step.getSql());
+                }
+            }
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            record(conn, migration, elapsedMs);
+            count++;
+            System.out.println("[INFO] Migración V" + migration.getVersion() + " aplicada: " + migration.getDescription()
+                    + " (" + elapsedMs + " ms)");
+        }
+        return count;
+    }
+
+    /**
+     * Paso de V10: antes de crear la clave natural única, deja en Cartelera una sola
+     * película por título, año y director (la de menor id) y mueve las demás a
+     * Cartelera_archivo, registradas como eliminaciones. Las bases de datos
+     * anteriores admitían duplicados, y la normalización une además grafías
+     * distintas ("Amélie" y "Amelie"). Cada película movida se informa en consola
+     * y puede restaurarse con {@link MovieDAO#restoreMovie(int)} tras cambiar la otra.
+     */
+    static void archiveDuplicateKeys(Connection conn) throws SQLException {
+        String select = "SELECT c.id, c.title, c.year, c.director, d.keep_id FROM Cartelera c JOIN ("
+                + "SELECT title_key, year, director_key, MIN(id) AS keep_id FROM Cartelera "
+                + "WHERE title_key IS NOT NULL AND director_key IS NOT NULL "
+                + "GROUP BY title_key, year, director_key HAVING COUNT(*) > 1) d "
+                + "ON c.title_key = d.title_key AND c.year = d.year AND c.director_key = d.director_key "
+                + "WHERE c.id <> d.keep_id ORDER BY c.id";
+        List<Integer> duplicates = new ArrayList<>();
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(select)) {
+            while (rs.next()) {
+                duplicates.add(rs.getInt(1));
+                System.out.println("[ADVERTENCIA] Película duplicada id=" + rs.getInt(1) + " ('" + rs.getString(2) + "', "
+                        + rs.getInt(3) + ", " + rs.getString(4) + "): se conserva id=" + rs.getInt(5)
+                        + " y esta se mueve a Cartelera_archivo.");
+            }
+        }
+        if (duplicates.isEmpty()) {
+            return;
+        }
+        String columns = "id, title, director, year, duration, genre, created_at, updated_at, title_key, director_key";
+        conn.setAutoCommit(false);
+        try (PreparedStatement tombstone = conn.prepareStatement(
+                     "INSERT INTO Cartelera_eliminadas (id, deleted_at) VALUES (?, CURRENT_TIMESTAMP(3)) "
+                     + "ON DUPLICATE KEY UPDATE deleted_at = VALUES(deleted_at)");
+             PreparedStatement copy = conn.prepareStatement(
+                     "INSERT INTO Cartelera_archivo (" + columns + ") SELECT " + columns + " FROM Cartelera WHERE id = ?");
+             PreparedStatement delete = conn.prepareStatement("DELETE FROM Cartelera WHERE id = ?")) {
+            for (int id : duplicates) {
+                tombstone.setInt(1, id);
+                tombstone.executeUpdate();
+                copy.setInt(1, id);
+                copy.executeUpdate();
+                delete.setInt(1, id);
+                delete.executeUpdate();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        System.out.println("[ADVERTENCIA] Se movieron " + duplicates.size()
+                + " película(s) duplicada(s) a Cartelera_archivo antes de crear la clave natural única.");
+    }
+
+    private static boolean alreadyApplied(Statement stmt, Step step) throws SQLException {
+        if (step.getSkipIfExists() == null) {
+            return false;
+        }
+        try (ResultSet rs = stmt.executeQuery(step.getSkipIfExists())) {
+            return rs.next() && rs.getLong(1) > 0;
+        }
+    }
+
+    private static TreeMap<Integer, String> appliedVersions(Connection conn) throws SQLException {
+        TreeMap<Integer, String> applied = new TreeMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_version ORDER BY version")) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getString(2));
+            }
+        }
+        return applied;
+    }
+
+    private static void record(Connection conn, SchemaMigration migration, long elapsedMs) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO schema_version (version, description, checksum, execution_ms) VALUES (?, ?, ?, ?)")) {
+            pstmt.setInt(1, migration.getVersion());
+            pstmt.setString(2, migration.getDescription());
+            pstmt.setString(3, migration.checksum());
+            pstmt.setLong(4, elapsedMs);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static boolean acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private static void releaseLock(Connection conn) {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.executeQuery().close();
+        } catch (SQLException e) {
+            System.out.println("[ADVERTENCIA] No se pudo liberar el bloqueo de migración.\nDetalles técnicos: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,626 @@
+package projectmagenta.dao;
+
+import projectmagenta.model.Movie;
+import projectmagenta.model.MovieChanges;
+import projectmagenta.model.MovieCriteria;
+import projectmagenta.model.MoviePage;
+import projectmagenta.model.MovieStats;
+import projectmagenta.model.MovieSummary;
+import projectmagenta.model.SearchKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Repositorio de películas repartido entre varios repositorios (shards), por
+ * ejemplo un {@link MovieDAO} por servidor MySQL.
+ * <p>
+ * Cada shard genera sus propios ids; hacia fuera el id de una película es
+ * {@code idLocal * N + shard}, así que las operaciones por id (buscar, modificar,
+ * eliminar) van a un único shard. Las películas nuevas se colocan según un hash de
+ * su clave natural. Los recorridos (cartelera completa, búsquedas, filtros,
+ * estadísticas) se piden a todos los shards en paralelo y se combinan en el mismo
+ * orden que devolvería un solo repositorio.
+ * <p>
+ * Con un solo shard los ids coinciden con los del repositorio. Una modificación que
+ * cambia la clave natural mueve la película a su nuevo shard, con un id nuevo.
+ * Cambiar el número de shards cambia los ids visibles y no mueve las filas existentes.
+ * runInTransaction abre una transacción por shard y las confirma una tras otra:
+ * un conflicto o error deshace todas, pero no hay commit en dos fases.
+ * @author Alex Fernandez
+ */
+public class ShardedMovieRepository implements MovieRepository {
+    // Películas por página al recorrer la cartelera en orden de id
+    private static final int STREAM_PAGE_SIZE = DBConfig.getInt("magenta.dao.batchSize", 500);
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    private final List<MovieRepository> shards;
+    private final Executor executor;
+
+    /**
+     * @param shards repositorios de cada shard, en orden fijo (el orden forma parte de los ids)
+     * @throws IllegalArgumentException si no hay ningún shard
+     */
+    public ShardedMovieRepository(List<? extends MovieRepository> shards) {
+        if (shards == null || shards.isEmpty()) {
+            throw new IllegalArgumentException("Se requiere al menos un shard");
+        }
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(shards.size(), shards.size(), 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), task -> {
+                    Thread thread = new Thread(task, "magenta-shard-" + THREAD_NUMBER.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    /**
+     * @return repositorios de los shards, en orden
+     */
+    public List<MovieRepository> getShards() {
+        return shards;
+    }
+
+    /**
+     * @return número de shards
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * @param id id de una película de este repositorio
+     * @return índice del shard que la guarda
+     */
+    public int shardOf(int id) {
+        return Math.floorMod(id, shards.size());
+    }
+
+    /**
+     * @param movie película nueva
+     * @return índice del shard donde se inserta (hash de la clave natural)
+     */
+    int placementOf(Movie movie) {
+        return Math.floorMod(MovieRepository.naturalKey(movie).hashCode(), shards.size());
+    }
+
+    private int globalId(int localId, int shard) {
+        return localId * shards.size() + shard;
+    }
+
+    private int localId(int id) {
+        return id / shards.size();
+    }
+
+    private List<Movie> toGlobal(List<Movie> movies, int shard) {
+        for (Movie movie : movies) {
+            movie.setId(globalId(movie.getId(), shard));
+        }
+        return movies;
+    }
+
+    private Movie toGlobal(Movie movie, int shard) {
+        if (movie != null) {
+            movie.setId(globalId(movie.getId(), shard));
+        }
+        return movie;
+    }
+
+    /**
+     * Ejecuta la operación en todos los shards en paralelo y espera los resultados.
+     * @param operation operación sobre el shard con el índice indicado
+     * @return resultado de cada shard, en orden de shard
+     */
+    private <T> List<T> fanOut(IntFunction<T> operation) {
+        if (shards.size() == 1) {
+            return Collections.singletonList(operation.apply(0));
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            int shard = i;
+            futures.add(CompletableFuture.supplyAsync(() -> operation.apply(shard), executor));
+        }
+        List<T> results = new ArrayList<>(shards.size());
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    private static List<Movie> mergeById(List<List<Movie>> perShard) {
+        List<Movie> merged = new ArrayList<>();
+        for (List<Movie> movies : perShard) {
+            merged.addAll(movies);
+        }
+        merged.sort(Comparator.comparingInt(Movie::getId));
+        return merged;
+    }
+
+    @Override
+    public boolean addMovie(Movie movie) {
+        if (movie == null) {
+            return false;
+        }
+        int shard = placementOf(movie);
+        if (!shards.get(shard).addMovie(movie)) {
+            return false;
+        }
+        toGlobal(movie, shard);
+        return true;
+    }
+
+    /**
+     * Reparte el lote por shard e inserta cada parte en su shard en paralelo.
+     */
+    @Override
+    public BatchInsertResult addMovies(List<Movie> movies) {
+        BatchInsertResult result = new BatchInsertResult();
+        List<List<Integer>> positions = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            positions.add(new ArrayList<>());
+        }
+        for (int i = 0; i < movies.size(); i++) {
+            String error = MovieRepository.validateForInsert(movies.get(i));
+            if (error != null) {
+                result.addFailure(i, error);
+            } else {
+                positions.get(placementOf(movies.get(i))).add(i);
+            }
+        }
+        List<BatchInsertResult> parts = fanOut(shard -> {
+            List<Movie> part = new ArrayList<>();
+            for (int index : positions.get(shard)) {
+                part.add(movies.get(index));
+            }
+            return part.isEmpty() ? new BatchInsertResult() : shards.get(shard).addMovies(part);
+        });
+        Map<Integer, String> failures = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            List<Integer> indexes = positions.get(shard);
+            Map<Integer, String> partFailures = parts.get(shard).getFailures();
+            for (int i = 0; i < indexes.size(); i++) {
+                int index = indexes.get(i);
+                if (partFailures.containsKey(i)) {
+                    failures.put(index, partFailures.get(i));
+                } else {
+                    toGlobal(movies.get(index), shard);
+                }
+            }
+        }
+        for (int i = 0; i < movies.size(); i++) {
+            if (failures.containsKey(i)) {
+                result.addFailure(i, failures.get(i));
+            } else if (!result.getFailures().containsKey(i)) {
+                result.addGeneratedId(movies.get(i).getId());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reparte la lista por shard según la clave natural y sincroniza cada parte en
+     * su shard en paralelo, con la sincronización por lotes de cada shard. Si un
+     * shard no puede leer su cartelera, solo se rechazan sus filas.
+     */
+    @Override
+    public UpsertResult upsertMovies(List<Movie> movies) {
+        UpsertResult result = new UpsertResult();
+        List<List<Integer>> positions = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            positions.add(new ArrayList<>());
+        }
+        Map<String, Integer> seen = new HashMap<>();
+        for (int i = 0; i < movies.size(); i++) {
+            String error = MovieRepository.validateForUpsert(movies.get(i), i, seen);
+            if (error != null) {
+                result.addFailure(i, error);
+            } else {
+                positions.get(placementOf(movies.get(i))).add(i);
+            }
+        }
+        List<UpsertResult> parts = fanOut(shard -> {
+            List<Movie> part = new ArrayList<>();
+            for (int index : positions.get(shard)) {
+                part.add(movies.get(index));
+            }
+            return part.isEmpty() ? new UpsertResult() : shards.get(shard).upsertMovies(part);
+        });
+        for (int shard = 0; shard < shards.size(); shard++) {
+            List<Integer> indexes = positions.get(shard);
+            UpsertResult part = parts.get(shard);
+            for (int i : part.getInserted()) {
+                result.addInserted(indexes.get(i));
+                toGlobal(movies.get(indexes.get(i)), shard);
+            }
+            for (int i : part.getUpdated()) {
+                result.addUpdated(indexes.get(i));
+                toGlobal(movies.get(indexes.get(i)), shard);
+            }
+            for (int i : part.getUnchanged()) {
+                result.addUnchanged(indexes.get(i));
+                toGlobal(movies.get(indexes.get(i)), shard);
+            }
+            part.getFailures().forEach((i, message) -> result.addFailure(indexes.get(i), message));
+        }
+        return result;
+    }
+
+    /**
+     * Si la modificación cambia el título, el año o el director y con ello el shard
+     * que le corresponde, la película se mueve: se inserta en el shard nuevo y se
+     * elimina del anterior (con la versión leída), así que recibe un id nuevo. Así
+     * cada clave natural vive siempre en el shard de {@link #placementOf} y el
+     * índice único de cada shard impide los duplicados.
+     */
+    @Override
+    public boolean updateMovie(Movie movie) {
+        if (movie == null || localId(movie.getId()) <= 0) {
+            return false;
+        }
+        int id = movie.getId();
+        int shard = shardOf(id);
+        int target = placementOf(movie);
+        if (target != shard) {
+            return relocate(movie, shard, target);
+        }
+        movie.setId(localId(id));
+        try {
+            return shards.get(shard).updateMovie(movie);
+        } finally {
+            movie.setId(id);
+        }
+    }
+
+    /**
+     * Mueve una película de shard con una transacción en cada uno: la inserción va
+     * dentro de la eliminación, así que si la eliminación no se aplica (la película
+     * cambió entretanto) o falla se deshacen las dos. El shard nuevo confirma
+     * primero: si después falla la confirmación del anterior, la película queda
+     * repetida en ambos (nunca perdida) y se informa. Los shards sin transacciones
+     * (memoria, archivo) deshacen la inserción eliminándola.
+     */
+    private boolean relocate(Movie movie, int shard, int target) {
+        int id = movie.getId();
+        long version = movie.getVersion();
+        int[] movedId = { 0 };
+        boolean[] targetCommitted = { false };
+        boolean moved = shards.get(shard).runInTransaction(() -> {
+            targetCommitted[0] = shards.get(target).runInTransaction(() -> {
+                if (!shards.get(target).addMovie(movie)) {
+                    return false;
+                }
+                movedId[0] = movie.getId();
+                return version > 0
+                        ? shards.get(shard).deleteMovieById(localId(id), version)
+                        : shards.get(shard).deleteMovieById(localId(id));
+            });
+            return targetCommitted[0];
+        });
+        if (moved) {
+            toGlobal(movie, target);
+            return true;
+        }
+        if (targetCommitted[0]) {
+            System.out.println("[ERROR] La película '" + movie.getTitle() + "' se copió al shard " + target + " (id="
+                    + globalId(movedId[0], target) + ") pero no se pudo eliminar del shard " + shard + " (id=" + id
+                    + "): queda repetida en los dos.");
+        } else if (movedId[0] > 0 && shards.get(target).findMovieById(movedId[0]) != null
+                && !shards.get(target).deleteMovieById(movedId[0])) {
+            System.out.println("[ERROR] No se pudo deshacer la copia de '" + movie.getTitle() + "' en el shard " + target
+                    + " (id=" + globalId(movedId[0], target) + "): queda repetida en los shards " + shard + " y " + target + ".");
+        }
+        movie.setId(id);
+        movie.setVersion(version);
+        return false;
+    }
+
+    @Override
+    public boolean deleteMovieById(int id) {
+        return localId(id) > 0 && shards.get(shardOf(id)).deleteMovieById(localId(id));
+    }
+
+    @Override
+    public boolean deleteMovieById(int id, long version) {
+        return localId(id) > 0 && shards.get(shardOf(id)).deleteMovieById(localId(id), version);
+    }
+
+    /**
+     * Pide los cambios a todos los shards con la misma marca y se queda con la
+     * mayor. Si un shard tiene que recargar por completo, se recargan todos.
+     */
+    @Override
+    public MovieChanges getMoviesChangedSince(long since) {
+        List<MovieChanges> parts = fanOut(shard -> shards.get(shard).getMoviesChangedSince(since));
+        boolean fullReload = since <= 0;
+        for (MovieChanges part : parts) {
+            fullReload |= part.isFullReload();
+        }
+        if (fullReload && since > 0) {
+            parts = fanOut(shard -> shards.get(shard).getMoviesChangedSince(0));
+        }
+        List<List<Movie>> changed = new ArrayList<>();
+        List<Integer> deletedIds = new ArrayList<>();
+        long watermark = since;
+        for (int shard = 0; shard < parts.size(); shard++) {
+            MovieChanges part = parts.get(shard);
+            changed.add(toGlobal(new ArrayList<>(part.getChanged()), shard));
+            for (int id : part.getDeletedIds()) {
+                deletedIds.add(globalId(id, shard));
+            }
+            watermark = Math.max(watermark, part.getWatermark());
+        }
+        return new MovieChanges(mergeById(changed), deletedIds, watermark, fullReload);
+    }
+
+    /**
+     * Abre una transacción en cada shard, una dentro de otra, y ejecuta el trabajo
+     * en la más interna: si el trabajo falla o devuelve false se deshacen todas.
+     * Al terminar bien se confirman de la última a la primera; no es un commit en
+     * dos fases, así que si falla la confirmación de un shard después de confirmarse
+     * otro, el cambio queda a medias (se informa en consola). Las operaciones del
+     * trabajo que recorren todos los shards en paralelo leen fuera de la transacción.
+     */
+    @Override
+    public boolean runInTransaction(BooleanSupplier work) {
+        if (shards.size() == 1) {
+            return shards.get(0).runInTransaction(work);
+        }
+        boolean[] workDone = { false };
+        int[] committed = { 0 };
+        boolean ok = runInTransaction(0, () -> workDone[0] = work.getAsBoolean(), committed);
+        if (!ok && workDone[0] && committed[0] > 0) {
+            System.out.println("[ERROR] La transacción se confirmó solo en " + committed[0] + " de " + shards.size()
+                    + " shards: los cambios quedaron a medias.");
+        }
+        return ok;
+    }
+
+    private boolean runInTransaction(int shard, BooleanSupplier work, int[] committed) {
+        if (shard == shards.size()) {
+            return work.getAsBoolean();
+        }
+        boolean ok = shards.get(shard).runInTransaction(() -> runInTransaction(shard + 1, work, committed));
+        if (ok) {
+            committed[0]++;
+        }
+        return ok;
+    }
+
+    @Override
+    public int deleteMoviesByTitle(String title) {
+        int deleted = 0;
+        for (int count : fanOut(shard -> shards.get(shard).deleteMoviesByTitle(title))) {
+            deleted += count;
+        }
+        return deleted;
+    }
+
+    /**
+     * El título no determina el shard: se busca en todos y se devuelve la película
+     * de menor id.
+     */
+    @Override
+    public Movie findMovieByTitle(String title) {
+        Movie found = null;
+        List<Movie> candidates = fanOut(shard -> toGlobal(shards.get(shard).findMovieByTitle(title), shard));
+        for (Movie movie : candidates) {
+            if (movie != null && (found == null || movie.getId() < found.getId())) {
+                found = movie;
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Movie findMovieById(int id) {
+        if (localId(id) <= 0) {
+            return null;
+        }
+        int shard = shardOf(id);
+        return toGlobal(shards.get(shard).findMovieById(localId(id)), shard);
+    }
+
+    @Override
+    public List<Movie> findMoviesByPartialTitle(String partialTitle) {
+        return mergeById(fanOut(shard -> toGlobal(shards.get(shard).findMoviesByPartialTitle(partialTitle), shard)));
+    }
+
+    @Override
+    public List<Movie> getAllMovies() {
+        return mergeById(fanOut(shard -> toGlobal(shards.get(shard).getAllMovies(), shard)));
+    }
+
+    /**
+     * Mezcla las páginas de los shards en orden de id: en memoria solo hay una
+     * página por shard. Si falla la lectura de un shard, el recorrido se detiene y
+     * devuelve -1, para no confundir la cartelera incompleta con la completa.
+     */
+    @Override
+    public long streamAllMovies(Consumer<? super Movie> action) {
+        if (shards.size() == 1) {
+            return shards.get(0).streamAllMovies(action);
+        }
+        PriorityQueue<ShardCursor> queue = new PriorityQueue<>(Comparator.comparingInt(ShardCursor::peekId));
+        for (int shard = 0; shard < shards.size(); shard++) {
+            ShardCursor cursor = new ShardCursor(shard);
+            if (cursor.hasNext()) {
+                queue.add(cursor);
+            } else if (cursor.failed) {
+                return -1;
+            }
+        }
+        long count = 0;
+        while (!queue.isEmpty()) {
+            ShardCursor cursor = queue.poll();
+            action.accept(cursor.next());
+            count++;
+            if (cursor.hasNext()) {
+                queue.add(cursor);
+            } else if (cursor.failed) {
+                return -1;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public MoviePage getMoviesPage(int afterId, int limit) {
+        List<MoviePage> parts = fanOut(shard -> shards.get(shard).getMoviesPage(
+                Math.max(0, Math.floorDiv(afterId - shard, shards.size())), limit));
+        List<List<Movie>> movies = new ArrayList<>();
+        boolean hasMore = false;
+        for (int shard = 0; shard < parts.size(); shard++) {
+            if (parts.get(shard).isFailed()) {
+                return MoviePage.failed(afterId);
+            }
+            movies.add(toGlobal(new ArrayList<>(parts.get(shard).getMovies()), shard));
+            hasMore |= parts.get(shard).hasMore();
+        }
+        List<Movie> merged = mergeById(movies);
+        if (merged.size() > limit) {
+            return new MoviePage(new ArrayList<>(merged.subList(0, limit)), afterId, true);
+        }
+        return new MoviePage(merged, afterId, hasMore);
+    }
+
+    @Override
+    public MovieStats getMovieStats() {
+        Map<String, Long> byGenre = new HashMap<>();
+        Map<Integer, Long> byDecade = new HashMap<>();
+        Map<Integer, Long> byDuration = new HashMap<>();
+        long count = 0;
+        long totalDuration = 0;
+        int minYear = Integer.MAX_VALUE;
+        int maxYear = 0;
+        for (MovieStats part : fanOut(shard -> shards.get(shard).getMovieStats())) {
+            if (part == null) {
+                return null;
+            }
+            if (part.isEmpty()) {
+                continue;
+            }
+            count += part.getMovieCount();
+            totalDuration += part.getTotalDuration();
+            minYear = Math.min(minYear, part.getMinYear());
+            maxYear = Math.max(maxYear, part.getMaxYear());
+            part.getCountByGenre().forEach((genre, n) -> byGenre.merge(genre, n, Long::sum));
+            part.getCountByDecade().forEach((decade, n) -> byDecade.merge(decade, n, Long::sum));
+            part.getDurationHistogram().forEach((bucket, n) -> byDuration.merge(bucket, n, Long::sum));
+        }
+        return new MovieStats(count, totalDuration, count == 0 ? 0 : minYear, maxYear, byGenre, byDecade, byDuration);
+    }
+
+    /**
+     * Cada shard aplica el filtro, el orden y el límite; el resultado combinado se
+     * vuelve a ordenar y a cortar.
+     */
+    @Override
+    public List<Movie> findMovies(MovieCriteria criteria) {
+        List<Movie> merged = new ArrayList<>();
+        for (List<Movie> part : fanOut(shard -> toGlobal(shards.get(shard).findMovies(criteria), shard))) {
+            merged.addAll(part);
+        }
+        merged.sort(criteria.comparator());
+        if (criteria.getLimit() > 0 && merged.size() > criteria.getLimit()) {
+            return new ArrayList<>(merged.subList(0, criteria.getLimit()));
+        }
+        return merged;
+    }
+
+    /**
+     * Los shards no comparten la puntuación de relevancia: los resultados se
+     * combinan con {@link MovieRepository#textRank(Movie, String)} y el id como
+     * desempate, igual que la búsqueda sin índice.
+     */
+    @Override
+    public List<Movie> searchMovies(String query, int limit) {
+        String needle = SearchKey.normalize(query);
+        List<Movie> merged = new ArrayList<>();
+        for (List<Movie> part : fanOut(shard -> toGlobal(shards.get(shard).searchMovies(query, limit), shard))) {
+            merged.addAll(part);
+        }
+        merged.sort(Comparator.comparingInt((Movie movie) -> MovieRepository.textRank(movie, needle)).reversed()
+                .thenComparingInt(Movie::getId));
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    @Override
+    public List<MovieSummary> searchMovieSummaries(String query, int limit) {
+        String needle = SearchKey.normalize(query);
+        List<MovieSummary> merged = new ArrayList<>();
+        List<List<MovieSummary>> parts = fanOut(shard -> shards.get(shard).searchMovieSummaries(query, limit));
+        for (int shard = 0; shard < parts.size(); shard++) {
+            for (MovieSummary summary : parts.get(shard)) {
+                merged.add(new MovieSummary(globalId(summary.getId(), shard), summary.getTitle(),
+                        summary.getYear(), summary.getDirector()));
+            }
+        }
+        merged.sort(Comparator.comparingInt((MovieSummary summary) -> MovieRepository.textRank(
+                SearchKey.normalize(summary.getTitle()), SearchKey.normalize(summary.getDirector()), needle)).reversed()
+                .thenComparingInt(MovieSummary::getId));
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    /**
+     * Recorre un shard por páginas en orden de id, para mezclar los shards.
+     */
+    private class ShardCursor {
+        private final int shard;
+        private List<Movie> page = Collections.emptyList();
+        private int position;
+        private int afterId;
+        private boolean hasMore = true;
+        private boolean failed;
+
+        ShardCursor(int shard) {
+            this.shard = shard;
+        }
+
+        boolean hasNext() {
+            if (position < page.size()) {
+                return true;
+            }
+            if (!hasMore) {
+                return false;
+            }
+            MoviePage next = shards.get(shard).getMoviesPage(afterId, STREAM_PAGE_SIZE);
+            failed = next.isFailed();
+            page = toGlobal(new ArrayList<>(next.getMovies()), shard);
+            position = 0;
+            afterId = next.getNextAfterId();
+            hasMore = next.hasMore();
+            return !page.isEmpty();
+        }
+
+        int peekId() {
+            return page.get(position).getId();
+        }
+
+        Movie next() {
+            return page.get(position++);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package projectmagenta.dao;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché LRU acotada de PreparedStatement para una conexión física del pool.
+ * Las sentencias se indexan por su texto SQL; mientras la conexión siga viva, una
+ * sentencia preparada en el servidor (useServerPrepStmts) no se vuelve a analizar.
+ * Los contadores de aciertos y fallos se comparten entre todas las conexiones del pool.
+ * @author Alex Fernandez
+ */
+class StatementCache {
+    private final Connection raw;
+    private final int maxSize;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final LinkedHashMap<String, CachedStatement> statements;
+
+    /**
+     * @param raw conexión física propietaria de las sentencias
+     * @param maxSize número máximo de sentencias retenidas
+     * @param hits contador compartido de aciertos
+     * @param misses contador compartido de fallos
+     */
+    StatementCache(Connection raw, int maxSize, AtomicLong hits, AtomicLong misses) {
+        this.raw = raw;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Devuelve una sentencia preparada para el SQL indicado, reutilizando la de la caché
+     * si está libre. El close() de la sentencia devuelta limpia sus parámetros y la deja
+     * en la caché en lugar de cerrarla.
+     * @param sql texto SQL
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS o Statement.NO_GENERATED_KEYS
+     * @return proxy de PreparedStatement
+     * @throws SQLException si el driver no puede preparar la sentencia
+     */
+    PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + sql : sql;
+        CachedStatement cached = statements.get(key);
+        if (cached != null && !cached.inUse) {
+            hits.incrementAndGet();
+            cached.inUse = true;
+            return cached.proxy;
+        }
+        misses.incrementAndGet();
+        PreparedStatement pstmt = raw.prepareStatement(sql, autoGeneratedKeys);
+        if (cached != null || maxSize <= 0) {
+            // La sentencia cacheada está en uso por un llamador anidado: entregar una no cacheada
+            return pstmt;
+        }
+        cached = new CachedStatement(pstmt);
+        statements.put(key, cached);
+        evictOverflow();
+        return cached.proxy;
+    }
+
+    /**
+     * Cierra físicamente todas las sentencias de la caché.
+     */
+    void closeAll() {
+        for (CachedStatement cached : statements.values()) {
+            closeQuietly(cached.target);
+        }
+        statements.clear();
+    }
+
+    private void evictOverflow() {
+        Iterator<CachedStatement> it = statements.values().iterator();
+        while (statements.size() > maxSize && it.hasNext()) {
+            CachedStatement eldest = it.next();
+            if (!eldest.inUse) {
+                it.remove();
+                closeQuietly(eldest.target);
+            }
+        }
+    }
+
+    private static void closeQuietly(Statement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            // La sentencia se descarta de todas formas
+        }
+    }
+
+    /**
+     * Sentencia física junto con su proxy y si está prestada en este momento.
+     */
+    private static class CachedStatement {
+        private final PreparedStatement target;
+        private final PreparedStatement proxy;
+        private boolean inUse = true;
+
+        CachedStatement(PreparedStatement target) {
+            this.target = target;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class },
+                    (p, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                                if (inUse) {
+                                    inUse = false;
+                                    target.clearParameters();
+                                    target.clearBatch();
+                                }
+                                return null;
+                            case "isClosed":
+                                return !inUse || target.isClosed();
+                            case "equals":
+                                return p == args[0];
+                            case "hashCode":
+                                return System.identityHashCode(p);
+                            default:
+                                break;
+                        }
+                        if (!inUse) {
+                            throw new SQLException("La sentencia ya fue cerrada");
+                        }
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+    }
+}
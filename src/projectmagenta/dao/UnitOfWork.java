@@ -0,0 +1,185 @@
+package projectmagenta.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unidad de trabajo: ejecuta varias operaciones del DAO en una sola conexión y
+ * una sola transacción, con un único commit al final.
+ * <p>
+ * Mientras la unidad está abierta, {@link DBConnection#getConnection()} y
+ * {@link DBConnection#getReadConnection()} devuelven en ese hilo la conexión de la
+ * unidad, así que los métodos de {@link MovieDAO} no necesitan cambios. En esa
+ * conexión close(), setAutoCommit() y commit() no tienen efecto. Un rollback() de
+ * cualquier operación marca la unidad para deshacerse al final.
+ * <pre>
+ * boolean ok = UnitOfWork.run(() -&gt; {
+ *     Movie movie = dao.findMovieByTitle(title);
+ *     return movie != null &amp;&amp; dao.deleteMovieById(movie.getId(), movie.getVersion());
+ * });
+ * </pre>
+ * Las unidades anidadas de la misma base de datos se unen a la exterior: si fallan,
+ * la exterior se deshace. Una unidad trabaja sobre una sola base de datos; dentro
+ * de ella puede abrirse la de otra (otro shard), que tiene su propia conexión y se
+ * confirma o deshace antes que la exterior.
+ * @author Alex Fernandez
+ */
+public final class UnitOfWork {
+    // Unidades abiertas en el hilo, por base de datos (null: la de DBConnection)
+    private static final ThreadLocal<Map<PooledDataSource, UnitOfWork>> CURRENT = ThreadLocal.withInitial(HashMap::new);
+
+    private final Connection scoped;
+    private boolean rollbackOnly;
+
+    /**
+     * Trabajo de una unidad.
+     */
+    @FunctionalInterface
+    public interface Work {
+        /**
+         * @return true para confirmar la unidad, false para deshacerla
+         * @throws SQLException si una operación falla (la unidad se deshace)
+         */
+        boolean execute() throws SQLException;
+    }
+
+    private UnitOfWork(Connection conn) {
+        this.scoped = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new ScopedConnectionHandler(conn));
+    }
+
+    /**
+     * Ejecuta el trabajo en una transacción y la confirma si devuelve true y
+     * ninguna operación pidió deshacerla.
+     * @param work operaciones de la unidad
+     * @return true si la unidad se confirmó, false si se deshizo o no hubo conexión
+     */
+    public static boolean run(Work work) {
+        return run(null, work);
+    }
+
+    /**
+     * Ejecuta el trabajo en una transacción de una base de datos concreta (un shard).
+     * @param source base de datos de la unidad, o null para la de {@link DBConnection}
+     * @param work operaciones de la unidad
+     * @return true si la unidad se confirmó, false si se deshizo o no hubo conexión
+     */
+    public static boolean run(PooledDataSource source, Work work) {
+        UnitOfWork outer = CURRENT.get().get(source);
+        if (outer != null) {
+            boolean ok = executeQuietly(work);
+            if (!ok) {
+                outer.rollbackOnly = true;
+            }
+            return ok;
+        }
+        Connection conn = source != null ? source.getConnection() : DBConnection.getConnection();
+        if (conn == null) {
+            return false;
+        }
+        UnitOfWork unit = new UnitOfWork(conn);
+        CURRENT.get().put(source, unit);
+        try {
+            conn.setAutoCommit(false);
+            boolean ok = executeQuietly(work) && !unit.rollbackOnly;
+            if (ok) {
+                conn.commit();
+            } else {
+                conn.rollback();
+            }
+            return ok;
+        } catch (SQLException e) {
+            System.out.println("[ERROR] No se pudo completar la transacción.\nDetalles técnicos: " + e.getMessage());
+            try {
+                conn.rollback();
+            } catch (SQLException rollbackError) {
+                System.out.println("[ADVERTENCIA] No se pudo deshacer la transacción.\nDetalles técnicos: " + rollbackError.getMessage());
+            }
+            return false;
+        } finally {
+            CURRENT.get().remove(source);
+            try {
+                // El pool restaura autocommit al recibir la conexión
+                conn.close();
+            } catch (SQLException e) {
+                System.out.println("[ADVERTENCIA] Ocurrió un problema al cerrar la conexión con la base de datos.\nDetalles técnicos: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return true si el hilo actual está dentro de una unidad de trabajo
+     */
+    public static boolean isActive() {
+        return !CURRENT.get().isEmpty();
+    }
+
+    /**
+     * @param source base de datos, o null para la de {@link DBConnection}
+     * @return conexión de la unidad abierta en este hilo sobre esa base de datos, o null si no hay ninguna
+     */
+    static Connection currentConnection(PooledDataSource source) {
+        UnitOfWork unit = CURRENT.get().get(source);
+        return unit != null ? unit.scoped : null;
+    }
+
+    private static boolean executeQuietly(Work work) {
+        try {
+            return work.execute();
+        } catch (SQLException | RuntimeException e) {
+            System.out.println("[ERROR] La transacción se deshará por un error.\nDetalles técnicos: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Conexión que prestan getConnection() y getReadConnection() dentro de la unidad:
+     * la transacción la controla la unidad, no las operaciones.
+     */
+    private class ScopedConnectionHandler implements InvocationHandler {
+        private final Connection conn;
+
+        ScopedConnectionHandler(Connection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                case "setAutoCommit":
+                case "commit":
+                    return null;
+                case "getAutoCommit":
+                    return false;
+                case "rollback":
+                    if (args == null) {
+                        rollbackOnly = true;
+                        return null;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "UnitOfWorkConnection[" + conn + "]";
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(conn, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
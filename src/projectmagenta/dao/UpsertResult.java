@@ -0,0 +1,138 @@
+package projectmagenta.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Resultado de una sincronización (upsert) de películas por clave natural.
+ * Clasifica cada fila de la lista de entrada por su posición: insertada,
+ * actualizada, sin cambios o rechazada junto con el motivo.
+ * @author Alex Fernandez
+ */
+public class UpsertResult {
+    private final List<Integer> inserted = new ArrayList<>();
+    private final List<Integer> updated = new ArrayList<>();
+    private final List<Integer> unchanged = new ArrayList<>();
+    private final Map<Integer, String> failures = new TreeMap<>();
+
+    /**
+     * Registra una fila insertada.
+     * @param index posición de la fila en la lista de entrada
+     */
+    public void addInserted(int index) {
+        inserted.add(index);
+    }
+
+    /**
+     * Registra una fila que ya existía y cuyos datos cambiaron.
+     * @param index posición de la fila en la lista de entrada
+     */
+    public void addUpdated(int index) {
+        updated.add(index);
+    }
+
+    /**
+     * Registra una fila que ya existía con los mismos datos.
+     * @param index posición de la fila en la lista de entrada
+     */
+    public void addUnchanged(int index) {
+        unchanged.add(index);
+    }
+
+    /**
+     * Registra una fila rechazada.
+     * @param index posición de la fila en la lista de entrada
+     * @param message motivo del rechazo
+     */
+    public void addFailure(int index, String message) {
+        failures.put(index, message);
+    }
+
+    /**
+     * Pasa todas las filas insertadas o actualizadas a rechazadas (por ejemplo,
+     * tras deshacer la transacción).
+     * @param message motivo del rechazo
+     */
+    public void failChanged(String message) {
+        for (int index : inserted) {
+            failures.put(index, message);
+        }
+        for (int index : updated) {
+            failures.put(index, message);
+        }
+        inserted.clear();
+        updated.clear();
+    }
+
+    /**
+     * @return posiciones de las filas insertadas
+     */
+    public List<Integer> getInserted() {
+        return Collections.unmodifiableList(inserted);
+    }
+
+    /**
+     * @return posiciones de las filas actualizadas
+     */
+    public List<Integer> getUpdated() {
+        return Collections.unmodifiableList(updated);
+    }
+
+    /**
+     * @return posiciones de las filas sin cambios
+     */
+    public List<Integer> getUnchanged() {
+        return Collections.unmodifiableList(unchanged);
+    }
+
+    /**
+     * @return filas rechazadas: posición en la lista de entrada y motivo
+     */
+    public Map<Integer, String> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * @return número de películas insertadas
+     */
+    public int getInsertedCount() {
+        return inserted.size();
+    }
+
+    /**
+     * @return número de películas actualizadas
+     */
+    public int getUpdatedCount() {
+        return updated.size();
+    }
+
+    /**
+     * @return número de películas que ya estaban al día
+     */
+    public int getUnchangedCount() {
+        return unchanged.size();
+    }
+
+    /**
+     * @return número de películas rechazadas
+     */
+    public int getFailedCount() {
+        return failures.size();
+    }
+
+    /**
+     * @return true si ninguna película fue rechazada
+     */
+    public boolean isSuccess() {
+        return failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "UpsertResult{insertadas=" + getInsertedCount() + ", actualizadas=" + getUpdatedCount()
+                + ", sinCambios=" + getUnchangedCount() + ", rechazadas=" + getFailedCount() + '}';
+    }
+}
@@ -12,6 +12,11 @@ public class Movie {
     private int year;
     private int duration; // en minutos
     private String genre;
+    // Versión para la concurrencia optimista: updated_at en milisegundos, 0 si se desconoce
+    private long version;
+    // Claves de búsqueda normalizadas (ver SearchKey), calculadas en el primer uso
+    private String titleKey;
+    private String directorKey;
     
     /**
      * Géneros disponibles para las películas.
@@ -69,6 +74,35 @@ public class Movie {
         this.genre = genero;
     }
     
+    /**
+     * Crea una película a partir de datos ya validados, sin pasar por los setters.
+     * Evita las expresiones regulares, el Calendar y la búsqueda de género de cada
+     * setter; solo debe usarse para filas leídas del almacenamiento, que ya se
+     * validaron al insertarse.
+     * @param id identificador único
+     * @param title título de la película
+     * @param director nombre del director
+     * @param year año de estreno
+     * @param duration duración en minutos
+     * @param genre género de la película
+     * @return película con los datos indicados
+     */
+    public static Movie fromTrustedData(int id, String title, String director, int year, int duration, String genre) {
+        return new Movie(id, title, director, year, duration, genre);
+    }
+
+    /**
+     * Igual que {@link #fromTrustedData(int, String, String, int, int, String)},
+     * con la versión leída del almacenamiento.
+     * @param version versión de la fila (ver {@link #getVersion()})
+     * @return película con los datos indicados
+     */
+    public static Movie fromTrustedData(int id, String title, String director, int year, int duration, String genre, long version) {
+        Movie movie = new Movie(id, title, director, year, duration, genre);
+        movie.version = version;
+        return movie;
+    }
+    
     // Getters y Setters
     public int getId() {
         return id;
@@ -99,12 +133,47 @@ public class Movie {
             throw new IllegalArgumentException("El título contiene caracteres no válidos");
         }
         this.title = title;
+        this.titleKey = null;
     }
     
     public String getDirector() {
         return director;
     }
     
+    /**
+     * Versión de la película tal como se leyó del almacenamiento (updated_at en
+     * milisegundos). Las modificaciones y eliminaciones solo se aplican si la fila
+     * conserva esta versión; 0 indica que se desconoce y la escritura no se comprueba.
+     * @return versión leída, o 0
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(long version) {
+        this.version = version;
+    }
+    
+    /**
+     * @return título normalizado para búsquedas (minúsculas, sin tildes)
+     */
+    public String getTitleKey() {
+        if (titleKey == null) {
+            titleKey = SearchKey.normalize(title);
+        }
+        return titleKey;
+    }
+    
+    /**
+     * @return director normalizado para búsquedas (minúsculas, sin tildes)
+     */
+    public String getDirectorKey() {
+        if (directorKey == null) {
+            directorKey = SearchKey.normalize(director);
+        }
+        return directorKey;
+    }
+    
     /**
      * Asigna el nombre del director validando formato y longitud.
      * @param director nombre del director
@@ -122,6 +191,7 @@ public class Movie {
             throw new IllegalArgumentException("El nombre del director solo debe contener letras, espacios, puntos y guiones");
         }
         this.director = director;
+        this.directorKey = null;
     }
     
     public int getYear() {
@@ -205,6 +275,19 @@ public class Movie {
                 '}';
     }
 
+    /**
+     * Vuelve a aplicar las validaciones de los setters sobre los valores actuales.
+     * Útil para películas creadas con el constructor completo o con fromTrustedData().
+     * @throws IllegalArgumentException con el primer campo inválido encontrado
+     */
+    public void validate() {
+        setTitle(title);
+        setDirector(director);
+        setYear(year);
+        setDuration(duration);
+        setGenre(genre);
+    }
+
     /**
      * Valida si la película tiene todos los campos necesarios y valores razonables.
      * @return true si es válida, false si falta algún campo o hay valores fuera de rango
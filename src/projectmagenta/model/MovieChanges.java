@@ -0,0 +1,117 @@
+package projectmagenta.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Cambios de la cartelera desde una marca de agua (versión en milisegundos, ver
+ * {@link Movie#getVersion()}): películas agregadas o modificadas y ids eliminados.
+ * Permite a las vistas actualizarse en un tiempo proporcional a lo que cambió en
+ * lugar de volver a cargar toda la cartelera.
+ * <p>
+ * Si la marca es demasiado antigua (o 0) el almacenamiento devuelve la cartelera
+ * completa con {@link #isFullReload()} a true y la vista debe reemplazar sus datos.
+ * @author Alex Fernandez
+ */
+public class MovieChanges {
+    private final List<Movie> changed;
+    private final List<Integer> deletedIds;
+    private final long watermark;
+    private final boolean fullReload;
+
+    /**
+     * @param changed películas agregadas o modificadas, ordenadas por id ascendente
+     * @param deletedIds ids de las películas eliminadas
+     * @param watermark marca para pedir los cambios siguientes
+     * @param fullReload true si changed es la cartelera completa
+     */
+    public MovieChanges(List<Movie> changed, List<Integer> deletedIds, long watermark, boolean fullReload) {
+        this.changed = Collections.unmodifiableList(changed);
+        this.deletedIds = Collections.unmodifiableList(deletedIds);
+        this.watermark = watermark;
+        this.fullReload = fullReload;
+    }
+
+    /**
+     * @return películas agregadas o modificadas, ordenadas por id ascendente
+     */
+    public List<Movie> getChanged() {
+        return changed;
+    }
+
+    /**
+     * @return ids de las películas eliminadas
+     */
+    public List<Integer> getDeletedIds() {
+        return deletedIds;
+    }
+
+    /**
+     * @return marca de agua para la siguiente consulta de cambios
+     */
+    public long getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * @return true si los cambios son la cartelera completa
+     */
+    public boolean isFullReload() {
+        return fullReload;
+    }
+
+    /**
+     * @return true si no hay nada que aplicar
+     */
+    public boolean isEmpty() {
+        return !fullReload && changed.isEmpty() && deletedIds.isEmpty();
+    }
+
+    /**
+     * Aplica los cambios a una lista de películas ordenada por id: reemplaza o
+     * inserta las modificadas en su posición y quita las eliminadas.
+     * @param moviesById lista ordenada por id ascendente (se modifica)
+     */
+    public void applyTo(List<Movie> moviesById) {
+        if (fullReload) {
+            moviesById.clear();
+            moviesById.addAll(changed);
+            return;
+        }
+        for (int id : deletedIds) {
+            int pos = indexOf(moviesById, id);
+            if (pos >= 0) {
+                moviesById.remove(pos);
+            }
+        }
+        for (Movie movie : changed) {
+            int pos = indexOf(moviesById, movie.getId());
+            if (pos >= 0) {
+                moviesById.set(pos, movie);
+            } else {
+                moviesById.add(-pos - 1, movie);
+            }
+        }
+    }
+
+    /**
+     * Búsqueda binaria por id.
+     * @return posición de la película, o (-(punto de inserción) - 1) si no está
+     */
+    public static int indexOf(List<Movie> moviesById, int id) {
+        int low = 0;
+        int high = moviesById.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = moviesById.get(mid).getId();
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+}
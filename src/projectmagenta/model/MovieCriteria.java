@@ -0,0 +1,209 @@
+package projectmagenta.model;
+
+import java.util.Comparator;
+
+/**
+ * Criterios de búsqueda de películas. Los criterios sin valor no filtran, así que
+ * una instancia recién creada selecciona toda la cartelera ordenada por id.
+ * Los métodos devuelven la propia instancia para poder encadenarlos:
+ * {@code new MovieCriteria().genre("Drama").yearBetween(1990, 1999).limit(50)}.
+ * <p>
+ * El DAO JDBC traduce los criterios a una única consulta parametrizada; los
+ * repositorios en memoria usan {@link #matches(Movie)} y {@link #comparator()}.
+ * @author Alex Fernandez
+ */
+public class MovieCriteria {
+
+    /**
+     * Campos por los que se puede ordenar el resultado.
+     */
+    public enum SortField {
+        ID("id", Comparator.comparingInt(Movie::getId)),
+        TITLE("title", Comparator.comparing(Movie::getTitle, String.CASE_INSENSITIVE_ORDER)),
+        DIRECTOR("director", Comparator.comparing(Movie::getDirector, String.CASE_INSENSITIVE_ORDER)),
+        YEAR("year", Comparator.comparingInt(Movie::getYear)),
+        DURATION("duration", Comparator.comparingInt(Movie::getDuration));
+
+        private final String column;
+        private final Comparator<Movie> comparator;
+
+        SortField(String column, Comparator<Movie> comparator) {
+            this.column = column;
+            this.comparator = comparator;
+        }
+
+        /**
+         * @return nombre de la columna en la tabla Cartelera
+         */
+        public String getColumn() {
+            return column;
+        }
+    }
+
+    private String genre;
+    private String director;
+    private String titleFragment;
+    private Integer minYear;
+    private Integer maxYear;
+    private Integer minDuration;
+    private Integer maxDuration;
+    private SortField sortField = SortField.ID;
+    private boolean descending;
+    private int limit;
+
+    /**
+     * @param genre género exacto (sin distinguir mayúsculas ni tildes), o null para no filtrar
+     * @return esta instancia
+     */
+    public MovieCriteria genre(String genre) {
+        this.genre = blankToNull(genre);
+        return this;
+    }
+
+    /**
+     * @param director director exacto (sin distinguir mayúsculas ni tildes), o null para no filtrar
+     * @return esta instancia
+     */
+    public MovieCriteria director(String director) {
+        this.director = blankToNull(director);
+        return this;
+    }
+
+    /**
+     * @param titleFragment texto que debe contener el título (sin distinguir mayúsculas ni tildes), o null para no filtrar
+     * @return esta instancia
+     */
+    public MovieCriteria titleContains(String titleFragment) {
+        this.titleFragment = blankToNull(titleFragment);
+        return this;
+    }
+
+    /**
+     * @param from año mínimo incluido, o null para no limitar
+     * @param to año máximo incluido, o null para no limitar
+     * @return esta instancia
+     */
+    public MovieCriteria yearBetween(Integer from, Integer to) {
+        this.minYear = from;
+        this.maxYear = to;
+        return this;
+    }
+
+    /**
+     * @param from duración mínima en minutos incluida, o null para no limitar
+     * @param to duración máxima en minutos incluida, o null para no limitar
+     * @return esta instancia
+     */
+    public MovieCriteria durationBetween(Integer from, Integer to) {
+        this.minDuration = from;
+        this.maxDuration = to;
+        return this;
+    }
+
+    /**
+     * @param field campo de ordenación (los empates se ordenan por id)
+     * @param descending true para orden descendente
+     * @return esta instancia
+     */
+    public MovieCriteria orderBy(SortField field, boolean descending) {
+        this.sortField = field != null ? field : SortField.ID;
+        this.descending = descending;
+        return this;
+    }
+
+    /**
+     * @param limit número máximo de resultados; 0 o negativo para no limitar
+     * @return esta instancia
+     */
+    public MovieCriteria limit(int limit) {
+        this.limit = Math.max(0, limit);
+        return this;
+    }
+
+    public String getGenre() {
+        return genre;
+    }
+
+    public String getDirector() {
+        return director;
+    }
+
+    public String getTitleFragment() {
+        return titleFragment;
+    }
+
+    public Integer getMinYear() {
+        return minYear;
+    }
+
+    public Integer getMaxYear() {
+        return maxYear;
+    }
+
+    public Integer getMinDuration() {
+        return minDuration;
+    }
+
+    public Integer getMaxDuration() {
+        return maxDuration;
+    }
+
+    public SortField getSortField() {
+        return sortField;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * @return número máximo de resultados, 0 si no hay límite
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Comprueba una película contra los criterios (para backends sin SQL).
+     * @param movie película a comprobar
+     * @return true si cumple todos los criterios
+     */
+    public boolean matches(Movie movie) {
+        if (genre != null && !SearchKey.normalize(genre).equals(SearchKey.normalize(movie.getGenre()))) {
+            return false;
+        }
+        if (director != null && !SearchKey.normalize(director).equals(movie.getDirectorKey())) {
+            return false;
+        }
+        if (titleFragment != null && !movie.getTitleKey().contains(SearchKey.normalize(titleFragment))) {
+            return false;
+        }
+        if ((minYear != null && movie.getYear() < minYear) || (maxYear != null && movie.getYear() > maxYear)) {
+            return false;
+        }
+        return (minDuration == null || movie.getDuration() >= minDuration)
+                && (maxDuration == null || movie.getDuration() <= maxDuration);
+    }
+
+    /**
+     * @return orden del resultado, con el id como desempate
+     */
+    public Comparator<Movie> comparator() {
+        Comparator<Movie> order = sortField.comparator;
+        if (descending) {
+            order = order.reversed();
+        }
+        return sortField == SortField.ID ? order : order.thenComparingInt(Movie::getId);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    @Override
+    public String toString() {
+        return "MovieCriteria{genre=" + genre + ", director=" + director + ", title~" + titleFragment
+                + ", year=" + minYear + ".." + maxYear + ", duration=" + minDuration + ".." + maxDuration
+                + ", orderBy=" + sortField + (descending ? " DESC" : "") + ", limit=" + limit + '}';
+    }
+}
@@ -0,0 +1,70 @@
+package projectmagenta.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Página de películas obtenida por paginación por clave (keyset): cada página
+ * empieza después del último id de la anterior, así que su coste no depende de
+ * lo profundo que esté en la tabla.
+ * @author Alex Fernandez
+ */
+public class MoviePage {
+    private final List<Movie> movies;
+    private final int nextAfterId;
+    private final boolean hasMore;
+    private final boolean failed;
+
+    /**
+     * @param movies películas de la página, ordenadas por id ascendente
+     * @param afterId cursor con el que se pidió la página
+     * @param hasMore true si existen películas después de esta página
+     */
+    public MoviePage(List<Movie> movies, int afterId, boolean hasMore) {
+        this(movies, afterId, hasMore, false);
+    }
+
+    private MoviePage(List<Movie> movies, int afterId, boolean hasMore, boolean failed) {
+        this.movies = Collections.unmodifiableList(movies);
+        this.nextAfterId = movies.isEmpty() ? afterId : movies.get(movies.size() - 1).getId();
+        this.hasMore = hasMore;
+        this.failed = failed;
+    }
+
+    /**
+     * Página vacía de una lectura que falló, para distinguirla del final de la cartelera.
+     * @param afterId cursor con el que se pidió la página
+     * @return página vacía, sin más películas y marcada como fallida
+     */
+    public static MoviePage failed(int afterId) {
+        return new MoviePage(Collections.emptyList(), afterId, false, true);
+    }
+
+    /**
+     * @return películas de la página, ordenadas por id ascendente
+     */
+    public List<Movie> getMovies() {
+        return movies;
+    }
+
+    /**
+     * @return cursor para pedir la página siguiente (id de la última película)
+     */
+    public int getNextAfterId() {
+        return nextAfterId;
+    }
+
+    /**
+     * @return true si existen películas después de esta página
+     */
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    /**
+     * @return true si la página está vacía porque la lectura falló
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+}
@@ -0,0 +1,129 @@
+package projectmagenta.model;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Estadísticas agregadas de la cartelera: número de películas por género, por
+ * década y por tramo de duración, duración total y media, y años extremos.
+ * Se calculan en el almacenamiento sin transferir las películas.
+ * @author Alex Fernandez
+ */
+public class MovieStats {
+    /** Ancho en minutos de cada tramo del histograma de duración. */
+    public static final int DURATION_BUCKET_MINUTES = 30;
+
+    private final long movieCount;
+    private final long totalDuration;
+    private final int minYear;
+    private final int maxYear;
+    private final Map<String, Long> countByGenre;
+    private final Map<Integer, Long> countByDecade;
+    private final Map<Integer, Long> durationHistogram;
+
+    /**
+     * @param movieCount número de películas
+     * @param totalDuration suma de las duraciones en minutos
+     * @param minYear año más antiguo (0 si no hay películas)
+     * @param maxYear año más reciente (0 si no hay películas)
+     * @param countByGenre películas por género
+     * @param countByDecade películas por década (1990 = años 1990-1999)
+     * @param durationHistogram películas por tramo de duración (90 = 90-119 minutos)
+     */
+    public MovieStats(long movieCount, long totalDuration, int minYear, int maxYear, Map<String, Long> countByGenre,
+            Map<Integer, Long> countByDecade, Map<Integer, Long> durationHistogram) {
+        this.movieCount = movieCount;
+        this.totalDuration = totalDuration;
+        this.minYear = minYear;
+        this.maxYear = maxYear;
+        this.countByGenre = Collections.unmodifiableMap(new TreeMap<>(countByGenre));
+        this.countByDecade = Collections.unmodifiableMap(new TreeMap<>(countByDecade));
+        this.durationHistogram = Collections.unmodifiableMap(new TreeMap<>(durationHistogram));
+    }
+
+    /**
+     * @param year año de la película
+     * @return década del año (1994 → 1990)
+     */
+    public static int decadeOf(int year) {
+        return year / 10 * 10;
+    }
+
+    /**
+     * @param duration duración en minutos
+     * @return inicio del tramo del histograma (104 → 90)
+     */
+    public static int durationBucketOf(int duration) {
+        return duration / DURATION_BUCKET_MINUTES * DURATION_BUCKET_MINUTES;
+    }
+
+    /**
+     * @return número de películas
+     */
+    public long getMovieCount() {
+        return movieCount;
+    }
+
+    /**
+     * @return suma de las duraciones en minutos
+     */
+    public long getTotalDuration() {
+        return totalDuration;
+    }
+
+    /**
+     * @return duración media en minutos (0 si no hay películas)
+     */
+    public double getAverageDuration() {
+        return movieCount == 0 ? 0 : (double) totalDuration / movieCount;
+    }
+
+    /**
+     * @return año más antiguo (0 si no hay películas)
+     */
+    public int getMinYear() {
+        return minYear;
+    }
+
+    /**
+     * @return año más reciente (0 si no hay películas)
+     */
+    public int getMaxYear() {
+        return maxYear;
+    }
+
+    /**
+     * @return películas por género, en orden alfabético
+     */
+    public Map<String, Long> getCountByGenre() {
+        return countByGenre;
+    }
+
+    /**
+     * @return películas por década, de la más antigua a la más reciente
+     */
+    public Map<Integer, Long> getCountByDecade() {
+        return countByDecade;
+    }
+
+    /**
+     * @return películas por tramo de {@link #DURATION_BUCKET_MINUTES} minutos, por inicio del tramo
+     */
+    public Map<Integer, Long> getDurationHistogram() {
+        return durationHistogram;
+    }
+
+    /**
+     * @return true si la cartelera está vacía
+     */
+    public boolean isEmpty() {
+        return movieCount == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "MovieStats{peliculas=" + movieCount + ", duracionTotal=" + totalDuration + ", años=" + minYear + "-" + maxYear
+                + ", generos=" + countByGenre + ", decadas=" + countByDecade + ", duraciones=" + durationHistogram + '}';
+    }
+}
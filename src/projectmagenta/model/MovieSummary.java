@@ -0,0 +1,56 @@
+package projectmagenta.model;
+
+/**
+ * Resumen de una película para las listas de resultados: id, título, año y
+ * director. Las búsquedas que solo muestran una lista leen estas columnas en
+ * lugar de la película completa, que se carga por id al seleccionar una entrada.
+ * @author Alex Fernandez
+ */
+public class MovieSummary {
+    private final int id;
+    private final String title;
+    private final int year;
+    private final String director;
+
+    /**
+     * @param id identificador único de la película
+     * @param title título
+     * @param year año de estreno
+     * @param director director
+     */
+    public MovieSummary(int id, String title, int year, String director) {
+        this.id = id;
+        this.title = title;
+        this.year = year;
+        this.director = director;
+    }
+
+    /**
+     * @param movie película completa
+     * @return resumen de la película
+     */
+    public static MovieSummary of(Movie movie) {
+        return new MovieSummary(movie.getId(), movie.getTitle(), movie.getYear(), movie.getDirector());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public String getDirector() {
+        return director;
+    }
+
+    @Override
+    public String toString() {
+        return "[ID: " + id + "] " + title + " (" + year + ") - " + director;
+    }
+}
@@ -0,0 +1,45 @@
+package projectmagenta.model;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Clave de búsqueda normalizada para títulos y directores: minúsculas, sin
+ * tildes ni diéresis y con los espacios repetidos reducidos a uno. Así
+ * "Acción", "accion" y "ACCIÓN " son la misma clave y el usuario no necesita
+ * repetir la búsqueda escribiendo los acentos exactos.
+ * @author Alex Fernandez
+ */
+public final class SearchKey {
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    private SearchKey() {
+    }
+
+    /**
+     * Normaliza un texto para compararlo o indexarlo.
+     * @param text texto original (puede ser null)
+     * @return clave normalizada; cadena vacía si el texto es null
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String key = text;
+        if (!isPlainAscii(key)) {
+            key = MARKS.matcher(Normalizer.normalize(key, Normalizer.Form.NFD)).replaceAll("");
+        }
+        return SPACES.matcher(key.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isPlainAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
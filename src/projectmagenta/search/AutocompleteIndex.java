@@ -0,0 +1,182 @@
+package projectmagenta.search;
+
+import projectmagenta.model.SearchKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice de autocompletado por prefijo sobre textos cortos (títulos o directores).
+ * Guarda las claves normalizadas en un arreglo ordenado: una sugerencia es una
+ * búsqueda binaria del prefijo y un recorrido de las siguientes posiciones, sin
+ * objetos por nodo como en un árbol.
+ * <p>
+ * Cada clave lleva un contador de referencias, así que un director con varias
+ * películas sigue sugiriéndose hasta que se quita la última. Es seguro para
+ * varios hilos.
+ * @author Alex Fernandez
+ */
+public class AutocompleteIndex {
+    private String[] keys = new String[16];
+    private String[] labels = new String[16];
+    private int[] counts = new int[16];
+    private int size;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Agrega una referencia a un texto. Si ya existe (con la misma clave
+     * normalizada) solo aumenta su contador.
+     * @param label texto a sugerir tal como se mostrará
+     */
+    public void add(String label) {
+        String key = SearchKey.normalize(label);
+        if (key.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int pos = Arrays.binarySearch(keys, 0, size, key);
+            if (pos >= 0) {
+                counts[pos]++;
+                return;
+            }
+            pos = -pos - 1;
+            if (size == keys.length) {
+                int capacity = size * 2;
+                keys = Arrays.copyOf(keys, capacity);
+                labels = Arrays.copyOf(labels, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+            }
+            System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+            System.arraycopy(labels, pos, labels, pos + 1, size - pos);
+            System.arraycopy(counts, pos, counts, pos + 1, size - pos);
+            keys[pos] = key;
+            labels[pos] = label.trim();
+            counts[pos] = 1;
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Agrega muchas referencias de una vez (carga inicial): ordena el conjunto
+     * completo una sola vez en lugar de insertar texto a texto.
+     * @param newLabels textos a agregar
+     */
+    public void addAll(Collection<String> newLabels) {
+        lock.writeLock().lock();
+        try {
+            int total = size + newLabels.size();
+            String[] allKeys = Arrays.copyOf(keys, Math.max(16, total));
+            String[] allLabels = Arrays.copyOf(labels, allKeys.length);
+            int[] allCounts = Arrays.copyOf(counts, allKeys.length);
+            int n = size;
+            for (String label : newLabels) {
+                String key = SearchKey.normalize(label);
+                if (!key.isEmpty()) {
+                    allKeys[n] = key;
+                    allLabels[n] = label.trim();
+                    allCounts[n++] = 1;
+                }
+            }
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> allKeys[a].compareTo(allKeys[b]));
+
+            keys = new String[allKeys.length];
+            labels = new String[allKeys.length];
+            counts = new int[allKeys.length];
+            size = 0;
+            for (int i : order) {
+                if (size > 0 && keys[size - 1].equals(allKeys[i])) {
+                    counts[size - 1] += allCounts[i];
+                } else {
+                    keys[size] = allKeys[i];
+                    labels[size] = allLabels[i];
+                    counts[size++] = allCounts[i];
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quita una referencia a un texto; deja de sugerirse al quitar la última.
+     * @param label texto agregado anteriormente
+     */
+    public void remove(String label) {
+        String key = SearchKey.normalize(label);
+        lock.writeLock().lock();
+        try {
+            int pos = Arrays.binarySearch(keys, 0, size, key);
+            if (pos < 0 || --counts[pos] > 0) {
+                return;
+            }
+            System.arraycopy(keys, pos + 1, keys, pos, size - pos - 1);
+            System.arraycopy(labels, pos + 1, labels, pos, size - pos - 1);
+            System.arraycopy(counts, pos + 1, counts, pos, size - pos - 1);
+            size--;
+            keys[size] = null;
+            labels[size] = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Vacía el índice.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(keys, 0, size, null);
+            Arrays.fill(labels, 0, size, null);
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Devuelve los primeros textos, en orden alfabético, que empiezan por el prefijo
+     * (sin distinguir mayúsculas, tildes ni espacios repetidos).
+     * @param prefix texto escrito por el usuario
+     * @param limit número máximo de sugerencias
+     * @return sugerencias; vacía si el prefijo está vacío
+     */
+    public List<String> suggest(String prefix, int limit) {
+        String key = SearchKey.normalize(prefix);
+        List<String> result = new ArrayList<>(Math.min(limit, 16));
+        if (key.isEmpty()) {
+            return result;
+        }
+        lock.readLock().lock();
+        try {
+            int pos = Arrays.binarySearch(keys, 0, size, key);
+            for (int i = pos >= 0 ? pos : -pos - 1; i < size && result.size() < limit && keys[i].startsWith(key); i++) {
+                result.add(labels[i]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return número de textos distintos indexados
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package projectmagenta.search;
+
+import projectmagenta.dao.MovieRepository;
+import projectmagenta.model.Movie;
+import projectmagenta.model.MovieChanges;
+import projectmagenta.model.MovieSummary;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Índices de búsqueda en memoria de un repositorio: autocompletado de títulos y
+ * directores y, aparte, trigramas de títulos. Cada uno se carga con un recorrido
+ * de la cartelera la primera vez que se pide y se comparte entre todos los
+ * controladores del mismo repositorio, que los mantienen al día con
+ * {@link #movieSaved(MovieRepository, Movie)} y {@link #movieDeleted(MovieRepository, int)}.
+ * Un índice que nunca se pidió no se carga ni se mantiene.
+ * <p>
+ * La carga se hace en un hilo de fondo y fuera del cerrojo compartido, que solo se
+ * toma para publicar el resultado: las consultas desde la interfaz nunca esperan a
+ * que termine el recorrido. Los cambios recibidos durante la carga se aplican antes
+ * de publicarla.
+ * <p>
+ * Los autocompletados solo reflejan los cambios hechos desde esta aplicación: los
+ * de otros clientes de la misma base de datos no se ven hasta volver a cargarlos.
+ * El índice de trigramas, que responde búsquedas cuyos resultados se modifican y
+ * eliminan, se pone al día con {@link MovieRepository#getMoviesChangedSince(long)}
+ * antes de cada búsqueda.
+ * @author Alex Fernandez
+ */
+public class SearchIndexes {
+    private static final Object LOCK = new Object();
+    private static final Map<MovieRepository, Load<SearchIndexes>> SUGGESTIONS = new WeakHashMap<>();
+    private static final Map<MovieRepository, Load<Titles>> TITLES = new WeakHashMap<>();
+
+    // Título y director actuales de cada película, para dejar de sugerir los anteriores
+    private final Map<Integer, MovieSummary> labels = new HashMap<>();
+    private final AutocompleteIndex titleSuggestions = new AutocompleteIndex();
+    private final AutocompleteIndex directorSuggestions = new AutocompleteIndex();
+
+    private SearchIndexes() {
+    }
+
+    /**
+     * Índice de un repositorio: cargado, cargándose o pendiente de un reintento.
+     */
+    private static final class Load<T> {
+        private T value;
+        private boolean loading;
+        // Cambios recibidos mientras se recorre la cartelera
+        private final List<Consumer<T>> pending = new ArrayList<>();
+    }
+
+    /**
+     * Índice de trigramas con la marca de agua de los cambios que ya refleja.
+     */
+    private static final class Titles {
+        private final TitleTrigramIndex index = new TitleTrigramIndex();
+        // Cerrojo de las puestas al día; no es un monitor para no fijar hilos virtuales durante la consulta
+        private final ReentrantLock catchUp = new ReentrantLock();
+        private long watermark;
+    }
+
+    /**
+     * Devuelve los autocompletados del repositorio si ya están cargados; si no,
+     * empieza a cargarlos en un hilo de fondo y devuelve null sin esperar (para no
+     * bloquear la interfaz mientras el usuario escribe).
+     * @param repository repositorio de películas
+     * @return índices cargados, o null si todavía no están disponibles
+     */
+    public static SearchIndexes getOrLoadInBackground(MovieRepository repository) {
+        return getOrLoadInBackground(SUGGESTIONS, repository, SearchIndexes::loadSuggestions);
+    }
+
+    /**
+     * Devuelve el índice de trigramas de títulos del repositorio si ya está cargado,
+     * después de aplicarle los cambios hechos desde la última consulta (también los
+     * de otros clientes), para que las búsquedas no devuelvan películas eliminadas ni
+     * versiones antiguas. Si no está cargado, empieza a cargarlo en un hilo de fondo
+     * y devuelve null sin esperar.
+     * @param repository repositorio de películas
+     * @return índice al día, o null si todavía no está disponible
+     */
+    public static TitleTrigramIndex getTitleIndexOrLoadInBackground(MovieRepository repository) {
+        Titles titles = getOrLoadInBackground(TITLES, repository, SearchIndexes::loadTitles);
+        if (titles == null) {
+            return null;
+        }
+        catchUp(titles, repository);
+        return titles.index;
+    }
+
+    /**
+     * @param repository repositorio de películas
+     * @return autocompletados del repositorio si ya están cargados, o null
+     */
+    public static SearchIndexes getIfLoaded(MovieRepository repository) {
+        synchronized (LOCK) {
+            Load<SearchIndexes> load = SUGGESTIONS.get(repository);
+            return load != null ? load.value : null;
+        }
+    }
+
+    /**
+     * Refleja una película agregada o modificada en los índices del repositorio que
+     * estén cargados o cargándose.
+     * @param repository repositorio de películas
+     * @param movie película guardada, con id asignado
+     */
+    public static void movieSaved(MovieRepository repository, Movie movie) {
+        apply(SUGGESTIONS, repository, indexes -> indexes.movieSaved(movie));
+        apply(TITLES, repository, titles -> titles.index.add(movie));
+    }
+
+    /**
+     * Refleja una película eliminada en los índices del repositorio que estén
+     * cargados o cargándose.
+     * @param repository repositorio de películas
+     * @param id id de la película
+     */
+    public static void movieDeleted(MovieRepository repository, int id) {
+        apply(SUGGESTIONS, repository, indexes -> indexes.movieDeleted(id));
+        apply(TITLES, repository, titles -> titles.index.remove(id));
+    }
+
+    private static <T> T getOrLoadInBackground(Map<MovieRepository, Load<T>> loads, MovieRepository repository,
+                                               Function<MovieRepository, T> loader) {
+        Load<T> load;
+        synchronized (LOCK) {
+            load = loads.computeIfAbsent(repository, key -> new Load<>());
+            if (load.value != null || load.loading) {
+                return load.value;
+            }
+            load.loading = true;
+        }
+        Thread thread = new Thread(() -> publish(load, loader.apply(repository)), "magenta-search-index-loader");
+        thread.setDaemon(true);
+        thread.start();
+        return null;
+    }
+
+    /**
+     * Publica un índice recién cargado con los cambios recibidos durante la carga.
+     * Si la carga falló no se publica nada y la siguiente consulta vuelve a intentarlo.
+     */
+    private static <T> void publish(Load<T> load, T value) {
+        synchronized (LOCK) {
+            if (value != null) {
+                for (Consumer<T> change : load.pending) {
+                    change.accept(value);
+                }
+                load.value = value;
+            }
+            load.pending.clear();
+            load.loading = false;
+        }
+    }
+
+    private static <T> void apply(Map<MovieRepository, Load<T>> loads, MovieRepository repository, Consumer<T> change) {
+        T value;
+        synchronized (LOCK) {
+            Load<T> load = loads.get(repository);
+            if (load == null || load.value == null) {
+                if (load != null && load.loading) {
+                    load.pending.add(change);
+                }
+                return;
+            }
+            value = load.value;
+        }
+        change.accept(value);
+    }
+
+    /**
+     * Carga los autocompletados con un recorrido de la cartelera. Se ordenan una
+     * sola vez al final.
+     */
+    private static SearchIndexes loadSuggestions(MovieRepository repository) {
+        SearchIndexes indexes = new SearchIndexes();
+        List<String> titleLabels = new ArrayList<>();
+        List<String> directorLabels = new ArrayList<>();
+        long loaded = repository.streamAllMovies(movie -> {
+            indexes.labels.put(movie.getId(), MovieSummary.of(movie));
+            titleLabels.add(movie.getTitle());
+            directorLabels.add(movie.getDirector());
+        });
+        if (loaded < 0) {
+            return null;
+        }
+        indexes.titleSuggestions.addAll(titleLabels);
+        indexes.directorSuggestions.addAll(directorLabels);
+        return indexes;
+    }
+
+    /**
+     * Carga el índice de trigramas con un recorrido de la cartelera. La marca de
+     * agua es la mayor versión recorrida: los cambios posteriores llegan con
+     * {@link #catchUp(Titles, MovieRepository)}.
+     */
+    private static Titles loadTitles(MovieRepository repository) {
+        Titles titles = new Titles();
+        long loaded = repository.streamAllMovies(movie -> {
+            titles.index.add(movie);
+            titles.watermark = Math.max(titles.watermark, movie.getVersion());
+        });
+        return loaded < 0 ? null : titles;
+    }
+
+    /**
+     * Aplica al índice los cambios del repositorio desde su marca de agua. Las
+     * puestas al día de un mismo índice se hacen de una en una, y una película ya
+     * indexada con una versión más nueva (guardada desde este proceso mientras se
+     * consultaban los cambios) no se reemplaza por la anterior. Si el repositorio
+     * responde con la cartelera completa, el índice se reconstruye con ella.
+     */
+    private static void catchUp(Titles titles, MovieRepository repository) {
+        titles.catchUp.lock();
+        try {
+            MovieChanges changes = repository.getMoviesChangedSince(titles.watermark);
+            if (changes.isFullReload()) {
+                titles.index.replaceAll(changes.getChanged());
+                titles.watermark = changes.getWatermark();
+                return;
+            }
+            for (Movie movie : changes.getChanged()) {
+                Movie indexed = titles.index.get(movie.getId());
+                if (indexed == null || indexed.getVersion() <= movie.getVersion()) {
+                    titles.index.add(movie);
+                }
+            }
+            for (int id : changes.getDeletedIds()) {
+                titles.index.remove(id);
+            }
+            titles.watermark = changes.getWatermark();
+        } finally {
+            titles.catchUp.unlock();
+        }
+    }
+
+    /**
+     * Refleja una película agregada o modificada. Si el título o el director
+     * cambiaron, los anteriores dejan de sugerirse.
+     * @param movie película guardada, con id asignado
+     */
+    public synchronized void movieSaved(Movie movie) {
+        MovieSummary previous = labels.put(movie.getId(), MovieSummary.of(movie));
+        if (previous != null) {
+            titleSuggestions.remove(previous.getTitle());
+            directorSuggestions.remove(previous.getDirector());
+        }
+        titleSuggestions.add(movie.getTitle());
+        directorSuggestions.add(movie.getDirector());
+    }
+
+    /**
+     * Refleja una película eliminada.
+     * @param id id de la película
+     */
+    public synchronized void movieDeleted(int id) {
+        MovieSummary previous = labels.remove(id);
+        if (previous == null) {
+            return;
+        }
+        titleSuggestions.remove(previous.getTitle());
+        directorSuggestions.remove(previous.getDirector());
+    }
+
+    /**
+     * @return autocompletado de títulos
+     */
+    public AutocompleteIndex getTitleSuggestions() {
+        return titleSuggestions;
+    }
+
+    /**
+     * @return autocompletado de directores
+     */
+    public AutocompleteIndex getDirectorSuggestions() {
+        return directorSuggestions;
+    }
+}
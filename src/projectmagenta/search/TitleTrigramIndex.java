@@ -0,0 +1,293 @@
+package projectmagenta.search;
+
+import projectmagenta.model.Movie;
+import projectmagenta.model.SearchKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido de trigramas sobre los títulos de la cartelera, en memoria.
+ * Cada trigrama (tres caracteres consecutivos de la clave normalizada del título,
+ * ver {@link SearchKey}) apunta a
+ * la lista ordenada de ids de películas cuyo título lo contiene. Una búsqueda por
+ * subcadena intersecta las listas de los trigramas del texto y comprueba los
+ * candidatos, sin recorrer todos los títulos.
+ * <p>
+ * El índice se mantiene de forma incremental con {@link #add(Movie)},
+ * {@link #update(Movie)} y {@link #remove(int)}. Es seguro para varios hilos:
+ * las búsquedas comparten un cerrojo de lectura y las modificaciones lo toman
+ * en exclusiva.
+ * @author Alex Fernandez
+ */
+public class TitleTrigramIndex {
+    private static final int GRAM = 3;
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Vacía el índice.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            entries.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reemplaza todo el contenido del índice de una vez: las búsquedas concurrentes
+     * ven el índice anterior o el nuevo, nunca uno a medias.
+     * @param movies películas con id asignado
+     */
+    public void replaceAll(Collection<Movie> movies) {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            entries.clear();
+            for (Movie movie : movies) {
+                addLocked(movie);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Añade una película al índice (o la reemplaza si su id ya estaba).
+     * @param movie película con id asignado
+     */
+    public void add(Movie movie) {
+        lock.writeLock().lock();
+        try {
+            addLocked(movie);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Actualiza el título y los datos de una película ya indexada.
+     * @param movie película con los datos nuevos
+     */
+    public void update(Movie movie) {
+        add(movie);
+    }
+
+    /**
+     * Quita una película del índice.
+     * @param id id de la película
+     */
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param id id de la película
+     * @return copia de la película indexada con ese id, o null si no está
+     */
+    public Movie get(int id) {
+        lock.readLock().lock();
+        try {
+            Entry entry = entries.get(id);
+            return entry != null ? copy(entry.movie) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return número de películas indexadas
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca las películas cuyo título contiene el texto, sin distinguir mayúsculas ni tildes.
+     * Los textos de menos de tres caracteres no tienen trigramas y se comprueban
+     * contra todos los títulos indexados.
+     * @param fragment texto a buscar
+     * @return copias de las películas encontradas, ordenadas por id ascendente
+     */
+    public List<Movie> search(String fragment) {
+        String needle = SearchKey.normalize(fragment);
+        lock.readLock().lock();
+        try {
+            List<Movie> result = new ArrayList<>();
+            if (needle.length() < GRAM) {
+                for (Entry entry : entries.values()) {
+                    if (entry.key.contains(needle)) {
+                        result.add(copy(entry.movie));
+                    }
+                }
+                result.sort(Comparator.comparingInt(Movie::getId));
+                return result;
+            }
+
+            Set<Long> grams = trigrams(needle);
+            Postings[] lists = new Postings[grams.size()];
+            int n = 0;
+            for (long gram : grams) {
+                Postings list = postings.get(gram);
+                if (list == null) {
+                    return result;
+                }
+                lists[n++] = list;
+            }
+            // Se recorre la lista más corta y se busca cada id en las demás, que avanzan
+            // con búsqueda exponencial desde la última posición (los ids están ordenados)
+            Arrays.sort(lists, Comparator.comparingInt(list -> list.size));
+            Postings smallest = lists[0];
+            int[] cursors = new int[lists.length];
+            candidates:
+            for (int i = 0; i < smallest.size; i++) {
+                int id = smallest.ids[i];
+                for (int j = 1; j < lists.length; j++) {
+                    cursors[j] = lists[j].seek(cursors[j], id);
+                    if (cursors[j] == lists[j].size) {
+                        break candidates;
+                    }
+                    if (lists[j].ids[cursors[j]] != id) {
+                        continue candidates;
+                    }
+                }
+                // Los trigramas pueden aparecer en otro orden: se confirma la subcadena
+                Entry entry = entries.get(id);
+                if (entry.key.contains(needle)) {
+                    result.add(copy(entry.movie));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addLocked(Movie movie) {
+        removeLocked(movie.getId());
+        Entry entry = new Entry(copy(movie), movie.getTitleKey());
+        entries.put(movie.getId(), entry);
+        for (long gram : trigrams(entry.key)) {
+            postings.computeIfAbsent(gram, g -> new Postings()).add(movie.getId());
+        }
+    }
+
+    private void removeLocked(int id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        for (long gram : trigrams(entry.key)) {
+            Postings list = postings.get(gram);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    private static Set<Long> trigrams(String key) {
+        Set<Long> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= key.length(); i++) {
+            grams.add(((long) key.charAt(i) << 32) | ((long) key.charAt(i + 1) << 16) | key.charAt(i + 2));
+        }
+        return grams;
+    }
+
+    private static Movie copy(Movie movie) {
+        return Movie.fromTrustedData(movie.getId(), movie.getTitle(), movie.getDirector(),
+                movie.getYear(), movie.getDuration(), movie.getGenre(), movie.getVersion());
+    }
+
+    private static final class Entry {
+        private final Movie movie;
+        private final String key;
+
+        private Entry(Movie movie, String key) {
+            this.movie = movie;
+            this.key = key;
+        }
+    }
+
+    /**
+     * Lista de ids ordenada. Los ids nuevos suelen ser mayores que los existentes,
+     * así que añadir es normalmente un simple agregado al final.
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        private void add(int id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int pos = Arrays.binarySearch(ids, 0, size, id);
+                if (pos >= 0) {
+                    return;
+                }
+                insertAt(-pos - 1, id);
+                return;
+            }
+            insertAt(size, id);
+        }
+
+        private void insertAt(int pos, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        private boolean remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                return false;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+            return true;
+        }
+
+        /**
+         * Posición del primer id mayor o igual que el buscado, a partir de from.
+         * @return la posición, o size si no hay ninguno
+         */
+        private int seek(int from, int id) {
+            int step = 1;
+            int low = from;
+            int high = from;
+            while (high < size && ids[high] < id) {
+                low = high + 1;
+                high = from + step;
+                step <<= 1;
+            }
+            if (high >= size) {
+                high = size;
+            }
+            int pos = Arrays.binarySearch(ids, low, high, id);
+            return pos >= 0 ? pos : -pos - 1;
+        }
+    }
+}
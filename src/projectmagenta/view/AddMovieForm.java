@@ -1,6 +1,6 @@
 package projectmagenta.view;
 
-import projectmagenta.controller.MovieController;
+import projectmagenta.controller.AsyncMovieController;
 import javax.swing.*;
 import projectmagenta.model.Movie; 
 import java.awt.*;
@@ -26,7 +26,7 @@ public class AddMovieForm extends JInternalFrame {
     private JButton cleanButton;
     private JButton cancelButton;
     
-    private MovieController movieController;
+    private AsyncMovieController movieController;
     private MainFrame mainFrame;
     
     /**
@@ -41,7 +41,7 @@ public class AddMovieForm extends JInternalFrame {
      * Constructor. Inicializa el formulario y los listeners.
      */
     public AddMovieForm() {
-        movieController = new MovieController();
+        movieController = new AsyncMovieController();
         initComponents();
         setupEventListeners();
     }
@@ -281,52 +281,41 @@ public class AddMovieForm extends JInternalFrame {
             saveButton.setEnabled(false);
             saveButton.setText("Guardando...");
             
-            // Usar el controlador para guardar (incluye validaciones)
-            SwingWorker<MovieController.MovieResult, Void> worker = new SwingWorker<MovieController.MovieResult, Void>() {
-                @Override
-                protected MovieController.MovieResult doInBackground() throws Exception {
-                    return movieController.addMovie(movie);
-                }
-                
-                @Override
-                protected void done() {
-                    try {
-                        MovieController.MovieResult result = get();
-                        if (result.isSuccess()) {
-                            JOptionPane.showMessageDialog(
-                                AddMovieForm.this,
-                                result.getMessage(),
-                                "Éxito",
-                                JOptionPane.INFORMATION_MESSAGE
-                            );
-                            cleanFields();
-                            // Trigger live update
-                            if (mainFrame != null) {
-                                mainFrame.notifyMovieChanged();
-                            }
-                        } else {
-                            JOptionPane.showMessageDialog(
-                                AddMovieForm.this,
-                                result.getMessage(),
-                                "Error de Validación",
-                                JOptionPane.WARNING_MESSAGE
-                            );
-                        }
-                    } catch (Exception e) {
+            // Guardar fuera del EDT (el controlador incluye validaciones) y mostrar el resultado en el EDT
+            movieController.addMovie(movie).whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+                try {
+                    if (error != null) {
                         JOptionPane.showMessageDialog(
                             AddMovieForm.this,
-                            "Error inesperado: " + e.getMessage(),
+                            "Error inesperado: " + (error.getCause() != null ? error.getCause() : error).getMessage(),
                             "Error",
                             JOptionPane.ERROR_MESSAGE
                         );
-                    } finally {
-                        saveButton.setEnabled(true);
-                        saveButton.setText("Guardar");
+                    } else if (result.isSuccess()) {
+                        JOptionPane.showMessageDialog(
+                            AddMovieForm.this,
+                            result.getMessage(),
+                            "Éxito",
+                            JOptionPane.INFORMATION_MESSAGE
+                        );
+                        cleanFields();
+                        // Trigger live update
+                        if (mainFrame != null) {
+                            mainFrame.notifyMovieChanged();
+                        }
+                    } else {
+                        JOptionPane.showMessageDialog(
+                            AddMovieForm.this,
+                            result.getMessage(),
+                            "Error de Validación",
+                            JOptionPane.WARNING_MESSAGE
+                        );
                     }
+                } finally {
+                    saveButton.setEnabled(true);
+                    saveButton.setText("Guardar");
                 }
-            };
-            
-            worker.execute();
+            }));
             
         } catch (Exception e) {
             JOptionPane.showMessageDialog(
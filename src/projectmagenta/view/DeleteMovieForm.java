@@ -2,6 +2,7 @@ package projectmagenta.view;
 
 import projectmagenta.controller.MovieController;
 import projectmagenta.model.Movie;
+import projectmagenta.model.MovieSummary;
 import javax.swing.*;
 import java.awt.*;
 import java.util.List;
@@ -11,6 +12,7 @@ import java.util.List;
  * @author Alex Fernandez
  */
 public class DeleteMovieForm extends JInternalFrame {
+    private static final int SUGGESTION_LIMIT = 8;
     private MovieController movieController;
     private MainFrame mainFrame;
     
@@ -25,9 +27,10 @@ public class DeleteMovieForm extends JInternalFrame {
     // Componentes de búsqueda
     private JComboBox<String> searchTypeCombo;
     private JTextField searchField;
+    private SearchSuggestionPopup searchSuggestions;
     private JButton searchButton;
-    private JList<Movie> resultsList;
-    private DefaultListModel<Movie> listModel;
+    private JList<MovieSummary> resultsList;
+    private DefaultListModel<MovieSummary> listModel;
     private JScrollPane resultsScrollPane;
     
     // Componentes de información
@@ -234,13 +237,14 @@ public class DeleteMovieForm extends JInternalFrame {
     private void setupEventListeners() {
         searchButton.addActionListener(e -> performSearch());
         searchField.addActionListener(e -> performSearch());
+        searchSuggestions = new SearchSuggestionPopup(searchField, this::suggestionsFor, this::performSearch);
         searchTypeCombo.addActionListener(e -> onSearchTypeChanged());
         
         resultsList.addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
-                Movie selectedMovie = resultsList.getSelectedValue();
-                if (selectedMovie != null) {
-                    loadMovieData(selectedMovie);
+                MovieSummary selected = resultsList.getSelectedValue();
+                if (selected != null) {
+                    loadSelectedMovie(selected);
                 }
             }
         });
@@ -271,6 +275,7 @@ public class DeleteMovieForm extends JInternalFrame {
      * Actualiza el tooltip del campo de búsqueda y limpia resultados previos.
      */
     private void onSearchTypeChanged() {
+        searchSuggestions.hide();
         listModel.clear();
         resultsScrollPane.setVisible(false);
         clearMovieData();
@@ -281,7 +286,7 @@ public class DeleteMovieForm extends JInternalFrame {
         } else if ("Título exacto".equals(selectedType)) {
             searchField.setToolTipText("Ingrese el título exacto de la película");
         } else if ("Título parcial".equals(selectedType)) {
-            searchField.setToolTipText("Ingrese parte del título de la película");
+            searchField.setToolTipText("Ingrese palabras del título o del director de la película");
         }
         
         repaint();
@@ -320,6 +325,22 @@ public class DeleteMovieForm extends JInternalFrame {
      * Realiza la búsqueda de una película por su ID.       
      * @param idString
      */
+    /**
+     * Sugerencias para el texto del campo de búsqueda según el tipo elegido:
+     * títulos para la búsqueda exacta, títulos y directores para la parcial.
+     */
+    private List<String> suggestionsFor(String text) {
+        String searchType = (String) searchTypeCombo.getSelectedItem();
+        List<String> suggestions = new java.util.ArrayList<>();
+        if ("Título exacto".equals(searchType) || "Título parcial".equals(searchType)) {
+            suggestions.addAll(movieController.suggestTitles(text, SUGGESTION_LIMIT));
+        }
+        if ("Título parcial".equals(searchType) && suggestions.size() < SUGGESTION_LIMIT) {
+            suggestions.addAll(movieController.suggestDirectors(text, SUGGESTION_LIMIT - suggestions.size()));
+        }
+        return suggestions;
+    }
+
     private void performSearchById(String idString) {
         try {
             int id = Integer.parseInt(idString);
@@ -356,18 +377,18 @@ public class DeleteMovieForm extends JInternalFrame {
      * @param partialTitle
      */
     private void performSearchByPartialTitle(String partialTitle) {
-        List<Movie> movies = movieController.findMoviesByPartialTitle(partialTitle);
+        List<MovieSummary> movies = movieController.searchMovieSummaries(partialTitle);
         
         System.out.println("[DEBUG] Búsqueda parcial encontró " + movies.size() + " películas");
         
         if (movies.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "No se encontraron películas que contengan: " + partialTitle, "Sin resultados", JOptionPane.INFORMATION_MESSAGE);
+            JOptionPane.showMessageDialog(this, "No se encontraron películas para: " + partialTitle, "Sin resultados", JOptionPane.INFORMATION_MESSAGE);
             resultsScrollPane.setVisible(false);
         } else if (movies.size() == 1) {
-            loadMovieData(movies.get(0));
+            loadSelectedMovie(movies.get(0));
             resultsScrollPane.setVisible(false);
         } else {
-            for (Movie movie : movies) {
+            for (MovieSummary movie : movies) {
                 listModel.addElement(movie);
             }
             resultsScrollPane.setVisible(true);
@@ -380,6 +401,20 @@ public class DeleteMovieForm extends JInternalFrame {
         }
     }
 
+    /**
+     * Carga la película completa de una entrada de la lista de resultados, que
+     * solo trae id, título, año y director.
+     * @param summary entrada seleccionada
+     */
+    private void loadSelectedMovie(MovieSummary summary) {
+        Movie movie = movieController.findMovieById(summary.getId());
+        if (movie == null) {
+            JOptionPane.showMessageDialog(this, "La película ya no existe en la cartelera: " + summary.getTitle(), "Sin resultados", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        loadMovieData(movie);
+    }
+
     /**
      * Carga los datos de la película seleccionada en los campos de información.
      * @param movie Película seleccionada
@@ -426,7 +461,7 @@ public class DeleteMovieForm extends JInternalFrame {
                 JOptionPane.WARNING_MESSAGE);
 
         if (confirm == JOptionPane.YES_OPTION) {
-            MovieController.MovieResult result = movieController.deleteMovieById(currentMovie.getId());
+            MovieController.MovieResult result = movieController.deleteMovieById(currentMovie.getId(), currentMovie.getVersion());
             if (result.isSuccess()) {
                 JOptionPane.showMessageDialog(this, "Película eliminada exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
                 clearFields();
@@ -434,6 +469,8 @@ public class DeleteMovieForm extends JInternalFrame {
                 if (mainFrame != null) {
                     mainFrame.notifyMovieChanged();
                 }
+            } else if (result.isConflict()) {
+                JOptionPane.showMessageDialog(this, result.getMessage(), "Película modificada por otro usuario", JOptionPane.WARNING_MESSAGE);
             } else {
                 JOptionPane.showMessageDialog(this, "No se pudo eliminar la película.", "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -469,8 +506,8 @@ public class DeleteMovieForm extends JInternalFrame {
                 boolean isSelected, boolean cellHasFocus) {
             super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
             
-            if (value instanceof Movie) {
-                Movie movie = (Movie) value;
+            if (value instanceof MovieSummary) {
+                MovieSummary movie = (MovieSummary) value;
                 setText(String.format("[ID: %d] %s (%d) - %s", 
                     movie.getId(), movie.getTitle(), movie.getYear(), movie.getDirector()));
             }
@@ -2,6 +2,7 @@ package projectmagenta.view;
 
 import projectmagenta.controller.MovieController;
 import projectmagenta.model.Movie;
+import projectmagenta.model.MovieSummary;
 import javax.swing.*;
 import java.awt.*;
 import java.util.List;
@@ -12,6 +13,7 @@ import java.util.List;
  * @author Alex Fernandez
  */
 public class EditMovieForm extends JInternalFrame {
+    private static final int SUGGESTION_LIMIT = 8;
     private MovieController movieController;
     private MainFrame mainFrame;
     
@@ -25,9 +27,10 @@ public class EditMovieForm extends JInternalFrame {
     // Componentes de búsqueda
     private JComboBox<String> searchTypeCombo;
     private JTextField searchField;
+    private SearchSuggestionPopup searchSuggestions;
     private JButton searchButton;
-    private JList<Movie> resultsList;
-    private DefaultListModel<Movie> listModel;
+    private JList<MovieSummary> resultsList;
+    private DefaultListModel<MovieSummary> listModel;
     private JScrollPane resultsScrollPane;
     
     // Componentes del formulario
@@ -221,15 +224,18 @@ public class EditMovieForm extends JInternalFrame {
         // Listener para Enter en el campo de búsqueda
         searchField.addActionListener(e -> performSearch());
         
+        // Sugerencias de títulos y directores mientras se escribe
+        searchSuggestions = new SearchSuggestionPopup(searchField, this::suggestionsFor, this::performSearch);
+        
         // Listener para cambio de tipo de búsqueda
         searchTypeCombo.addActionListener(e -> onSearchTypeChanged());
         
         // Listener para selección en la lista de resultados
         resultsList.addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
-                Movie selectedMovie = resultsList.getSelectedValue();
-                if (selectedMovie != null) {
-                    loadMovieData(selectedMovie);
+                MovieSummary selected = resultsList.getSelectedValue();
+                if (selected != null) {
+                    loadSelectedMovie(selected);
                 }
             }
         });
@@ -260,6 +266,7 @@ public class EditMovieForm extends JInternalFrame {
     }
 
     private void onSearchTypeChanged() {
+        searchSuggestions.hide();
         String selectedType = (String) searchTypeCombo.getSelectedItem();
         
         // Limpiar resultados anteriores
@@ -274,7 +281,7 @@ public class EditMovieForm extends JInternalFrame {
         } else if ("Título exacto".equals(selectedType)) {
             searchField.setToolTipText("Ingrese el título exacto de la película");
         } else if ("Título parcial".equals(selectedType)) {
-            searchField.setToolTipText("Ingrese parte del título de la película");
+            searchField.setToolTipText("Ingrese palabras del título o del director de la película");
         }
         
         repaint();
@@ -308,6 +315,22 @@ public class EditMovieForm extends JInternalFrame {
         }
     }
 
+    /**
+     * Sugerencias para el texto del campo de búsqueda según el tipo elegido:
+     * títulos para la búsqueda exacta, títulos y directores para la parcial.
+     */
+    private List<String> suggestionsFor(String text) {
+        String searchType = (String) searchTypeCombo.getSelectedItem();
+        List<String> suggestions = new java.util.ArrayList<>();
+        if ("Título exacto".equals(searchType) || "Título parcial".equals(searchType)) {
+            suggestions.addAll(movieController.suggestTitles(text, SUGGESTION_LIMIT));
+        }
+        if ("Título parcial".equals(searchType) && suggestions.size() < SUGGESTION_LIMIT) {
+            suggestions.addAll(movieController.suggestDirectors(text, SUGGESTION_LIMIT - suggestions.size()));
+        }
+        return suggestions;
+    }
+
     private void performSearchById(String idString) {
         try {
             int id = Integer.parseInt(idString);
@@ -336,20 +359,20 @@ public class EditMovieForm extends JInternalFrame {
     }
 
     private void performSearchByPartialTitle(String partialTitle) {
-        List<Movie> movies = movieController.findMoviesByPartialTitle(partialTitle);
+        List<MovieSummary> movies = movieController.searchMovieSummaries(partialTitle);
         
         System.out.println("[DEBUG] Búsqueda parcial encontró " + movies.size() + " películas");
         
         if (movies.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "No se encontraron películas que contengan: " + partialTitle, "Sin resultados", JOptionPane.INFORMATION_MESSAGE);
+            JOptionPane.showMessageDialog(this, "No se encontraron películas para: " + partialTitle, "Sin resultados", JOptionPane.INFORMATION_MESSAGE);
             resultsScrollPane.setVisible(false);
         } else if (movies.size() == 1) {
             // Si solo hay un resultado, cargarlo directamente
-            loadMovieData(movies.get(0));
+            loadSelectedMovie(movies.get(0));
             resultsScrollPane.setVisible(false);
         } else {
             // Múltiples resultados, mostrar la lista
-            for (Movie movie : movies) {
+            for (MovieSummary movie : movies) {
                 listModel.addElement(movie);
             }
             resultsScrollPane.setVisible(true);
@@ -363,6 +386,20 @@ public class EditMovieForm extends JInternalFrame {
         }
     }
 
+    /**
+     * Carga la película completa de una entrada de la lista de resultados, que
+     * solo trae id, título, año y director.
+     * @param summary entrada seleccionada
+     */
+    private void loadSelectedMovie(MovieSummary summary) {
+        Movie movie = movieController.findMovieById(summary.getId());
+        if (movie == null) {
+            JOptionPane.showMessageDialog(this, "La película ya no existe en la cartelera: " + summary.getTitle(), "Sin resultados", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        loadMovieData(movie);
+    }
+
     private void loadMovieData(Movie movie) {
         this.currentMovie = movie;
         titleField.setText(movie.getTitle());
@@ -403,6 +440,7 @@ public class EditMovieForm extends JInternalFrame {
             // Crear una copia de la película con los nuevos datos
             Movie updatedMovie = new Movie();
             updatedMovie.setId(currentMovie.getId());
+            updatedMovie.setVersion(currentMovie.getVersion());
             updatedMovie.setTitle(titleField.getText().trim());
             updatedMovie.setDirector(directorField.getText().trim());
             updatedMovie.setYear(Integer.parseInt(yearField.getText().trim()));
@@ -417,6 +455,8 @@ public class EditMovieForm extends JInternalFrame {
                 if (mainFrame != null) {
                     mainFrame.notifyMovieChanged();
                 }
+            } else if (result.isConflict()) {
+                JOptionPane.showMessageDialog(this, result.getMessage(), "Película modificada por otro usuario", JOptionPane.WARNING_MESSAGE);
             } else {
                 JOptionPane.showMessageDialog(this, "No se pudo actualizar la película: " + result.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -455,8 +495,8 @@ public class EditMovieForm extends JInternalFrame {
                 boolean isSelected, boolean cellHasFocus) {
             super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
             
-            if (value instanceof Movie) {
-                Movie movie = (Movie) value;
+            if (value instanceof MovieSummary) {
+                MovieSummary movie = (MovieSummary) value;
                 setText(String.format("[ID: %d] %s (%d) - %s", 
                     movie.getId(), movie.getTitle(), movie.getYear(), movie.getDirector()));
             }
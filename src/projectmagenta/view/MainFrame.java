@@ -20,6 +20,8 @@ public class MainFrame extends JFrame {
     private JLabel statusLabel;
     // Desktop cartelera table model for live updates
     private DefaultTableModel desktopTableModel;
+    // Watermark of the last change query (0 = next load is a full reload)
+    private long carteleraWatermark;
     // List of observers for movie changes
     private List<MovieChangeListener> movieChangeListeners;
     
@@ -275,6 +277,7 @@ public class MainFrame extends JFrame {
                         "Confirmar salida",
                         JOptionPane.YES_NO_OPTION,
                         JOptionPane.QUESTION_MESSAGE) == JOptionPane.YES_OPTION) {
+                    projectmagenta.dao.DBConnection.shutdown();
                     System.exit(0);
                 }
             }
@@ -405,39 +408,30 @@ public class MainFrame extends JFrame {
 
     /**
      * Loads movies data into the table model.
+     * Only the movies changed since the previous load are fetched and applied;
+     * the first load (or the one after an error) brings the whole cartelera.
      */
     private void loadMoviesData(DefaultTableModel tableModel) {
         try {
-            projectmagenta.dao.MovieDAO movieDAO = new projectmagenta.dao.MovieDAO();
-            java.util.List<projectmagenta.model.Movie> movies = movieDAO.getAllMovies();
-            
-            for (projectmagenta.model.Movie movie : movies) {
-                Object[] row = {
-                    movie.getId(),
-                    movie.getTitle(),
-                    movie.getDirector(),
-                    movie.getYear(),
-                    movie.getDuracionFormateada(),
-                    movie.getGenre()
-                };
-                tableModel.addRow(row);
-            }
+            projectmagenta.controller.MovieController movieController = new projectmagenta.controller.MovieController();
+            projectmagenta.model.MovieChanges changes = movieController.getMoviesChangedSince(carteleraWatermark);
+            MovieTableSync.apply(tableModel, changes);
+            carteleraWatermark = changes.getWatermark();
         } catch (Exception e) {
             // If there's an error loading movies, show a placeholder message
+            carteleraWatermark = 0;
+            tableModel.setRowCount(0);
             Object[] row = {"Error", "No se pudieron cargar las películas", "-", "-", "-", "-"};
             tableModel.addRow(row);
         }
     }
     
     /**
-     * Refreshes the desktop cartelera table with current data.
+     * Refreshes the desktop cartelera table with the changes since the last load.
      */
     public void refreshDesktopCartelera() {
         if (desktopTableModel != null) {
             SwingUtilities.invokeLater(() -> {
-                // Clear existing data
-                desktopTableModel.setRowCount(0);
-                // Reload data
                 loadMoviesData(desktopTableModel);
                 updateStatus("Cartelera actualizada");
             });
@@ -0,0 +1,90 @@
+package projectmagenta.view;
+
+import projectmagenta.model.Movie;
+import projectmagenta.model.MovieChanges;
+import javax.swing.table.DefaultTableModel;
+
+/**
+ * Aplica cambios de la cartelera a una tabla de películas con las columnas
+ * ID, Título, Director, Año, Duración y Género, ordenada por id. Solo toca las
+ * filas que cambiaron, así que refrescar la tabla cuesta lo que cambió y no lo
+ * que mide la cartelera.
+ * @author Alex Fernandez
+ */
+public final class MovieTableSync {
+
+    private MovieTableSync() {
+    }
+
+    /**
+     * @param movie película
+     * @return fila de la tabla para la película
+     */
+    public static Object[] toRow(Movie movie) {
+        return new Object[] {
+            movie.getId(),
+            movie.getTitle(),
+            movie.getDirector(),
+            movie.getYear(),
+            movie.getDuracionFormateada(),
+            movie.getGenre()
+        };
+    }
+
+    /**
+     * Aplica los cambios a la tabla: con una recarga completa reemplaza todas las
+     * filas; si no, quita las eliminadas y reemplaza o inserta las modificadas en
+     * su posición por id.
+     * @param model modelo de la tabla, con las filas ordenadas por id
+     * @param changes cambios a aplicar
+     */
+    public static void apply(DefaultTableModel model, MovieChanges changes) {
+        if (changes.isFullReload()) {
+            model.setRowCount(0);
+            for (Movie movie : changes.getChanged()) {
+                model.addRow(toRow(movie));
+            }
+            return;
+        }
+        for (int id : changes.getDeletedIds()) {
+            int row = findRow(model, id);
+            if (row >= 0) {
+                model.removeRow(row);
+            }
+        }
+        for (Movie movie : changes.getChanged()) {
+            int row = findRow(model, movie.getId());
+            Object[] values = toRow(movie);
+            if (row >= 0) {
+                for (int column = 1; column < values.length; column++) {
+                    if (!values[column].equals(model.getValueAt(row, column))) {
+                        model.setValueAt(values[column], row, column);
+                    }
+                }
+            } else {
+                model.insertRow(-row - 1, values);
+            }
+        }
+    }
+
+    /**
+     * Búsqueda binaria por la columna ID.
+     * @return fila de la película, o (-(punto de inserción) - 1) si no está
+     */
+    private static int findRow(DefaultTableModel model, int id) {
+        int low = 0;
+        int high = model.getRowCount() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = (Integer) model.getValueAt(mid, 0);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+}
@@ -0,0 +1,141 @@
+package projectmagenta.view;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Lista desplegable de sugerencias bajo un campo de búsqueda, actualizada con
+ * cada tecla. Las flechas recorren las sugerencias, Enter o un clic copian la
+ * elegida al campo y Escape cierra la lista.
+ * @author Alex Fernandez
+ */
+public class SearchSuggestionPopup {
+    private final JTextField field;
+    private final Function<String, List<String>> source;
+    private final Runnable onAccept;
+    private final JPopupMenu popup = new JPopupMenu();
+    private final DefaultListModel<String> model = new DefaultListModel<>();
+    private final JList<String> list = new JList<>(model);
+    private boolean adjusting;
+
+    /**
+     * @param field campo de búsqueda al que se asocian las sugerencias
+     * @param source sugerencias para el texto escrito (debe responder sin bloquear)
+     * @param onAccept acción a ejecutar al elegir una sugerencia con el ratón
+     */
+    public SearchSuggestionPopup(JTextField field, Function<String, List<String>> source, Runnable onAccept) {
+        this.field = field;
+        this.source = source;
+        this.onAccept = onAccept;
+
+        list.setFocusable(false);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        popup.setFocusable(false);
+        popup.add(new JScrollPane(list));
+
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                SwingUtilities.invokeLater(SearchSuggestionPopup.this::refresh);
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                SwingUtilities.invokeLater(SearchSuggestionPopup.this::refresh);
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+
+        field.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (!popup.isVisible()) {
+                    return;
+                }
+                if (e.getKeyCode() == KeyEvent.VK_DOWN || e.getKeyCode() == KeyEvent.VK_UP) {
+                    int step = e.getKeyCode() == KeyEvent.VK_DOWN ? 1 : -1;
+                    int index = Math.max(0, Math.min(model.size() - 1, list.getSelectedIndex() + step));
+                    list.setSelectedIndex(index);
+                    list.ensureIndexIsVisible(index);
+                    e.consume();
+                } else if (e.getKeyCode() == KeyEvent.VK_ENTER) {
+                    // No se consume: el ActionListener del campo busca con el texto elegido
+                    if (list.getSelectedValue() != null) {
+                        accept(list.getSelectedValue());
+                    }
+                    hide();
+                } else if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+                    hide();
+                    e.consume();
+                }
+            }
+        });
+
+        field.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent e) {
+                hide();
+            }
+        });
+
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                String value = list.getSelectedValue();
+                if (value != null) {
+                    accept(value);
+                    hide();
+                    onAccept.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * Cierra la lista de sugerencias.
+     */
+    public void hide() {
+        popup.setVisible(false);
+    }
+
+    private void refresh() {
+        if (adjusting || !field.isShowing()) {
+            return;
+        }
+        List<String> suggestions = source.apply(field.getText());
+        if (suggestions.isEmpty()) {
+            hide();
+            return;
+        }
+        model.clear();
+        for (String suggestion : suggestions) {
+            model.addElement(suggestion);
+        }
+        list.setVisibleRowCount(Math.min(suggestions.size(), 8));
+        popup.pack();
+        if (!popup.isVisible()) {
+            popup.show(field, 0, field.getHeight());
+            field.requestFocusInWindow();
+        }
+    }
+
+    private void accept(String value) {
+        // Las actualizaciones de la lista se encolan con invokeLater: se reactiva
+        // después de ellas para que copiar la sugerencia no vuelva a abrir la lista
+        adjusting = true;
+        field.setText(value);
+        SwingUtilities.invokeLater(() -> adjusting = false);
+    }
+}
@@ -1,13 +1,17 @@
 package projectmagenta.view;
 
-import projectmagenta.dao.MovieDAO;
+import projectmagenta.controller.MovieController;
 import projectmagenta.model.Movie;
+import projectmagenta.model.MovieChanges;
+import projectmagenta.model.MovieCriteria;
+import projectmagenta.model.MovieStats;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -20,7 +24,7 @@ public class ViewAllMoviesForm extends JInternalFrame {
     
     private JTable moviesTable;
     private DefaultTableModel tableModel;
-    private MovieDAO movieDAO;
+    private MovieController movieController;
     private JButton refreshButton;
     private JLabel statusLabel;
     
@@ -33,14 +37,21 @@ public class ViewAllMoviesForm extends JInternalFrame {
     private JButton applyFiltersButton;
     private JButton clearFiltersButton;
     
-    // Lista completa de películas para filtrado
+    // Lista completa de películas para filtrado, ordenada por id
     private List<Movie> allMovies;
+    // Marca de agua de la última carga (0 = la próxima carga es completa)
+    private long watermark;
+    // true si la tabla muestra allMovies sin filtros
+    private boolean showingAll;
+    // Rango de años de la cartelera para los selectores (se ajusta con las estadísticas)
+    private int minYear = 1900;
+    private int maxYear = 2030;
     
     /**
      * Constructor: inicializa los componentes del formulario.
      */
     public ViewAllMoviesForm() {
-        movieDAO = new MovieDAO();
+        movieController = new MovieController();
         initComponents();
         loadMovies();
     }
@@ -222,27 +233,32 @@ public class ViewAllMoviesForm extends JInternalFrame {
         fromYearSpinner.setEnabled(enabled);
         toYearSpinner.setEnabled(enabled);
         if (!enabled) {
-            fromYearSpinner.setValue(1900);
-            toYearSpinner.setValue(2030);
+            fromYearSpinner.setValue(minYear);
+            toYearSpinner.setValue(maxYear);
         }
     }
     
     /**
-     * Carga todas las películas desde la base de datos y las muestra en la tabla.
+     * Carga las películas y las muestra en la tabla. La primera carga trae toda la
+     * cartelera; las siguientes solo las películas que cambiaron desde la anterior.
      */
     public void loadMovies() {
         statusLabel.setText("Cargando películas...");
         refreshButton.setEnabled(false);
         
-        // Limpiar tabla actual
-        tableModel.setRowCount(0);
-        
         try {
-            allMovies = movieDAO.getAllMovies();
+            MovieChanges changes = movieController.getMoviesChangedSince(watermark);
+            if (allMovies == null) {
+                allMovies = new ArrayList<>();
+            }
+            changes.applyTo(allMovies);
+            watermark = changes.getWatermark();
+            updateYearRange();
             
             if (allMovies.isEmpty()) {
+                displayMovies(allMovies);
                 statusLabel.setText("No hay películas en la cartelera");
-            } else {
+            } else if (changes.isFullReload()) {
                 // Actualizar el combo de géneros
                 updateGenreFilter();
                 
@@ -250,9 +266,17 @@ public class ViewAllMoviesForm extends JInternalFrame {
                 displayMovies(allMovies);
                 
                 statusLabel.setText("Se encontraron " + allMovies.size() + " película(s) en la cartelera");
+            } else if (showingAll) {
+                // Aplicar solo los cambios a la tabla
+                MovieTableSync.apply(tableModel, changes);
+                statusLabel.setText("Se encontraron " + allMovies.size() + " película(s) en la cartelera");
+            } else {
+                // Con filtros activos, volver a consultar las películas que los cumplen
+                applyFilters();
             }
             
         } catch (Exception e) {
+            watermark = 0;
             statusLabel.setText("Error al cargar las películas");
             JOptionPane.showMessageDialog(this, 
                 "Error al cargar las películas: " + e.getMessage(),
@@ -263,6 +287,32 @@ public class ViewAllMoviesForm extends JInternalFrame {
         }
     }
     
+    /**
+     * Ajusta los selectores de año al año más antiguo y más reciente de la
+     * cartelera, según las estadísticas en caché del controlador.
+     */
+    private void updateYearRange() {
+        MovieStats stats = movieController.getMovieStats();
+        if (stats == null || stats.isEmpty()) {
+            return;
+        }
+        minYear = stats.getMinYear();
+        maxYear = stats.getMaxYear();
+        boolean keepValues = enableYearFilter.isSelected();
+        setYearBounds(fromYearSpinner, keepValues ? (Integer) fromYearSpinner.getValue() : minYear);
+        setYearBounds(toYearSpinner, keepValues ? (Integer) toYearSpinner.getValue() : maxYear);
+    }
+    
+    /**
+     * Cambia los límites de un selector de año y le asigna el valor dentro del rango.
+     */
+    private void setYearBounds(JSpinner spinner, int value) {
+        SpinnerNumberModel model = (SpinnerNumberModel) spinner.getModel();
+        model.setValue(Math.max(minYear, Math.min(maxYear, value)));
+        model.setMinimum(minYear);
+        model.setMaximum(maxYear);
+    }
+    
     /**
      * Actualiza el combo box de géneros con los géneros predefinidos.
      */
@@ -299,20 +349,13 @@ public class ViewAllMoviesForm extends JInternalFrame {
         
         // Agregar películas a la tabla
         for (Movie movie : movies) {
-            Object[] row = {
-                movie.getId(),
-                movie.getTitle(),
-                movie.getDirector(),
-                movie.getYear(),
-                movie.getDuracionFormateada(),
-                movie.getGenre()
-            };
-            tableModel.addRow(row);
+            tableModel.addRow(MovieTableSync.toRow(movie));
         }
+        showingAll = movies == allMovies;
     }
     
     /**
-     * Aplica los filtros marcados a la lista de películas.
+     * Aplica los filtros marcados consultando solo las películas que los cumplen.
      */
     private void applyFilters() {
         if (allMovies == null || allMovies.isEmpty()) {
@@ -331,8 +374,8 @@ public class ViewAllMoviesForm extends JInternalFrame {
         }
         
         String selectedGenre = null;
-        int fromYear = 1900;
-        int toYear = 2030;
+        int fromYear = minYear;
+        int toYear = maxYear;
         
         // Obtener valores de filtros activos
         if (genreFilterActive) {
@@ -357,31 +400,15 @@ public class ViewAllMoviesForm extends JInternalFrame {
             }
         }
         
-        // Filtrar películas
-        List<Movie> filteredMovies = new java.util.ArrayList<>();
-        for (Movie movie : allMovies) {
-            boolean includeMovie = true;
-            
-            // Aplicar filtro de género si está activo
-            if (genreFilterActive) {
-                boolean matchesGenre = movie.getGenre() != null && movie.getGenre().equals(selectedGenre);
-                if (!matchesGenre) {
-                    includeMovie = false;
-                }
-            }
-            
-            // Aplicar filtro de año si está activo
-            if (yearFilterActive && includeMovie) {
-                boolean matchesYear = movie.getYear() >= fromYear && movie.getYear() <= toYear;
-                if (!matchesYear) {
-                    includeMovie = false;
-                }
-            }
-            
-            if (includeMovie) {
-                filteredMovies.add(movie);
-            }
+        // Filtrar películas en el almacenamiento: solo se cargan las que cumplen los filtros
+        MovieCriteria criteria = new MovieCriteria();
+        if (genreFilterActive) {
+            criteria.genre(selectedGenre);
+        }
+        if (yearFilterActive) {
+            criteria.yearBetween(fromYear, toYear);
         }
+        List<Movie> filteredMovies = movieController.findMovies(criteria);
         
         // Mostrar resultados filtrados
         displayMovies(filteredMovies);
@@ -0,0 +1,101 @@
+package projectmagenta.controller;
+
+import projectmagenta.dao.FileMovieRepository;
+import projectmagenta.dao.MovieRepository;
+import projectmagenta.dao.MovieRepositoryFactory;
+import projectmagenta.model.Movie;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+
+/**
+ * Prueba de carga del controlador sobre los distintos backends de almacenamiento.
+ * Por defecto compara memory y file; pase los backends como argumentos para elegir
+ * otros (por ejemplo {@code jdbc memory}).
+ */
+public class MovieControllerBenchmark {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 20_000;
+    private static final int SEED_MOVIES = 1_000;
+
+    public static void main(String[] args) throws Exception {
+        System.setOut(new java.io.PrintStream(System.out, true, "UTF-8"));
+        String[] backends = args.length > 0 ? args : new String[] { "memory", "file" };
+
+        System.out.println("==============================");
+        System.out.println("   PRUEBA DE CARGA DEL CONTROLADOR   ");
+        System.out.println("==============================");
+        System.out.println("[CONFIG] hilos=" + THREADS + ", operaciones/hilo=" + OPERATIONS_PER_THREAD
+                + " (80% lecturas, 20% escrituras)");
+
+        for (String backend : backends) {
+            runBackend(backend, createRepository(backend));
+        }
+    }
+
+    private static MovieRepository createRepository(String backend) throws Exception {
+        if ("file".equals(backend)) {
+            java.nio.file.Path file = java.nio.file.Files.createTempFile("cartelera-bench", ".db");
+            file.toFile().deleteOnExit();
+            return new FileMovieRepository(file);
+        }
+        return MovieRepositoryFactory.create(backend);
+    }
+
+    private static void runBackend(String backend, MovieRepository repository) throws Exception {
+        System.out.println("\n------------------------------");
+        System.out.println("[BENCHMARK] Backend: " + backend);
+        MovieController controller = new MovieController(repository);
+
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < SEED_MOVIES; i++) {
+            Movie movie = createMovie("Pelicula " + i);
+            controller.addMovie(movie);
+            ids.add(movie.getId());
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> tasks = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            tasks.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    int id = ids.get(random.nextInt(ids.size()));
+                    int op = random.nextInt(10);
+                    if (op < 8) {
+                        controller.findMovieById(id);
+                    } else {
+                        Movie movie = createMovie("Pelicula editada " + i);
+                        movie.setId(id);
+                        controller.updateMovie(movie);
+                    }
+                }
+            }));
+        }
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        long nanos = System.nanoTime() - start;
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+
+        long operations = (long) THREADS * OPERATIONS_PER_THREAD;
+        System.out.printf("[%s] %d operaciones en %d ms -> %.0f op/s%n",
+                backend, operations, nanos / 1_000_000, operations / (nanos / 1e9));
+    }
+
+    private static Movie createMovie(String title) {
+        Movie movie = new Movie();
+        movie.setTitle(title);
+        movie.setDirector("Director Benchmark");
+        movie.setYear(2000);
+        movie.setDuration(100);
+        movie.setGenre("Drama");
+        return movie;
+    }
+}
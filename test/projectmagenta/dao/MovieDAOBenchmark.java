@@ -0,0 +1,226 @@
+package projectmagenta.dao;
+
+import projectmagenta.model.Movie;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Benchmarks de rendimiento de la capa de acceso a datos.
+ * El benchmark de hidratación no necesita base de datos; el resto requiere la
+ * misma base de datos Cine_DB que MovieDAOTest.
+ */
+public class MovieDAOBenchmark {
+    private static final String URL = "jdbc:mysql://localhost:3306/Cine_DB";
+    private static final String USER = "root";
+    private static final String PASSWORD = "Admin";
+    private static final int ITERATIONS = 200;
+    private static final int HYDRATION_ROWS = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        System.setOut(new java.io.PrintStream(System.out, true, "UTF-8"));
+
+        System.out.println("==============================");
+        System.out.println("   BENCHMARKS DE ACCESO A DATOS   ");
+        System.out.println("==============================");
+
+        benchmarkHydration();
+
+        if (!DBConnection.testConnection()) {
+            System.out.println("[ERROR] Falló la conexión a la base de datos - abortando benchmarks");
+            System.exit(1);
+        }
+
+        benchmarkConnectionPool();
+        benchmarkStatementCache();
+        benchmarkWriteLatency();
+
+        DBConnection.shutdown();
+        System.out.println("\n==============================");
+        System.out.println("   BENCHMARKS FINALIZADOS   ");
+        System.out.println("==============================");
+    }
+
+    /**
+     * Compara el mapeo de filas con los setters validadores (ruta anterior) contra
+     * MovieDAO.mapRow(), que lee por índice y crea la película por la ruta de confianza.
+     * Usa un ResultSet sintético en memoria para medir solo el coste de hidratación.
+     */
+    private static void benchmarkHydration() throws Exception {
+        System.out.println("\n------------------------------");
+        System.out.println("[BENCHMARK] Hidratación de " + HYDRATION_ROWS + " filas: setters vs. ruta de confianza");
+
+        Object[][] rows = new Object[HYDRATION_ROWS][];
+        String[] genres = Movie.GENEROS;
+        for (int i = 0; i < HYDRATION_ROWS; i++) {
+            rows[i] = new Object[] { i + 1, "Película número " + i, "Director Pérez", 1950 + i % 70,
+                    80 + i % 100, genres[i % genres.length], new java.sql.Timestamp(1_700_000_000_000L + i) };
+        }
+
+        long checksum = 0;
+        for (int warmup = 0; warmup < 3; warmup++) {
+            checksum += hydrateWithSetters(syntheticResultSet(rows));
+            checksum += hydrateTrusted(syntheticResultSet(rows));
+        }
+
+        long start = System.nanoTime();
+        checksum += hydrateWithSetters(syntheticResultSet(rows));
+        long settersNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        checksum += hydrateTrusted(syntheticResultSet(rows));
+        long trustedNanos = System.nanoTime() - start;
+
+        report("Setters con validación", settersNanos, HYDRATION_ROWS);
+        report("MovieDAO.mapRow", trustedNanos, HYDRATION_ROWS);
+        System.out.printf("[RESULTADO] La ruta de confianza es %.1fx más rápida (checksum %d)%n",
+                (double) settersNanos / trustedNanos, checksum);
+    }
+
+    private static long hydrateWithSetters(ResultSet rs) throws SQLException {
+        long sum = 0;
+        while (rs.next()) {
+            Movie movie = new Movie();
+            movie.setId(rs.getInt("id"));
+            movie.setTitle(rs.getString("title"));
+            movie.setDirector(rs.getString("director"));
+            movie.setYear(rs.getInt("year"));
+            movie.setDuration(rs.getInt("duration"));
+            movie.setGenre(rs.getString("genre"));
+            sum += movie.getId();
+        }
+        return sum;
+    }
+
+    private static long hydrateTrusted(ResultSet rs) throws SQLException {
+        long sum = 0;
+        while (rs.next()) {
+            sum += MovieDAO.mapRow(rs).getId();
+        }
+        return sum;
+    }
+
+    /**
+     * ResultSet de solo avance sobre filas en memoria, con las columnas de SELECT_MOVIE.
+     */
+    private static ResultSet syntheticResultSet(Object[][] rows) {
+        java.util.List<String> columns = java.util.Arrays.asList("id", "title", "director", "year", "duration", "genre", "updated_at");
+        int[] cursor = { -1 };
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next":
+                            return ++cursor[0] < rows.length;
+                        case "getInt":
+                        case "getString":
+                        case "getTimestamp":
+                            int index = args[0] instanceof Integer ? (Integer) args[0] - 1 : columns.indexOf(args[0]);
+                            return rows[cursor[0]][index];
+                        case "close":
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * Compara abrir una conexión física por consulta contra pedirla prestada al pool.
+     */
+    private static void benchmarkConnectionPool() throws Exception {
+        System.out.println("\n------------------------------");
+        System.out.println("[BENCHMARK] Conexión directa vs. pool (" + ITERATIONS + " consultas)");
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            try (Connection conn = DriverManager.getConnection(URL, USER, PASSWORD)) {
+                runPing(conn);
+            }
+        }
+        long directNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            try (Connection conn = DBConnection.getConnection()) {
+                runPing(conn);
+            }
+        }
+        long pooledNanos = System.nanoTime() - start;
+
+        report("Conexión directa", directNanos, ITERATIONS);
+        report("Conexión del pool", pooledNanos, ITERATIONS);
+        System.out.printf("[RESULTADO] El pool es %.1fx más rápido%n", (double) directNanos / pooledNanos);
+    }
+
+    /**
+     * Repite la búsqueda por ID y muestra los aciertos de la caché de sentencias preparadas.
+     */
+    private static void benchmarkStatementCache() throws Exception {
+        System.out.println("\n------------------------------");
+        System.out.println("[BENCHMARK] Caché de sentencias preparadas (" + ITERATIONS + " búsquedas por ID)");
+
+        MovieDAO dao = new MovieDAO();
+        ConnectionPool pool = DBConnection.getPool();
+        long hitsBefore = pool.getStatementCacheHits();
+        long missesBefore = pool.getStatementCacheMisses();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            dao.findMovieById(1);
+        }
+        long nanos = System.nanoTime() - start;
+
+        report("findMovieById", nanos, ITERATIONS);
+        System.out.println("[RESULTADO] Aciertos de caché: " + (pool.getStatementCacheHits() - hitsBefore)
+                + ", fallos: " + (pool.getStatementCacheMisses() - missesBefore));
+    }
+
+    /**
+     * Mide la latencia de modificar una película con y sin la lectura de auditoría
+     * del registro original.
+     */
+    private static void benchmarkWriteLatency() throws Exception {
+        System.out.println("\n------------------------------");
+        System.out.println("[BENCHMARK] Latencia de escritura (" + ITERATIONS + " modificaciones)");
+
+        MovieDAO audited = new MovieDAO(true);
+        MovieDAO direct = new MovieDAO(false);
+        Movie movie = new Movie(0, "Benchmark Write Movie", "Director Prueba", 2000, 100, "Drama");
+        if (!direct.addMovie(movie)) {
+            System.out.println("[ERROR] No se pudo insertar la película de prueba");
+            return;
+        }
+        try {
+            long auditedNanos = timeUpdates(audited, movie);
+            long directNanos = timeUpdates(direct, movie);
+            report("Con auditoría", auditedNanos, ITERATIONS);
+            report("Sin auditoría", directNanos, ITERATIONS);
+        } finally {
+            direct.deleteMoviesByTitle("Benchmark Write Movie");
+        }
+    }
+
+    private static long timeUpdates(MovieDAO dao, Movie movie) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            movie.setDuration(100 + i % 50);
+            dao.updateMovie(movie);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static void runPing(Connection conn) throws Exception {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT 1");
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+        }
+    }
+
+    private static void report(String label, long nanos, int operations) {
+        System.out.printf("[%s] total=%d ms, media=%.2f µs/op%n",
+                label, nanos / 1_000_000, nanos / 1_000.0 / operations);
+    }
+}
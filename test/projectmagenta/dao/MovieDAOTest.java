@@ -1,6 +1,9 @@
 package projectmagenta.dao;
 
 import projectmagenta.model.Movie;
+import projectmagenta.model.MovieChanges;
+import projectmagenta.model.MovieStats;
+import projectmagenta.model.MovieSummary;
 
 public class MovieDAOTest {
     public static void main(String[] args) throws java.io.UnsupportedEncodingException {
@@ -206,6 +209,156 @@ public class MovieDAOTest {
             System.out.println("[ÉXITO] Se lanzó excepción para eliminación inválida: " + e.getMessage());
         }
         
+        // Prueba 13: Inserción por lotes con una fila inválida (las válidas deben insertarse)
+        System.out.println("\n------------------------------");
+        System.out.println("[CASO] Inserción por lotes con una fila inválida");
+        System.out.flush();
+        java.util.List<Movie> batch = new java.util.ArrayList<>();
+        batch.add(createMovie("Batch Movie A", "Juan Pérez", 2020, 100, "Drama"));
+        batch.add(new Movie(0, "", "Juan Pérez", 2020, 100, "Drama"));
+        batch.add(createMovie("Batch Movie B", "Juan Pérez", 2021, 110, "Comedia"));
+        BatchInsertResult batchResult = dao.addMovies(batch);
+        if (batchResult.getInsertedCount() == 2 && batchResult.getFailures().containsKey(1)
+                && batch.get(0).getId() > 0 && batch.get(2).getId() > batch.get(0).getId()) {
+            System.out.println("[ÉXITO] Lote insertado con ids " + batchResult.getGeneratedIds()
+                    + "; fila 1 rechazada: " + batchResult.getFailures().get(1));
+        } else {
+            System.out.println("[ERROR] Resultado inesperado del lote: " + batchResult + " " + batchResult.getFailures());
+        }
+        
+        // Prueba 14: Sincronización por clave natural (repetirla no debe modificar filas)
+        System.out.println("\n------------------------------");
+        System.out.println("[CASO] Sincronización por clave natural");
+        System.out.flush();
+        java.util.List<Movie> feed = new java.util.ArrayList<>();
+        feed.add(createMovie("Upsert Movie A", "Juan Pérez", 2020, 100, "Drama"));
+        feed.add(createMovie("Upsert Movie B", "Juan Pérez", 2021, 110, "Comedia"));
+        UpsertResult firstSync = dao.upsertMovies(feed);
+        feed.set(1, createMovie("UPSERT MOVIE B", "Juan Perez", 2021, 115, "Comedia"));
+        UpsertResult secondSync = dao.upsertMovies(feed);
+        UpsertResult thirdSync = dao.upsertMovies(feed);
+        if (firstSync.getInsertedCount() == 2 && secondSync.getUnchangedCount() == 1 && secondSync.getUpdatedCount() == 1
+                && thirdSync.getUnchangedCount() == 2 && feed.get(1).getId() > 0) {
+            System.out.println("[ÉXITO] Sincronización: " + firstSync + ", " + secondSync + ", " + thirdSync);
+        } else {
+            System.out.println("[ERROR] Resultado inesperado de la sincronización: " + firstSync + ", " + secondSync + ", " + thirdSync);
+        }
+        
+        // Prueba 15: Modificación concurrente (la segunda escritura con la misma versión no debe aplicarse)
+        System.out.println("\n------------------------------");
+        System.out.println("[CASO] Modificación concurrente con versión");
+        System.out.flush();
+        Movie editorA = dao.findMovieById(feed.get(0).getId());
+        Movie editorB = dao.findMovieById(feed.get(0).getId());
+        if (editorA != null && editorB != null) {
+            editorA.setDuration(101);
+            editorB.setDuration(102);
+            boolean firstWrite = dao.updateMovie(editorA);
+            boolean secondWrite = dao.updateMovie(editorB);
+            boolean staleDelete = dao.deleteMovieById(editorB.getId(), editorB.getVersion());
+            if (firstWrite && !secondWrite && !staleDelete && dao.findMovieById(editorA.getId()).getDuration() == 101) {
+                System.out.println("[ÉXITO] Conflicto detectado; se conservó la primera modificación");
+            } else {
+                System.out.println("[ERROR] Resultado inesperado: primera=" + firstWrite + ", segunda=" + secondWrite + ", eliminación=" + staleDelete);
+            }
+        } else {
+            System.out.println("[ERROR] No se encontró la película sincronizada");
+        }
+        
+        // Prueba 16: Cambios incrementales (solo la modificación y la eliminación desde la marca)
+        System.out.println("\n------------------------------");
+        System.out.println("[CASO] Cambios incrementales desde una marca de agua");
+        System.out.flush();
+        MovieChanges baseline = dao.getMoviesChangedSince(0);
+        Movie changedMovie = dao.findMovieById(feed.get(0).getId());
+        Movie deletedMovie = dao.findMovieById(feed.get(1).getId());
+        if (changedMovie != null && deletedMovie != null) {
+            changedMovie.setDuration(103);
+            dao.updateMovie(changedMovie);
+            dao.deleteMovieById(deletedMovie.getId());
+            MovieChanges delta = dao.getMoviesChangedSince(baseline.getWatermark());
+            boolean hasChanged = MovieChanges.indexOf(delta.getChanged(), changedMovie.getId()) >= 0;
+            if (baseline.isFullReload() && !delta.isFullReload() && hasChanged && delta.getDeletedIds().contains(deletedMovie.getId())) {
+                System.out.println("[ÉXITO] Cambios: " + delta.getChanged().size() + " modificada(s), " + delta.getDeletedIds().size() + " eliminada(s)");
+            } else {
+                System.out.println("[ERROR] Cambios inesperados (¿existe Cartelera_eliminadas?): recarga=" + delta.isFullReload()
+                        + ", modificada=" + hasChanged + ", eliminadas=" + delta.getDeletedIds());
+            }
+        } else {
+            System.out.println("[ERROR] No se encontraron las películas sincronizadas");
+        }
+        
+        // Prueba 17: Estadísticas agregadas (los grupos deben sumar el total de películas)
+        System.out.println("\n------------------------------");
+        System.out.println("[CASO] Estadísticas agregadas de la cartelera");
+        System.out.flush();
+        MovieStats stats = dao.getMovieStats();
+        if (stats != null && sum(stats.getCountByGenre()) == stats.getMovieCount()
+                && sum(stats.getCountByDecade()) == stats.getMovieCount()
+                && sum(stats.getDurationHistogram()) == stats.getMovieCount()
+                && stats.getMovieCount() == dao.getAllMovies().size()) {
+            System.out.println("[ÉXITO] " + stats);
+        } else {
+            System.out.println("[ERROR] Estadísticas inconsistentes: " + stats);
+        }
+        
+        // Prueba 18: Unidad de trabajo (dos modificaciones con un solo commit; si una falla no se guarda ninguna)
+        System.out.println("\n------------------------------");
+        System.out.println("[CASO] Unidad de trabajo con varias operaciones");
+        System.out.flush();
+        Movie unitMovie = createMovie("Unidad de Trabajo", "Director Prueba", 2001, 100, "Drama");
+        Movie unitOther = dao.findMovieById(feed.get(0).getId());
+        if (dao.addMovie(unitMovie) && unitOther != null) {
+            boolean committed = dao.runInTransaction(() -> {
+                unitMovie.setDuration(110);
+                unitOther.setDuration(111);
+                return dao.updateMovie(unitMovie) && dao.updateMovie(unitOther);
+            });
+            long staleVersion = unitOther.getVersion() - 1;
+            boolean rolledBack = !dao.runInTransaction(() -> {
+                unitMovie.setDuration(120);
+                return dao.updateMovie(unitMovie) && dao.deleteMovieById(unitOther.getId(), staleVersion);
+            });
+            Movie savedMovie = dao.findMovieById(unitMovie.getId());
+            Movie savedOther = dao.findMovieById(unitOther.getId());
+            if (committed && rolledBack && savedMovie.getDuration() == 110 && savedOther != null && savedOther.getDuration() == 111) {
+                System.out.println("[ÉXITO] La unidad se confirmó completa y la unidad fallida no dejó cambios");
+            } else {
+                System.out.println("[ERROR] Resultado inesperado: confirmada=" + committed + ", deshecha=" + rolledBack
+                        + ", duración=" + (savedMovie != null ? savedMovie.getDuration() : null));
+            }
+            dao.deleteMovieById(unitMovie.getId());
+        } else {
+            System.out.println("[ERROR] No se pudo preparar la unidad de trabajo");
+        }
+        
+        // Prueba 19: Archivo (una película inactiva sale de Cartelera y se lee con includingArchive)
+        System.out.println("\n------------------------------");
+        System.out.println("[CASO] Archivado de películas inactivas");
+        System.out.flush();
+        Movie archivedMovie = createMovie("Pelicula Archivada", "Director Prueba", 1950, 90, "Drama");
+        if (dao.addMovie(archivedMovie)) {
+            MovieChanges beforeArchive = dao.getMoviesChangedSince(0);
+            boolean deactivated = dao.setMovieActive(archivedMovie.getId(), false);
+            int archivedCount = dao.archiveColdMovies();
+            boolean hotGone = dao.findMovieById(archivedMovie.getId()) == null;
+            Movie fromArchive = dao.includingArchive().findMovieById(archivedMovie.getId());
+            MovieChanges afterArchive = dao.getMoviesChangedSince(beforeArchive.getWatermark());
+            boolean restored = dao.restoreMovie(archivedMovie.getId());
+            if (deactivated && archivedCount >= 1 && hotGone && fromArchive != null
+                    && afterArchive.getDeletedIds().contains(archivedMovie.getId())
+                    && restored && dao.findMovieById(archivedMovie.getId()) != null) {
+                System.out.println("[ÉXITO] Archivada (" + archivedCount + "), visible con el archivo, quitada de las vistas y restaurada");
+            } else {
+                System.out.println("[ERROR] Resultado inesperado (¿existe Cartelera_archivo?): inactiva=" + deactivated
+                        + ", archivadas=" + archivedCount + ", fuera de Cartelera=" + hotGone
+                        + ", en el archivo=" + (fromArchive != null) + ", restaurada=" + restored);
+            }
+            dao.deleteMovieById(archivedMovie.getId());
+        } else {
+            System.out.println("[ERROR] No se pudo preparar la película a archivar");
+        }
+        
         // FASE 2: PRUEBAS DE FILTRADO
         System.out.println("\n==============================");
         System.out.println("   FASE 2: PRUEBAS DE FILTRADO   ");
@@ -223,6 +376,12 @@ public class MovieDAOTest {
         // Test de filtrado combinado
         testCombinedFiltering(dao);
         
+        // Test de paginación por clave
+        testKeysetPagination(dao);
+        
+        // Test de búsqueda de texto
+        testTextSearch(dao);
+        
         // Cleanup: remove any test data that might have been inserted
     System.out.println("\n==============================");
     System.out.println("   LIMPIEZA: Eliminando datos de prueba   ");
@@ -231,6 +390,7 @@ public class MovieDAOTest {
         String[] testTitles = {
             "Test Movie", "Old Movie", "Zero Duration Movie", "No Director Movie",
             "Invalid Genre Movie", "Long Director Movie", "Invalid Director Movie",
+            "Batch Movie A", "Batch Movie B", "Upsert Movie A", "Upsert Movie B",
             // Títulos de películas de prueba para filtrado
             "Avengers: Endgame", "Titanic", "The Hangover", "It Chapter Two", 
             "Casablanca", "The Matrix", "Se7en", "Indiana Jones", 
@@ -330,6 +490,14 @@ public class MovieDAOTest {
     /**
      * Prueba el filtrado por género
      */
+    private static long sum(java.util.Map<?, Long> counts) {
+        long total = 0;
+        for (long count : counts.values()) {
+            total += count;
+        }
+        return total;
+    }
+
     private static void testGenreFiltering(MovieDAO dao) {
         System.out.println("\n------------------------------");
         System.out.println("[FILTRADO] Probando filtrado por género");
@@ -439,6 +607,15 @@ public class MovieDAOTest {
                 
                 System.out.println("[FILTRO COMBINADO] " + genre + " (" + fromYear + "-" + toYear + "): " + 
                                  filteredMovies.size() + " película(s) encontrada(s)");
+                
+                // La consulta con criterios debe devolver lo mismo que el filtrado en memoria
+                java.util.List<Movie> queriedMovies = dao.findMovies(new projectmagenta.model.MovieCriteria()
+                        .genre(genre).yearBetween(fromYear, toYear));
+                if (movieIds(queriedMovies).equals(movieIds(filteredMovies))) {
+                    System.out.println("[ÉXITO] findMovies coincide con el filtrado en memoria");
+                } else {
+                    System.out.println("[ERROR] findMovies devolvió " + queriedMovies.size() + " película(s)");
+                }
                 for (Movie movie : filteredMovies) {
                     System.out.println("  - " + movie.getTitle() + " (" + movie.getYear() + ", " + movie.getGenre() + ")");
                 }
@@ -450,6 +627,84 @@ public class MovieDAOTest {
         System.out.flush();
     }
     
+    private static java.util.List<Integer> movieIds(java.util.List<Movie> movies) {
+        java.util.List<Integer> ids = new java.util.ArrayList<>();
+        for (Movie movie : movies) {
+            ids.add(movie.getId());
+        }
+        return ids;
+    }
+    
+    /**
+     * Prueba que la búsqueda de texto encuentre por título y por director
+     */
+    private static void testTextSearch(MovieDAO dao) {
+        System.out.println("\n------------------------------");
+        System.out.println("[BÚSQUEDA] Probando búsqueda de texto en título y director");
+        System.out.flush();
+        
+        java.util.List<Movie> all = dao.getAllMovies();
+        if (all.isEmpty()) {
+            System.out.println("[ADVERTENCIA] No hay películas para buscar");
+            return;
+        }
+        Movie sample = all.get(0);
+        String[] queries = {sample.getTitle(), sample.getDirector()};
+        for (String query : queries) {
+            java.util.List<Movie> found = dao.searchMovies(query, 50);
+            if (movieIds(found).contains(sample.getId())) {
+                System.out.println("[ÉXITO] '" + query + "': " + found.size() + " película(s), incluida la esperada");
+            } else {
+                System.out.println("[ERROR] '" + query + "' no encontró la película con id=" + sample.getId());
+            }
+            java.util.List<MovieSummary> summaries = dao.searchMovieSummaries(query, 50);
+            boolean sameOrder = summaries.size() == found.size();
+            for (int i = 0; sameOrder && i < found.size(); i++) {
+                sameOrder = summaries.get(i).getId() == found.get(i).getId()
+                        && summaries.get(i).getTitle().equals(found.get(i).getTitle());
+            }
+            if (sameOrder) {
+                System.out.println("[ÉXITO] '" + query + "': la proyección devuelve los mismos resultados");
+            } else {
+                System.out.println("[ERROR] '" + query + "': la proyección no coincide con la búsqueda completa");
+            }
+        }
+        System.out.flush();
+    }
+    
+    /**
+     * Prueba que recorrer la cartelera por páginas devuelva lo mismo que getAllMovies
+     */
+    private static void testKeysetPagination(MovieDAO dao) {
+        System.out.println("\n------------------------------");
+        System.out.println("[PAGINACIÓN] Recorriendo la cartelera en páginas de 3");
+        System.out.flush();
+        
+        java.util.List<Integer> pagedIds = new java.util.ArrayList<>();
+        int afterId = 0;
+        int pages = 0;
+        projectmagenta.model.MoviePage page;
+        do {
+            page = dao.getMoviesPage(afterId, 3);
+            for (Movie movie : page.getMovies()) {
+                pagedIds.add(movie.getId());
+            }
+            afterId = page.getNextAfterId();
+            pages++;
+        } while (page.hasMore());
+        
+        java.util.List<Integer> allIds = new java.util.ArrayList<>();
+        for (Movie movie : dao.getAllMovies()) {
+            allIds.add(movie.getId());
+        }
+        if (pagedIds.equals(allIds)) {
+            System.out.println("[ÉXITO] " + pages + " página(s) con " + pagedIds.size() + " película(s), igual que getAllMovies");
+        } else {
+            System.out.println("[ERROR] La paginación devolvió " + pagedIds.size() + " película(s) y getAllMovies " + allIds.size());
+        }
+        System.out.flush();
+    }
+    
     private static void testCaseWithDB(MovieDAO dao, String caseName, String title, String director, int year, int duration, String genre, MovieCreator creator) {
         System.out.println("\n------------------------------");
         System.out.println("[CASO] " + caseName);
@@ -0,0 +1,610 @@
+package projectmagenta.dao;
+
+import projectmagenta.controller.AsyncMovieController;
+import projectmagenta.controller.MovieController;
+import projectmagenta.controller.MovieController.MovieResult;
+import projectmagenta.model.Movie;
+import projectmagenta.model.MovieChanges;
+import projectmagenta.model.MovieCriteria;
+import projectmagenta.model.MovieStats;
+import projectmagenta.model.MovieSummary;
+import projectmagenta.model.SearchKey;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Pruebas de los repositorios que no necesitan MySQL: memoria y archivo embebido.
+ * Ejecuta el mismo recorrido CRUD sobre ambos y comprueba que el archivo
+ * conserve los datos al reabrirse.
+ */
+public class MovieRepositoryTest {
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        System.setOut(new java.io.PrintStream(System.out, true, "UTF-8"));
+
+        System.out.println("==============================");
+        System.out.println("   PRUEBAS DE REPOSITORIOS SIN BASE DE DATOS   ");
+        System.out.println("==============================");
+
+        System.out.println("\n[REPOSITORIO] memoria");
+        testCrud(new InMemoryMovieRepository());
+        testBatchInsert(new InMemoryMovieRepository());
+        testPagination(new InMemoryMovieRepository());
+        testCriteria(new InMemoryMovieRepository());
+        testTextSearch(new InMemoryMovieRepository());
+        testSearchKeys(new InMemoryMovieRepository());
+        testUpsert(new InMemoryMovieRepository());
+        testOptimisticConcurrency(new InMemoryMovieRepository());
+        testChangeFeed(new InMemoryMovieRepository());
+        testStats(new InMemoryMovieRepository());
+        testAsync(new InMemoryMovieRepository());
+        testBulkUpdate(new InMemoryMovieRepository());
+        testTitleIndex(new InMemoryMovieRepository());
+
+        Path file = Files.createTempFile("cartelera", ".db");
+        try {
+            System.out.println("\n[REPOSITORIO] archivo (" + file + ")");
+            FileMovieRepository fileRepository = new FileMovieRepository(file);
+            testCrud(fileRepository);
+            testOptimisticConcurrency(fileRepository);
+            testChangeFeed(fileRepository);
+            fileRepository.close();
+            testReopen(file);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        System.out.println("\n[REPOSITORIO] 3 shards en memoria");
+        testBatchInsert(sharded(3));
+        testSearchKeys(sharded(3));
+        testUpsert(sharded(3));
+        testOptimisticConcurrency(sharded(3));
+        testStats(sharded(3));
+        testBulkUpdate(sharded(3));
+        testSharding(sharded(3));
+        testShardFailure();
+
+        List<Path> shardFiles = new java.util.ArrayList<>();
+        try {
+            List<MovieRepository> shards = new java.util.ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                shardFiles.add(Files.createTempFile("cartelera-shard" + i, ".db"));
+                shards.add(new FileMovieRepository(shardFiles.get(i)));
+            }
+            System.out.println("\n[REPOSITORIO] 3 shards en archivos locales");
+            testSharding(new ShardedMovieRepository(shards));
+            for (MovieRepository shard : shards) {
+                ((FileMovieRepository) shard).close();
+            }
+            testShardReopen(shardFiles);
+        } finally {
+            for (Path shardFile : shardFiles) {
+                Files.deleteIfExists(shardFile);
+            }
+        }
+
+        System.out.println("\n==============================");
+        System.out.println(failures == 0 ? "   TODAS LAS PRUEBAS FINALIZADAS   " : "   PRUEBAS CON " + failures + " ERROR(ES)   ");
+        System.out.println("==============================");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void testCrud(MovieRepository repository) {
+        Movie titanic = createMovie("Titanic", "James Cameron", 1997, 194, "Drama");
+        Movie matrix = createMovie("The Matrix", "Lana Wachowski", 1999, 136, "Acción");
+        check(repository.addMovie(titanic) && titanic.getId() > 0, "Inserción asigna id");
+        check(repository.addMovie(matrix) && matrix.getId() > titanic.getId(), "Los ids son crecientes");
+        check(!repository.addMovie(null), "Se rechaza la película nula");
+
+        check(repository.findMovieById(titanic.getId()).getTitle().equals("Titanic"), "Búsqueda por id");
+        check(repository.findMovieByTitle("titanic") != null, "Búsqueda por título exacto sin distinguir mayúsculas");
+        check(repository.findMoviesByPartialTitle("MAT").size() == 1, "Búsqueda parcial por título");
+
+        matrix.setDuration(150);
+        check(repository.updateMovie(matrix), "Actualización");
+        check(repository.findMovieById(matrix.getId()).getDuration() == 150, "La actualización se conserva");
+        matrix.setDuration(160);
+        check(repository.findMovieById(matrix.getId()).getDuration() == 150, "Modificar el objeto no altera el almacén");
+
+        List<Movie> all = repository.getAllMovies();
+        check(all.size() == 2 && all.get(0).getId() < all.get(1).getId(), "getAllMovies ordenado por id");
+
+        check(repository.deleteMovieById(titanic.getId()), "Eliminación por id");
+        check(!repository.deleteMovieById(titanic.getId()), "Eliminar dos veces falla");
+        check(repository.deleteMoviesByTitle("the matrix") == 1 && repository.getAllMovies().isEmpty(),
+                "Eliminación por título");
+        repository.addMovie(createMovie("Casablanca", "Michael Curtiz", 1942, 102, "Drama"));
+    }
+
+    private static void testBatchInsert(MovieRepository repository) {
+        List<Movie> batch = new java.util.ArrayList<>();
+        batch.add(createMovie("Toy Story", "John Lasseter", 1995, 81, "Animación"));
+        batch.add(new Movie(0, "Sin Director", null, 2000, 90, "Drama"));
+        batch.add(null);
+        batch.add(createMovie("Free Solo", "Jimmy Chin", 2018, 100, "Documental"));
+        BatchInsertResult result = repository.addMovies(batch);
+        check(result.getInsertedCount() == 2 && result.getFailedCount() == 2, "Lote: 2 insertadas y 2 rechazadas");
+        check(result.getFailures().keySet().equals(new java.util.TreeSet<>(java.util.Arrays.asList(1, 2))),
+                "Lote: se informan las posiciones rechazadas");
+        check(result.getGeneratedIds().equals(java.util.Arrays.asList(batch.get(0).getId(), batch.get(3).getId())),
+                "Lote: los ids generados se asignan a las películas");
+    }
+
+    private static void testPagination(MovieRepository repository) {
+        for (int i = 0; i < 7; i++) {
+            repository.addMovie(createMovie("Pelicula " + i, "Director Prueba", 2000 + i, 90, "Drama"));
+        }
+        repository.deleteMovieById(3);
+        List<Integer> seen = new java.util.ArrayList<>();
+        int pages = 0;
+        projectmagenta.model.MoviePage page;
+        int afterId = 0;
+        do {
+            page = repository.getMoviesPage(afterId, 3);
+            for (Movie movie : page.getMovies()) {
+                seen.add(movie.getId());
+            }
+            afterId = page.getNextAfterId();
+            pages++;
+        } while (page.hasMore());
+        check(seen.equals(java.util.Arrays.asList(1, 2, 4, 5, 6, 7)) && pages == 2,
+                "Paginación por clave recorre todas las películas sin huecos ni repetidos");
+    }
+
+    private static void testCriteria(MovieRepository repository) {
+        repository.addMovie(createMovie("Alien", "Ridley Scott", 1979, 117, "Terror"));
+        repository.addMovie(createMovie("Gladiator", "Ridley Scott", 2000, 155, "Acción"));
+        repository.addMovie(createMovie("Blade Runner", "Ridley Scott", 1982, 117, "Ciencia Ficción"));
+        repository.addMovie(createMovie("Heat", "Michael Mann", 1995, 170, "Acción"));
+        repository.addMovie(createMovie("Zodiac", "David Fincher", 2007, 157, "Thriller"));
+
+        check(titles(repository.findMovies(new MovieCriteria().genre("acción"))).equals(java.util.Arrays.asList("Gladiator", "Heat")),
+                "Criterios: género sin distinguir mayúsculas");
+        check(titles(repository.findMovies(new MovieCriteria().director("Ridley Scott").yearBetween(1980, null)))
+                .equals(java.util.Arrays.asList("Gladiator", "Blade Runner")), "Criterios: director y año mínimo");
+        check(titles(repository.findMovies(new MovieCriteria().durationBetween(100, 120)
+                .orderBy(MovieCriteria.SortField.YEAR, true))).equals(java.util.Arrays.asList("Blade Runner", "Alien")),
+                "Criterios: rango de duración ordenado por año descendente");
+        check(titles(repository.findMovies(new MovieCriteria().titleContains("RUN"))).equals(java.util.Arrays.asList("Blade Runner")),
+                "Criterios: fragmento de título sin distinguir mayúsculas");
+        check(titles(repository.findMovies(new MovieCriteria().orderBy(MovieCriteria.SortField.TITLE, false).limit(2)))
+                .equals(java.util.Arrays.asList("Alien", "Blade Runner")), "Criterios: orden por título con límite");
+        check(repository.findMovies(new MovieCriteria().limit(3)).size() == 3, "Criterios: límite en orden de id");
+    }
+
+    private static void testTextSearch(MovieRepository repository) {
+        repository.addMovie(createMovie("The Matrix Reloaded", "Lana Wachowski", 2003, 138, "Acción"));
+        repository.addMovie(createMovie("Matrix", "Lana Wachowski", 1999, 136, "Acción"));
+        repository.addMovie(createMovie("Bound", "Lana Wachowski", 1996, 108, "Thriller"));
+        repository.addMovie(createMovie("Heat", "Michael Mann", 1995, 170, "Acción"));
+
+        check(titles(repository.searchMovies("matrix", 10)).equals(java.util.Arrays.asList("Matrix", "The Matrix Reloaded")),
+                "Búsqueda de texto: el título que empieza por el texto va primero");
+        check(titles(repository.searchMovies("wachowski", 2)).equals(java.util.Arrays.asList("The Matrix Reloaded", "Matrix")),
+                "Búsqueda de texto: coincide por director y respeta el límite");
+        List<MovieSummary> summaries = repository.searchMovieSummaries("matrix", 10);
+        check(summaries.size() == 2 && summaries.get(0).getTitle().equals("Matrix") && summaries.get(0).getYear() == 1999
+                && repository.findMovieById(summaries.get(0).getId()).getDuration() == 136,
+                "Búsqueda de texto: los resúmenes siguen el mismo orden y cargan la película por id");
+        check("+Matr* +Reload*".equals(MovieDAO.toBooleanQuery("The Matr-Reload \"el\"")) && MovieDAO.toBooleanQuery("El Up") == null,
+                "Búsqueda de texto: consulta booleana de MySQL sin palabras cortas");
+    }
+
+    private static void testSearchKeys(MovieRepository repository) {
+        repository.addMovie(createMovie("El Laberinto del Fauno", "Guillermo del Toro", 2006, 118, "Drama"));
+        repository.addMovie(createMovie("Amores Perros", "Alejandro González Iñárritu", 2000, 154, "Drama"));
+        repository.addMovie(createMovie("Canción de Cuna", "José Luis Garci", 1994, 101, "Drama"));
+
+        check("cancion de cuna".equals(SearchKey.normalize("  CANCIÓN   de Cuna ")) && SearchKey.normalize(null).isEmpty(),
+                "Clave de búsqueda: minúsculas, sin tildes y sin espacios repetidos");
+        Movie found = repository.findMovieByTitle("cancion  de cuna");
+        check(found != null && found.getTitle().equals("Canción de Cuna"), "Claves: título exacto sin tildes ni mayúsculas");
+        check(titles(repository.findMoviesByPartialTitle("CANCIÓN")).equals(java.util.Arrays.asList("Canción de Cuna")),
+                "Claves: título parcial con tildes que el título sí tiene");
+        check(titles(repository.findMovies(new MovieCriteria().director("alejandro gonzalez inarritu")))
+                .equals(java.util.Arrays.asList("Amores Perros")), "Claves: director exacto sin tildes");
+        check(titles(repository.searchMovies("inarritu", 10)).equals(java.util.Arrays.asList("Amores Perros")),
+                "Claves: búsqueda de texto por director sin tildes");
+    }
+
+    private static void testUpsert(MovieRepository repository) {
+        repository.addMovie(createMovie("Roma", "Alfonso Cuarón", 2018, 135, "Drama"));
+        repository.addMovie(createMovie("Gravity", "Alfonso Cuarón", 2013, 91, "Ciencia Ficción"));
+
+        List<Movie> feed = java.util.Arrays.asList(
+                createMovie("ROMA", "Alfonso Cuaron", 2018, 135, "Drama"),
+                createMovie("Gravity", "Alfonso Cuarón", 2013, 91, "Ciencia Ficción"),
+                createMovie("Roma", "Federico Fellini", 1972, 120, "Drama"),
+                createMovie("Gravity", "Alfonso Cuarón", 2013, 95, "Ciencia Ficción"));
+        UpsertResult first = repository.upsertMovies(feed);
+        check(first.getInsertedCount() == 1 && first.getUpdatedCount() == 1 && first.getUnchangedCount() == 1
+                && first.getFailures().containsKey(3), "Upsert: inserta, actualiza y rechaza claves repetidas (" + first + ")");
+        check(repository.getAllMovies().size() == 3 && feed.get(2).getId() > 0
+                && repository.findMovieById(feed.get(0).getId()).getTitle().equals("ROMA"),
+                "Upsert: la clave natural ignora mayúsculas y tildes");
+        UpsertResult again = repository.upsertMovies(feed.subList(0, 3));
+        check(again.getUnchangedCount() == 3 && again.getInsertedCount() == 0 && again.getUpdatedCount() == 0,
+                "Upsert: repetir la misma lista no modifica ninguna fila");
+    }
+
+    private static void testOptimisticConcurrency(MovieRepository repository) {
+        Movie movie = createMovie("Rashomon", "Akira Kurosawa", 1950, 88, "Drama");
+        repository.addMovie(movie);
+        Movie first = repository.findMovieById(movie.getId());
+        Movie second = repository.findMovieById(movie.getId());
+        check(first.getVersion() > 0 && first.getVersion() == second.getVersion(), "Versión: las lecturas traen la versión de la fila");
+
+        first.setDuration(90);
+        long before = first.getVersion();
+        check(repository.updateMovie(first) && first.getVersion() > before, "Versión: la modificación asigna una versión nueva");
+        second.setDuration(95);
+        check(!repository.updateMovie(second) && repository.findMovieById(movie.getId()).getDuration() == 90,
+                "Versión: una modificación con versión antigua no se aplica");
+        check(!repository.deleteMovieById(movie.getId(), second.getVersion()),
+                "Versión: una eliminación con versión antigua no se aplica");
+        check(repository.deleteMovieById(movie.getId(), first.getVersion()) && repository.findMovieById(movie.getId()) == null,
+                "Versión: la eliminación con la versión vigente se aplica");
+    }
+
+    private static void testChangeFeed(MovieRepository repository) {
+        Movie kept = createMovie("Stalker", "Andrei Tarkovsky", 1979, 162, "Ciencia Ficción");
+        Movie edited = createMovie("Solaris", "Andrei Tarkovsky", 1972, 167, "Ciencia Ficción");
+        Movie removed = createMovie("Nostalghia", "Andrei Tarkovsky", 1983, 125, "Drama");
+        repository.addMovies(java.util.Arrays.asList(kept, edited, removed));
+
+        MovieChanges full = repository.getMoviesChangedSince(0);
+        List<Movie> view = new java.util.ArrayList<>();
+        full.applyTo(view);
+        check(full.isFullReload() && view.size() == repository.getAllMovies().size(),
+                "Cambios: la marca 0 devuelve la cartelera completa");
+        check(repository.getMoviesChangedSince(full.getWatermark()).isEmpty(),
+                "Cambios: sin escrituras no hay cambios desde la última marca");
+
+        edited.setDuration(165);
+        repository.updateMovie(edited);
+        Movie added = createMovie("Andrei Rublev", "Andrei Tarkovsky", 1966, 205, "Drama");
+        repository.addMovie(added);
+        repository.deleteMovieById(removed.getId());
+        MovieChanges delta = repository.getMoviesChangedSince(full.getWatermark());
+        check(!delta.isFullReload() && titles(delta.getChanged()).equals(java.util.Arrays.asList("Solaris", "Andrei Rublev"))
+                && delta.getDeletedIds().equals(java.util.Collections.singletonList(removed.getId())),
+                "Cambios: solo se devuelven las películas modificadas, agregadas y eliminadas");
+        check(delta.getWatermark() > full.getWatermark(), "Cambios: la marca avanza con las escrituras");
+
+        delta.applyTo(view);
+        check(titles(view).equals(titles(repository.getAllMovies())), "Cambios: aplicar los cambios deja la vista igual que la cartelera");
+        check(repository.getMoviesChangedSince(delta.getWatermark()).isEmpty(), "Cambios: la nueva marca no repite cambios");
+
+        repository.deleteMovieById(kept.getId());
+        repository.deleteMovieById(edited.getId());
+        repository.deleteMovieById(added.getId());
+    }
+
+    private static void testStats(MovieRepository repository) {
+        MovieController controller = new MovieController(repository);
+        check(controller.getMovieStats().isEmpty(), "Estadísticas: cartelera vacía");
+        repository.addMovies(java.util.Arrays.asList(
+                createMovie("Metropolis", "Fritz Lang", 1927, 153, "Ciencia Ficción"),
+                createMovie("M", "Fritz Lang", 1931, 117, "Thriller"),
+                createMovie("Fury", "Fritz Lang", 1936, 92, "Drama")));
+
+        MovieStats stats = repository.getMovieStats();
+        check(stats.getMovieCount() == 3 && stats.getTotalDuration() == 362 && stats.getMinYear() == 1927 && stats.getMaxYear() == 1936,
+                "Estadísticas: total, duración y años extremos (" + stats + ")");
+        check(stats.getCountByDecade().equals(java.util.Map.of(1920, 1L, 1930, 2L))
+                && stats.getDurationHistogram().equals(java.util.Map.of(150, 1L, 90, 2L))
+                && stats.getCountByGenre().get("Thriller") == 1L,
+                "Estadísticas: películas por década, tramo de duración y género");
+
+        check(controller.getMovieStats().isEmpty(), "Estadísticas: el controlador sirve la caché sin volver a calcular");
+        controller.addMovie(createMovie("Scarlet Street", "Fritz Lang", 1945, 102, "Drama"));
+        MovieStats refreshed = controller.getMovieStats();
+        check(refreshed.getMovieCount() == 4 && refreshed.getMaxYear() == 1945 && refreshed.getCountByGenre().get("Drama") == 2L,
+                "Estadísticas: una escritura del controlador invalida la caché");
+    }
+
+    private static void testAsync(MovieRepository repository) throws Exception {
+        AsyncMovieController async = new AsyncMovieController(new MovieController(repository));
+        Movie movie = createMovie("Ran", "Akira Kurosawa", 1985, 162, "Drama");
+        check(async.addMovie(movie).get().isSuccess() && movie.getId() > 0, "Asíncrono: agregar devuelve el resultado del controlador");
+
+        List<java.util.concurrent.CompletableFuture<Movie>> lookups = new java.util.ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            lookups.add(async.findMovieById(movie.getId()));
+        }
+        boolean allFound = true;
+        for (java.util.concurrent.CompletableFuture<Movie> lookup : lookups) {
+            allFound &= "Ran".equals(lookup.get().getTitle());
+        }
+        check(allFound, "Asíncrono: 50 búsquedas simultáneas devuelven la película");
+
+        String caller = Thread.currentThread().getName();
+        String[] worker = new String[1];
+        async.streamAllMovies(m -> worker[0] = Thread.currentThread().getName()).get();
+        check(!caller.equals(worker[0]), "Asíncrono: las operaciones no se ejecutan en el hilo que las llama (" + worker[0] + ")");
+        check(!async.updateMovie(null).get().isSuccess(), "Asíncrono: los errores de validación llegan en el resultado");
+    }
+
+    /**
+     * Las escrituras de otro cliente (aquí, directamente sobre el repositorio) se ven
+     * en la búsqueda por subcadena del controlador, que usa el índice de trigramas.
+     */
+    private static void testTitleIndex(MovieRepository repository) throws Exception {
+        MovieController controller = new MovieController(repository);
+        Movie edited = createMovie("Playtime", "Jacques Tati", 1967, 124, "Comedia");
+        Movie removed = createMovie("Les Vacances de M. Hulot", "Jacques Tati", 1953, 114, "Comedia");
+        repository.addMovies(java.util.Arrays.asList(edited, removed));
+        controller.findMoviesByPartialTitle("play");
+        for (int i = 0; i < 100 && projectmagenta.search.SearchIndexes.getTitleIndexOrLoadInBackground(repository) == null; i++) {
+            Thread.sleep(20);
+        }
+
+        Movie added = createMovie("Trafic", "Jacques Tati", 1971, 96, "Comedia");
+        repository.addMovie(added);
+        repository.deleteMovieById(removed.getId());
+        edited.setDuration(126);
+        repository.updateMovie(edited);
+        List<Movie> found = controller.findMoviesByPartialTitle("a");
+        check(titles(found).equals(java.util.Arrays.asList("Playtime", "Trafic")),
+                "Índice de títulos: refleja las altas y bajas de otros clientes (" + titles(found) + ")");
+        check(found.get(0).getVersion() == edited.getVersion() && found.get(0).getDuration() == 126,
+                "Índice de títulos: devuelve la versión actual de las películas modificadas por otros clientes");
+    }
+
+    private static void testBulkUpdate(MovieRepository repository) {
+        MovieController controller = new MovieController(repository);
+        repository.addMovies(java.util.Arrays.asList(
+                createMovie("Tokyo Story", "Yasujiro Ozu", 1953, 136, "Drama"),
+                createMovie("Late Spring", "Yasujiro Ozu", 1949, 108, "Drama")));
+        List<Movie> edits = new java.util.ArrayList<>();
+        for (Movie movie : repository.getAllMovies()) {
+            Movie copy = repository.findMovieById(movie.getId());
+            copy.setDuration(copy.getDuration() + 1);
+            edits.add(copy);
+        }
+        check(controller.updateMovies(edits).isSuccess()
+                && repository.findMovieByTitle("Tokyo Story").getDuration() == 137
+                && repository.findMovieByTitle("Late Spring").getDuration() == 109,
+                "Unidad de trabajo: la edición masiva guarda todas las películas");
+
+        Movie stale = edits.get(0);
+        repository.updateMovie(repository.findMovieById(stale.getId()));
+        stale.setDuration(150);
+        MovieResult result = controller.updateMovies(java.util.Arrays.asList(stale, edits.get(1)));
+        check(!result.isSuccess() && result.isConflict() && repository.findMovieById(stale.getId()).getDuration() != 150,
+                "Unidad de trabajo: una versión antigua detiene la edición masiva (" + result.getMessage() + ")");
+        check(!controller.updateMovies(java.util.Collections.emptyList()).isSuccess(),
+                "Unidad de trabajo: una lista vacía no se acepta");
+    }
+
+    private static final String[] DIRECTORS = { "Ana", "Luis", "Eva", "Tomas" };
+
+    private static void testSharding(ShardedMovieRepository repository) {
+        List<Movie> batch = new java.util.ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            batch.add(createMovie("Cortometraje " + i, "Director " + DIRECTORS[i % DIRECTORS.length], 1990 + i, 10 + i, i % 2 == 0 ? "Drama" : "Comedia"));
+        }
+        check(repository.addMovies(batch).getInsertedCount() == 30, "Shards: lote de 30 películas");
+        int[] perShard = new int[repository.getShardCount()];
+        for (Movie movie : batch) {
+            perShard[repository.shardOf(movie.getId())]++;
+        }
+        boolean spread = true;
+        for (int i = 0; i < perShard.length; i++) {
+            spread &= perShard[i] > 0 && perShard[i] == repository.getShards().get(i).getAllMovies().size();
+        }
+        check(spread, "Shards: las películas se reparten y el id indica su shard " + java.util.Arrays.toString(perShard));
+
+        Movie picked = batch.get(17);
+        Movie found = repository.findMovieById(picked.getId());
+        check(found != null && found.getTitle().equals("Cortometraje 17") && found.getId() == picked.getId(),
+                "Shards: búsqueda por id en un solo shard");
+        found.setDuration(99);
+        check(repository.updateMovie(found) && repository.findMovieById(picked.getId()).getDuration() == 99,
+                "Shards: modificación por id");
+        check(repository.findMovieByTitle("cortometraje 17").getId() == picked.getId(), "Shards: búsqueda por título en todos los shards");
+
+        // Cambiar el título cambia el shard que corresponde a la película: se mueve y la sincronización la encuentra
+        Movie renamed = repository.findMovieById(batch.get(20).getId());
+        int renamedShard = repository.shardOf(renamed.getId());
+        String newTitle = null;
+        for (int i = 0; newTitle == null; i++) {
+            Movie probe = createMovie("Reestreno " + i, renamed.getDirector(), renamed.getYear(), renamed.getDuration(), renamed.getGenre());
+            if (repository.placementOf(probe) != renamedShard) {
+                newTitle = probe.getTitle();
+            }
+        }
+        renamed.setTitle(newTitle);
+        check(repository.updateMovie(renamed) && repository.shardOf(renamed.getId()) == repository.placementOf(renamed)
+                && repository.findMovieById(batch.get(20).getId()) == null && repository.findMovieById(renamed.getId()) != null,
+                "Shards: modificar el título mueve la película al shard de su nueva clave");
+        Movie feed = createMovie(newTitle, renamed.getDirector(), renamed.getYear(), renamed.getDuration() + 1, renamed.getGenre());
+        UpsertResult resync = repository.upsertMovies(java.util.Collections.singletonList(feed));
+        check(resync.getUpdatedCount() == 1 && resync.getInsertedCount() == 0 && feed.getId() == renamed.getId()
+                && repository.findMoviesByPartialTitle(newTitle).size() == 1,
+                "Shards: sincronizar la clave nueva actualiza la película movida sin duplicarla");
+        batch.set(20, renamed);
+
+        // Con una versión antigua el movimiento no se aplica y no deja la copia en el shard nuevo
+        Movie stale = repository.findMovieById(batch.get(21).getId());
+        int staleShard = repository.shardOf(stale.getId());
+        String staleTitle = null;
+        for (int i = 0; staleTitle == null; i++) {
+            Movie probe = createMovie("Reposición " + i, stale.getDirector(), stale.getYear(), stale.getDuration(), stale.getGenre());
+            if (repository.placementOf(probe) != staleShard) {
+                staleTitle = probe.getTitle();
+            }
+        }
+        int staleId = stale.getId();
+        stale.setTitle(staleTitle);
+        stale.setVersion(stale.getVersion() - 1);
+        check(!repository.updateMovie(stale) && stale.getId() == staleId && repository.findMovieById(staleId) != null
+                && repository.findMoviesByPartialTitle(staleTitle).isEmpty(),
+                "Shards: un movimiento con versión antigua no se aplica ni deja copias");
+
+        List<Movie> all = repository.getAllMovies();
+        boolean ordered = all.size() == 30;
+        for (int i = 1; i < all.size(); i++) {
+            ordered &= all.get(i - 1).getId() < all.get(i).getId();
+        }
+        check(ordered, "Shards: getAllMovies combina los shards en orden de id");
+        List<Integer> streamed = new java.util.ArrayList<>();
+        check(repository.streamAllMovies(movie -> streamed.add(movie.getId())) == 30 && streamed.equals(ids(all)),
+                "Shards: el recorrido mezcla los shards en orden de id");
+        List<Integer> paged = new java.util.ArrayList<>();
+        projectmagenta.model.MoviePage page;
+        int afterId = 0;
+        do {
+            page = repository.getMoviesPage(afterId, 7);
+            paged.addAll(ids(page.getMovies()));
+            afterId = page.getNextAfterId();
+        } while (page.hasMore());
+        check(paged.equals(ids(all)), "Shards: la paginación por clave recorre todos los shards sin huecos ni repetidos");
+
+        check(repository.findMoviesByPartialTitle("metraje 1").size() == 11, "Shards: búsqueda parcial en todos los shards");
+        List<Movie> longest = repository.findMovies(new MovieCriteria().genre("Comedia")
+                .orderBy(MovieCriteria.SortField.DURATION, true).limit(3));
+        check(titles(longest).equals(java.util.Arrays.asList("Cortometraje 17", "Cortometraje 29", "Cortometraje 27")),
+                "Shards: criterios con orden y límite sobre todos los shards");
+        MovieStats stats = repository.getMovieStats();
+        check(stats.getMovieCount() == 30 && stats.getMinYear() == 1990 && stats.getMaxYear() == 2019
+                && stats.getCountByGenre().get("Drama") == 15L, "Shards: estadísticas combinadas (" + stats + ")");
+
+        MovieChanges baseline = repository.getMoviesChangedSince(0);
+        Movie removed = batch.get(3);
+        check(repository.deleteMovieById(removed.getId()) && repository.findMovieById(removed.getId()) == null,
+                "Shards: eliminación por id");
+        MovieChanges delta = repository.getMoviesChangedSince(baseline.getWatermark());
+        check(baseline.isFullReload() && baseline.getChanged().size() == 30 && !delta.isFullReload()
+                && delta.getDeletedIds().equals(java.util.Collections.singletonList(removed.getId())),
+                "Shards: los cambios incrementales traducen los ids de cada shard");
+        check(repository.deleteMoviesByTitle("Cortometraje 5") == 1 && repository.getAllMovies().size() == 28,
+                "Shards: eliminación por título en todos los shards");
+    }
+
+    private static void testShardReopen(List<Path> shardFiles) throws Exception {
+        List<MovieRepository> shards = new java.util.ArrayList<>();
+        for (Path shardFile : shardFiles) {
+            shards.add(new FileMovieRepository(shardFile));
+        }
+        ShardedMovieRepository reopened = new ShardedMovieRepository(shards);
+        Movie found = reopened.findMovieByTitle("Cortometraje 17");
+        check(reopened.getAllMovies().size() == 28 && found != null && reopened.findMovieById(found.getId()).getDuration() == 99,
+                "Shards: los archivos de los shards conservan los datos y los ids al reabrirse");
+        for (MovieRepository shard : shards) {
+            ((FileMovieRepository) shard).close();
+        }
+    }
+
+    /**
+     * Un shard que no puede leerse no debe confundirse con un shard vacío.
+     */
+    private static void testShardFailure() {
+        boolean[] down = { false };
+        MovieRepository failing = new InMemoryMovieRepository() {
+            @Override
+            public projectmagenta.model.MoviePage getMoviesPage(int afterId, int limit) {
+                return down[0] ? projectmagenta.model.MoviePage.failed(afterId) : super.getMoviesPage(afterId, limit);
+            }
+
+            @Override
+            public long streamAllMovies(java.util.function.Consumer<? super Movie> action) {
+                return down[0] ? -1 : super.streamAllMovies(action);
+            }
+        };
+        ShardedMovieRepository repository = new ShardedMovieRepository(java.util.Arrays.asList(new InMemoryMovieRepository(), failing));
+        List<Movie> batch = new java.util.ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            batch.add(createMovie("Función " + i, "Director " + DIRECTORS[i % DIRECTORS.length], 2000 + i, 90, "Drama"));
+        }
+        repository.addMovies(batch);
+        down[0] = true;
+        check(repository.streamAllMovies(movie -> { }) == -1, "Shards: el recorrido devuelve -1 si un shard falla");
+        check(repository.getMoviesPage(0, 100).isFailed(), "Shards: la página se marca como fallida si un shard falla");
+
+        List<Movie> feed = new java.util.ArrayList<>();
+        for (Movie movie : batch) {
+            feed.add(createMovie(movie.getTitle(), movie.getDirector(), movie.getYear(), 95, "Drama"));
+        }
+        UpsertResult result = repository.upsertMovies(feed);
+        int onFailing = 0;
+        for (Movie movie : batch) {
+            onFailing += repository.shardOf(movie.getId()) == 1 ? 1 : 0;
+        }
+        down[0] = false;
+        check(result.getInsertedCount() == 0 && result.getFailedCount() == onFailing
+                && result.getUpdatedCount() == batch.size() - onFailing && repository.getAllMovies().size() == batch.size(),
+                "Shards: con un shard caído la sincronización solo rechaza sus filas y no las duplica (" + result + ")");
+
+        // Un shard cuya confirmación falla: la unidad de trabajo se ejecuta una vez y se informa el fallo
+        int[] runs = { 0 };
+        MovieRepository rejecting = new InMemoryMovieRepository() {
+            @Override
+            public boolean runInTransaction(java.util.function.BooleanSupplier work) {
+                work.getAsBoolean();
+                return false;
+            }
+        };
+        ShardedMovieRepository partial = new ShardedMovieRepository(java.util.Arrays.asList(new InMemoryMovieRepository(), rejecting));
+        boolean committed = partial.runInTransaction(() -> {
+            runs[0]++;
+            return true;
+        });
+        check(!committed && runs[0] == 1, "Shards: la unidad de trabajo abarca todos los shards y falla si uno no confirma");
+    }
+
+    private static ShardedMovieRepository sharded(int count) {
+        List<MovieRepository> shards = new java.util.ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            shards.add(new InMemoryMovieRepository());
+        }
+        return new ShardedMovieRepository(shards);
+    }
+
+    private static List<Integer> ids(List<Movie> movies) {
+        List<Integer> ids = new java.util.ArrayList<>();
+        for (Movie movie : movies) {
+            ids.add(movie.getId());
+        }
+        return ids;
+    }
+
+    private static List<String> titles(List<Movie> movies) {
+        List<String> titles = new java.util.ArrayList<>();
+        for (Movie movie : movies) {
+            titles.add(movie.getTitle());
+        }
+        return titles;
+    }
+
+    private static void testReopen(Path file) throws Exception {
+        FileMovieRepository reopened = new FileMovieRepository(file);
+        List<Movie> all = reopened.getAllMovies();
+        check(all.size() == 1 && all.get(0).getTitle().equals("Casablanca"), "El archivo conserva los datos al reabrirse");
+        Movie next = createMovie("Se7en", "David Fincher", 1995, 127, "Thriller");
+        reopened.addMovie(next);
+        check(next.getId() > all.get(0).getId(), "Los ids continúan tras reabrir");
+        reopened.close();
+    }
+
+    private static Movie createMovie(String title, String director, int year, int duration, String genre) {
+        Movie movie = new Movie();
+        movie.setTitle(title);
+        movie.setDirector(director);
+        movie.setYear(year);
+        movie.setDuration(duration);
+        movie.setGenre(genre);
+        return movie;
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            failures++;
+        }
+        System.out.println((condition ? "[ÉXITO] " : "[ERROR] ") + description);
+    }
+}
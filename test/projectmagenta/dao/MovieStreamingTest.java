@@ -0,0 +1,111 @@
+package projectmagenta.dao;
+
+import projectmagenta.model.Movie;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prueba de memoria del recorrido en streaming de MovieDAO.
+ * Inserta un millón de películas sintéticas, las recorre con streamAllMovies()
+ * midiendo el heap durante el recorrido y las elimina al final.
+ * Requiere la misma base de datos Cine_DB que MovieDAOTest; conviene ejecutarla
+ * con un heap pequeño (por ejemplo -Xmx128m) para que un resultado materializado
+ * no quepa en memoria.
+ */
+public class MovieStreamingTest {
+    private static final int ROWS = 1_000_000;
+    // Cada fila lleva su número para no repetir la clave natural (título, año y director)
+    private static final String TITLE = "Streaming Test Movie";
+    // Un millón de Movie materializados ocupan bastante más; el streaming debe quedar muy por debajo
+    private static final long MAX_HEAP_GROWTH_BYTES = 32L * 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        System.setOut(new java.io.PrintStream(System.out, true, "UTF-8"));
+
+        System.out.println("==============================");
+        System.out.println("   PRUEBA DE STREAMING CON " + ROWS + " FILAS   ");
+        System.out.println("==============================");
+
+        if (!DBConnection.testConnection()) {
+            System.out.println("[ERROR] Falló la conexión a la base de datos - abortando pruebas");
+            System.exit(1);
+        }
+        MovieDAO dao = new MovieDAO();
+
+        boolean passed = false;
+        try {
+            // Restos de una ejecución interrumpida chocarían con la clave natural
+            deleteSyntheticMovies();
+            System.out.println("\n[SETUP] Insertando " + ROWS + " películas sintéticas...");
+            int inserted = 0;
+            List<Movie> batch = new ArrayList<>(10_000);
+            for (int i = 0; i < ROWS; i++) {
+                batch.add(Movie.fromTrustedData(0, TITLE + " " + i, "Director Prueba", 1950 + i % 70, 90, "Drama"));
+                if (batch.size() == 10_000) {
+                    inserted += dao.addMovies(batch).getInsertedCount();
+                    batch.clear();
+                }
+            }
+            System.out.println("[SETUP] Insertadas: " + inserted);
+            if (inserted != ROWS) {
+                System.out.println("[ERROR] Solo se insertaron " + inserted + " de " + ROWS + " películas - abortando prueba");
+                return;
+            }
+
+            System.out.println("\n------------------------------");
+            System.out.println("[CASO] Recorrido en streaming de toda la cartelera");
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            long baseline = runtime.totalMemory() - runtime.freeMemory();
+            long[] peak = { baseline };
+            long[] sampled = { 0 };
+
+            long start = System.nanoTime();
+            long count = dao.streamAllMovies(movie -> {
+                sampled[0]++;
+                if (sampled[0] % 50_000 == 0) {
+                    System.gc();
+                    peak[0] = Math.max(peak[0], runtime.totalMemory() - runtime.freeMemory());
+                }
+            });
+            long millis = (System.nanoTime() - start) / 1_000_000;
+
+            long growth = peak[0] - baseline;
+            System.out.println("[INFO] Filas recorridas: " + count + " en " + millis + " ms");
+            System.out.println("[INFO] Crecimiento máximo del heap: " + growth / 1024 + " KB");
+            passed = count >= ROWS && growth < MAX_HEAP_GROWTH_BYTES;
+            if (passed) {
+                System.out.println("[ÉXITO] La memoria se mantuvo constante durante el recorrido");
+            } else {
+                System.out.println("[ERROR] El recorrido no fue completo o la memoria creció demasiado");
+            }
+        } finally {
+            System.out.println("\n[LIMPIEZA] Eliminadas " + deleteSyntheticMovies() + " películas sintéticas");
+            DBConnection.shutdown();
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Elimina las películas sintéticas por el prefijo del título, en tandas para no
+     * mantener un millón de filas bloqueadas en una sola transacción.
+     * @return número de películas eliminadas
+     */
+    private static int deleteSyntheticMovies() throws Exception {
+        int deleted = 0;
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement delete = conn.prepareStatement("DELETE FROM Cartelera WHERE title LIKE ? LIMIT 10000")) {
+            delete.setString(1, TITLE + " %");
+            int rows;
+            do {
+                rows = delete.executeUpdate();
+                deleted += rows;
+            } while (rows > 0);
+        }
+        return deleted;
+    }
+}
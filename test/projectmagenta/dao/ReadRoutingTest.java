@@ -0,0 +1,75 @@
+package projectmagenta.dao;
+
+import java.sql.Connection;
+
+/**
+ * Pruebas del enrutamiento de lecturas a réplicas.
+ * Requiere al menos una réplica configurada en magenta.db.replicas, por ejemplo
+ * dos instancias locales de MySQL en los puertos 3306 y 3307:
+ * java -Dmagenta.db.replicas=jdbc:mysql://localhost:3307/Cine_DB -Dmagenta.db.readYourWritesMs=1000 ...
+ * Las instancias no necesitan estar replicadas: la prueba solo comprueba a qué
+ * servidor se dirige cada conexión.
+ */
+public class ReadRoutingTest {
+    public static void main(String[] args) throws Exception {
+        System.setOut(new java.io.PrintStream(System.out, true, "UTF-8"));
+
+        System.out.println("==============================");
+        System.out.println("   PRUEBAS DE ENRUTAMIENTO DE LECTURAS   ");
+        System.out.println("==============================");
+
+        if (DBConnection.getReplicaCount() == 0) {
+            System.out.println("[ERROR] No hay réplicas configuradas (magenta.db.replicas) - abortando pruebas");
+            System.exit(1);
+        }
+
+        // Caso 1: justo después de una escritura, la lectura debe ir a la primaria
+        System.out.println("\n------------------------------");
+        System.out.println("[CASO] Lectura inmediatamente después de una escritura");
+        String primaryUrl;
+        try (Connection write = DBConnection.getConnection()) {
+            primaryUrl = write.getMetaData().getURL();
+        }
+        try (Connection read = DBConnection.getReadConnection()) {
+            String readUrl = read.getMetaData().getURL();
+            check(readUrl.equals(primaryUrl), "La lectura usa la primaria (" + readUrl + ")");
+        }
+
+        // Caso 2: pasada la ventana de lectura-tras-escritura, la lectura debe ir a una réplica
+        System.out.println("\n------------------------------");
+        System.out.println("[CASO] Lectura después de la ventana de lectura-tras-escritura");
+        long window = DBConfig.getLong("magenta.db.readYourWritesMs", 5_000L);
+        Thread.sleep(window + 100);
+        java.util.Set<String> readUrls = new java.util.HashSet<>();
+        for (int i = 0; i < DBConnection.getReplicaCount() * 2; i++) {
+            try (Connection read = DBConnection.getReadConnection()) {
+                readUrls.add(read.getMetaData().getURL());
+            }
+        }
+        check(!readUrls.contains(primaryUrl), "Las lecturas usan réplicas: " + readUrls);
+        check(readUrls.size() == DBConnection.getReplicaCount(),
+                "Las lecturas se reparten entre las " + DBConnection.getReplicaCount() + " réplica(s)");
+
+        // Caso 3: una escritura más larga que la ventana; la ventana cuenta desde que termina
+        System.out.println("\n------------------------------");
+        System.out.println("[CASO] Lectura después de una escritura más larga que la ventana");
+        try (Connection write = DBConnection.getConnection()) {
+            write.setAutoCommit(false);
+            Thread.sleep(window + 100);
+            write.commit();
+        }
+        try (Connection read = DBConnection.getReadConnection()) {
+            String readUrl = read.getMetaData().getURL();
+            check(readUrl.equals(primaryUrl), "La lectura usa la primaria tras la escritura larga (" + readUrl + ")");
+        }
+
+        DBConnection.shutdown();
+        System.out.println("\n==============================");
+        System.out.println("   TODAS LAS PRUEBAS FINALIZADAS   ");
+        System.out.println("==============================");
+    }
+
+    private static void check(boolean condition, String description) {
+        System.out.println((condition ? "[ÉXITO] " : "[ERROR] ") + description);
+    }
+}
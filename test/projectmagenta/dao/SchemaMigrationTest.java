@@ -0,0 +1,131 @@
+package projectmagenta.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Pruebas de las migraciones del esquema y de los índices que usan las consultas
+ * del DAO. Requiere la base de datos Cine_DB: aplica las migraciones pendientes y
+ * comprueba con EXPLAIN que cada consulta puede usar su índice.
+ */
+public class SchemaMigrationTest {
+    private static int failures = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.setOut(new java.io.PrintStream(System.out, true, "UTF-8"));
+
+        System.out.println("==============================");
+        System.out.println("   PRUEBAS DE MIGRACIONES DEL ESQUEMA   ");
+        System.out.println("==============================");
+
+        // Caso 1: validaciones que no necesitan base de datos
+        System.out.println("\n------------------------------");
+        System.out.println("[CASO] Orden y sumas de las migraciones");
+        SchemaMigration first = SchemaMigrator.MIGRATIONS.get(0);
+        check(first.checksum().equals(first.checksum()) && first.checksum().length() == 64, "La suma SHA-256 es estable");
+        check(!first.checksum().equals(SchemaMigrator.MIGRATIONS.get(1).checksum()), "Migraciones distintas tienen sumas distintas");
+        try {
+            new SchemaMigrator(Arrays.asList(SchemaMigrator.MIGRATIONS.get(1), SchemaMigrator.MIGRATIONS.get(0)));
+            check(false, "Las migraciones desordenadas se rechazan");
+        } catch (IllegalArgumentException e) {
+            check(true, "Las migraciones desordenadas se rechazan (" + e.getMessage() + ")");
+        }
+
+        if (!DBConnection.testConnection()) {
+            System.out.println("[ERROR] No se pudo conectar a la base de datos - abortando pruebas");
+            System.exit(1);
+        }
+
+        // Caso 2: aplicar y volver a aplicar
+        System.out.println("\n------------------------------");
+        System.out.println("[CASO] Aplicar las migraciones pendientes");
+        SchemaMigrator migrator = new SchemaMigrator();
+        int applied = migrator.migrate();
+        check(applied >= 0, "Migraciones aplicadas: " + applied);
+        check(migrator.migrate() == 0, "Volver a migrar no aplica nada");
+        Map<Integer, String> versions = migrator.getAppliedVersions();
+        boolean allRecorded = true;
+        for (SchemaMigration migration : SchemaMigrator.MIGRATIONS) {
+            allRecorded &= migration.checksum().equals(versions.get(migration.getVersion()));
+        }
+        check(allRecorded, "schema_version registra todas las versiones con su suma (V" + migrator.getLatestVersion() + ")");
+
+        // Caso 3: planes de ejecución de las consultas del DAO
+        System.out.println("\n------------------------------");
+        System.out.println("[CASO] EXPLAIN de las consultas del DAO");
+        explain("findMovieByTitle", "SELECT id FROM Cartelera WHERE title_key = ?", "uk_cartelera_natural", "matrix");
+        explain("deleteMoviesByTitle", "SELECT id FROM Cartelera WHERE title = ?", "idx_cartelera_title", "Matrix");
+        explain("findMovies (género y años)", "SELECT id FROM Cartelera WHERE genre = ? AND year >= ? AND year <= ?",
+                "idx_cartelera_genre_year", "Drama", 1990, 1999);
+        explain("findMovies (director)", "SELECT id FROM Cartelera WHERE director_key = ?", "idx_cartelera_director_key", "lana wachowski");
+        explain("getMoviesChangedSince", "SELECT id FROM Cartelera WHERE updated_at > ?", "idx_cartelera_updated_at",
+                new java.sql.Timestamp(System.currentTimeMillis()));
+        explain("getMoviesChangedSince (eliminadas)", "SELECT id FROM Cartelera_eliminadas WHERE deleted_at > ?",
+                "idx_eliminadas_deleted_at", new java.sql.Timestamp(System.currentTimeMillis()));
+        explain("archiveColdMovies (antigüedad)", "SELECT id FROM Cartelera WHERE created_at < ?",
+                "idx_cartelera_created_at", new java.sql.Timestamp(System.currentTimeMillis()));
+
+        // Caso 4: filas sin claves de otros clientes que repiten la clave natural de otra
+        System.out.println("\n------------------------------");
+        System.out.println("[CASO] Claves de búsqueda de filas con la misma clave natural");
+        try (Connection conn = DBConnection.getConnection()) {
+            try (PreparedStatement insert = conn.prepareStatement("INSERT INTO Cartelera (title, director, year, duration, genre) "
+                    + "VALUES (?, 'Jean-Pierre Jeunet', 2001, 122, 'Comedia')")) {
+                insert.setString(1, "Amélie Migración");
+                insert.executeUpdate();
+                insert.setString(1, "Amelie Migracion");
+                insert.executeUpdate();
+            }
+            int filled = MovieDAO.fillSearchKeys(conn);
+            check(filled >= 1, "Se calculan las claves aunque una fila choque con otra (" + filled + " completada(s))");
+            try (PreparedStatement count = conn.prepareStatement(
+                    "SELECT COUNT(*) FROM Cartelera WHERE title LIKE 'Am_lie Migraci_n' AND title_key IS NULL");
+                 ResultSet rs = count.executeQuery()) {
+                rs.next();
+                check(rs.getInt(1) == 1, "La fila duplicada queda sin clave y se informa");
+            }
+            try (PreparedStatement delete = conn.prepareStatement("DELETE FROM Cartelera WHERE title LIKE 'Am_lie Migraci_n'")) {
+                delete.executeUpdate();
+            }
+        }
+
+        System.out.println("\n==============================");
+        System.out.println(failures == 0 ? "   TODAS LAS PRUEBAS FINALIZADAS   " : "   PRUEBAS CON " + failures + " ERROR(ES)   ");
+        System.out.println("==============================");
+        DBConnection.shutdown();
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Comprueba que el índice aparece entre los candidatos del plan. Con pocas filas
+     * el optimizador puede preferir recorrer la tabla, así que el índice elegido
+     * solo se muestra.
+     */
+    private static void explain(String query, String sql, String index, Object... params) throws Exception {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                String possibleKeys = rs.getString("possible_keys");
+                String key = rs.getString("key");
+                boolean usable = possibleKeys != null && Arrays.asList(possibleKeys.split(",")).contains(index);
+                check(usable, query + ": puede usar " + index + " (elegido: " + key + ", tipo: " + rs.getString("type") + ")");
+            }
+        }
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            failures++;
+        }
+        System.out.println((condition ? "[ÉXITO] " : "[ERROR] ") + description);
+    }
+}
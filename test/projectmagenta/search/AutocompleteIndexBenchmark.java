@@ -0,0 +1,126 @@
+package projectmagenta.search;
+
+import projectmagenta.controller.MovieController;
+import projectmagenta.dao.InMemoryMovieRepository;
+import projectmagenta.model.Movie;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark del autocompletado por prefijo con un millón de títulos sintéticos.
+ * Simula la escritura de un título tecla a tecla midiendo cada sugerencia y
+ * comprueba el mantenimiento incremental (altas, bajas y textos repetidos).
+ * No necesita base de datos.
+ */
+public class AutocompleteIndexBenchmark {
+    private static final int TITLES = 1_000_000;
+    private static final int SUGGESTIONS = 8;
+    private static final int REPETITIONS = 10_000;
+    private static final String[] WORDS = {
+        "Silent", "Dark", "Golden", "Lost", "Hidden", "River", "Empire", "Garden", "Storm", "Horizon",
+        "Último", "Secreto", "Camino", "Verano", "Destino"
+    };
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        System.setOut(new java.io.PrintStream(System.out, true, "UTF-8"));
+
+        System.out.println("==============================");
+        System.out.println("   BENCHMARK DE AUTOCOMPLETADO (" + TITLES + " títulos)   ");
+        System.out.println("==============================");
+
+        Random random = new Random(7);
+        List<String> titles = new java.util.ArrayList<>(TITLES);
+        for (int i = 0; i < TITLES; i++) {
+            titles.add(WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i);
+        }
+        AutocompleteIndex index = new AutocompleteIndex();
+        long start = System.nanoTime();
+        index.addAll(titles);
+        System.out.println("[INFO] " + index.size() + " títulos indexados en " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        String typed = "Golden River 4";
+        for (int i = 0; i < REPETITIONS; i++) {
+            index.suggest(typed.substring(0, 1 + i % typed.length()), SUGGESTIONS);
+        }
+        System.out.println("\n------------------------------");
+        System.out.println("[CASO] Escritura tecla a tecla de \"" + typed + "\"");
+        for (int length = 1; length <= typed.length(); length++) {
+            String prefix = typed.substring(0, length);
+            List<String> suggestions = null;
+            long nanos = System.nanoTime();
+            for (int i = 0; i < REPETITIONS; i++) {
+                suggestions = index.suggest(prefix, SUGGESTIONS);
+            }
+            nanos = System.nanoTime() - nanos;
+            System.out.printf("[\"%s\"] %.2f µs/sugerencia, primera: %s%n", prefix, nanos / 1_000.0 / REPETITIONS,
+                    suggestions.isEmpty() ? "-" : suggestions.get(0));
+        }
+
+        System.out.println("\n------------------------------");
+        System.out.println("[CASO] Mantenimiento incremental");
+        check(index.suggest("golden  RIVER 4", SUGGESTIONS).size() == SUGGESTIONS,
+                "Sin distinguir mayúsculas ni espacios repetidos");
+        index.add("Zzqx Director");
+        index.add("zzqx director");
+        check(index.suggest("zz", SUGGESTIONS).equals(List.of("Zzqx Director")), "Los textos repetidos se sugieren una vez");
+        index.remove("Zzqx Director");
+        check(index.suggest("zz", SUGGESTIONS).size() == 1, "Sigue sugiriéndose mientras quede una referencia");
+        start = System.nanoTime();
+        index.remove("ZZQX director");
+        long removeNanos = System.nanoTime() - start;
+        check(index.suggest("zz", SUGGESTIONS).isEmpty(), "Se deja de sugerir al quitar la última referencia ("
+                + removeNanos / 1_000 + " µs)");
+        check(index.suggest("", SUGGESTIONS).isEmpty(), "El prefijo vacío no sugiere nada");
+        start = System.nanoTime();
+        index.add("Aaa Nueva Película");
+        long addNanos = System.nanoTime() - start;
+        check(index.suggest("aaa", SUGGESTIONS).equals(List.of("Aaa Nueva Película")),
+                "Un alta aparece en la siguiente sugerencia (" + addNanos / 1_000 + " µs)");
+
+        System.out.println("\n------------------------------");
+        System.out.println("[CASO] Sugerencias a través del controlador");
+        testController();
+
+        System.out.println("\n==============================");
+        System.out.println(failures == 0 ? "   BENCHMARK FINALIZADO   " : "   BENCHMARK CON " + failures + " ERROR(ES)   ");
+        System.out.println("==============================");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void testController() {
+        MovieController controller = new MovieController(new InMemoryMovieRepository());
+        Movie movie = Movie.fromTrustedData(0, "Kill Bill", "Quentin Tarantino", 2003, 111, "Acción");
+        controller.addMovie(movie);
+        // La primera sugerencia solo pide la carga en segundo plano
+        controller.suggestTitles("ki", SUGGESTIONS);
+        List<String> titles = waitForSuggestions(controller, "ki");
+        check(titles.equals(List.of("Kill Bill")), "Sugiere títulos del repositorio");
+        movie.setTitle("Jackie Brown");
+        controller.updateMovie(movie);
+        check(controller.suggestTitles("ki", SUGGESTIONS).isEmpty() && controller.suggestTitles("jack", SUGGESTIONS).size() == 1,
+                "Una modificación cambia las sugerencias");
+        check(controller.suggestDirectors("quentin", SUGGESTIONS).equals(List.of("Quentin Tarantino")), "Sugiere directores");
+        controller.deleteMovieById(movie.getId());
+        check(controller.suggestDirectors("quentin", SUGGESTIONS).isEmpty(), "Una baja quita las sugerencias");
+    }
+
+    private static List<String> waitForSuggestions(MovieController controller, String prefix) {
+        long deadline = System.currentTimeMillis() + 5_000;
+        List<String> suggestions = controller.suggestTitles(prefix, SUGGESTIONS);
+        while (suggestions.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+            suggestions = controller.suggestTitles(prefix, SUGGESTIONS);
+        }
+        return suggestions;
+    }
+
+    private static void check(boolean condition, String description) {
+        if (!condition) {
+            failures++;
+        }
+        System.out.println((condition ? "[ÉXITO] " : "[ERROR] ") + description);
+    }
+}
@@ -0,0 +1,135 @@
+package projectmagenta.search;
+
+import projectmagenta.model.Movie;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Benchmark del índice de trigramas con un millón de títulos sintéticos.
+ * Compara la búsqueda por subcadena del índice contra un recorrido lineal de
+ * todos los títulos y comprueba que ambos devuelvan las mismas películas.
+ * No necesita base de datos; conviene ejecutarlo con -Xmx2g.
+ */
+public class TitleTrigramIndexBenchmark {
+    private static final int TITLES = 1_000_000;
+    private static final int QUERY_REPETITIONS = 200;
+    private static final String[] ADJECTIVES = {
+        "Silent", "Dark", "Golden", "Lost", "Hidden", "Broken", "Eternal", "Wild", "Frozen", "Crimson",
+        "Último", "Secreto", "Perdido", "Oscuro", "Brillante"
+    };
+    private static final String[] NOUNS = {
+        "River", "Empire", "Garden", "Storm", "Horizon", "Shadow", "Kingdom", "Harbor", "Desert", "Voyage",
+        "Camino", "Verano", "Silencio", "Destino", "Océano"
+    };
+    private static final String[] QUERIES = {
+        "river 4821",     // muy selectiva: pocas coincidencias
+        "lden harbor 9",  // cientos de coincidencias, trigramas de varias palabras
+        "destino 77777",  // trigramas frecuentes, sin coincidencias
+        "zzqx",           // sin coincidencias
+        "frozen voya"     // miles de coincidencias
+    };
+
+    public static void main(String[] args) throws Exception {
+        System.setOut(new java.io.PrintStream(System.out, true, "UTF-8"));
+
+        System.out.println("==============================");
+        System.out.println("   BENCHMARK DEL ÍNDICE DE TRIGRAMAS (" + TITLES + " títulos)   ");
+        System.out.println("==============================");
+
+        Random random = new Random(42);
+        List<Movie> movies = new ArrayList<>(TITLES);
+        for (int i = 1; i <= TITLES; i++) {
+            String title = ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " "
+                    + NOUNS[random.nextInt(NOUNS.length)] + " " + random.nextInt(100_000);
+            movies.add(Movie.fromTrustedData(i, title, "Director Prueba", 1950 + i % 70, 90, "Drama"));
+        }
+
+        TitleTrigramIndex index = new TitleTrigramIndex();
+        long start = System.nanoTime();
+        for (Movie movie : movies) {
+            index.add(movie);
+        }
+        System.out.println("[INFO] Índice construido en " + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+        // Calentamiento del JIT antes de medir
+        for (int i = 0; i < 2_000; i++) {
+            index.search(QUERIES[i % QUERIES.length]);
+        }
+
+        int failures = 0;
+        for (String query : QUERIES) {
+            System.out.println("\n------------------------------");
+            System.out.println("[CONSULTA] \"" + query + "\"");
+
+            List<Movie> indexed = null;
+            long indexNanos = System.nanoTime();
+            for (int i = 0; i < QUERY_REPETITIONS; i++) {
+                indexed = index.search(query);
+            }
+            indexNanos = System.nanoTime() - indexNanos;
+
+            List<Movie> scanned = null;
+            int scanRepetitions = Math.max(1, QUERY_REPETITIONS / 20);
+            long scanNanos = System.nanoTime();
+            for (int i = 0; i < scanRepetitions; i++) {
+                scanned = linearScan(movies, query);
+            }
+            scanNanos = System.nanoTime() - scanNanos;
+
+            report("Índice de trigramas", indexNanos, QUERY_REPETITIONS);
+            report("Recorrido lineal", scanNanos, scanRepetitions);
+            if (ids(indexed).equals(ids(scanned))) {
+                System.out.println("[ÉXITO] " + indexed.size() + " coincidencia(s), iguales en ambos métodos");
+            } else {
+                failures++;
+                System.out.println("[ERROR] El índice devolvió " + indexed.size() + " y el recorrido " + scanned.size());
+            }
+        }
+
+        System.out.println("\n------------------------------");
+        System.out.println("[CASO] Mantenimiento incremental");
+        Movie renamed = Movie.fromTrustedData(77, "Zzqx Renamed Voyage", "Director Prueba", 2000, 90, "Drama");
+        start = System.nanoTime();
+        index.update(renamed);
+        index.remove(78);
+        long maintenanceNanos = System.nanoTime() - start;
+        boolean updated = ids(index.search("zzqx")).equals(List.of(77)) && index.size() == TITLES - 1;
+        System.out.println((updated ? "[ÉXITO] " : "[ERROR] ") + "Modificar y eliminar se reflejan en "
+                + maintenanceNanos / 1_000 + " µs");
+        if (!updated) {
+            failures++;
+        }
+
+        System.out.println("\n==============================");
+        System.out.println(failures == 0 ? "   BENCHMARK FINALIZADO   " : "   BENCHMARK CON " + failures + " ERROR(ES)   ");
+        System.out.println("==============================");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static List<Movie> linearScan(List<Movie> movies, String query) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        List<Movie> result = new ArrayList<>();
+        for (Movie movie : movies) {
+            if (movie.getTitle().toLowerCase(Locale.ROOT).contains(needle)) {
+                result.add(movie);
+            }
+        }
+        return result;
+    }
+
+    private static List<Integer> ids(List<Movie> movies) {
+        List<Integer> ids = new ArrayList<>(movies.size());
+        for (Movie movie : movies) {
+            ids.add(movie.getId());
+        }
+        return ids;
+    }
+
+    private static void report(String label, long nanos, int operations) {
+        System.out.printf("[%s] media=%.1f µs/consulta%n", label, nanos / 1_000.0 / operations);
+    }
+}